@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.app;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import net.sf.openforge.forge.api.entry.EntryMethod;
+import net.sf.openforge.forge.api.internal.IPCoreStorage;
+import net.sf.openforge.forge.api.ipcore.IPCore;
+import net.sf.openforge.forge.api.pin.Buffer;
+import net.sf.openforge.forge.api.sim.pin.SequentialPinData;
+import net.sf.openforge.util.naming.IDDb;
+
+/**
+ * A CompilationContext holds all the state which used to be kept in static
+ * fields and which belongs to a single compilation: the ID counters, the
+ * IPCore database, the pin simulation data, the entry methods, the values of
+ * the API RunTime class and the compile profiler. Each {@link Engine} owns
+ * its context, so that several engines may compile concurrently in the same
+ * JVM.
+ * <p>
+ * The context of the engine associated with the current thread (see
+ * {@link EngineThread}) is returned by {@link #current()}. Code running
+ * outside of any engine shares a single default context.
+ */
+public class CompilationContext {
+
+	/** The context used when no Engine is associated with the thread **/
+	private static final CompilationContext defaultContext = new CompilationContext();
+
+	/** The ID counters **/
+	private final IDDb idDb = new IDDb();
+
+	/** A HashMap of IPCore->IPCoreStorage **/
+	private final HashMap<IPCore, IPCoreStorage> ipCoreMap = new HashMap<IPCore, IPCoreStorage>();
+
+	/** The drive data of each pin **/
+	private final HashMap<Buffer, SequentialPinData> pinDriveData = new HashMap<Buffer, SequentialPinData>(
+			11);
+
+	/** The test data of each pin **/
+	private final HashMap<Buffer, SequentialPinData> pinTestData = new HashMap<Buffer, SequentialPinData>(
+			11);
+
+	/** Set of entry methods **/
+	private final HashSet<EntryMethod> entryMethods = new HashSet<EntryMethod>();
+
+	/** The per-phase profiler **/
+	private final CompileProfiler profiler = new CompileProfiler();
+
+	/** Used to uniquify the names of the generated memory modules **/
+	private int memoryModuleId = 0;
+
+	/** Used to uniquify the names of the Kickers **/
+	private int kickerIndex = 0;
+
+	/** A HashMap of Ram class->count of its instances **/
+	private final HashMap<Class<?>, Integer> ramInstanceCounts = new HashMap<Class<?>, Integer>();
+
+	/**
+	 * Returns the context of the Engine of the current thread, or the default
+	 * context if the thread is not running an Engine.
+	 * 
+	 * @return a CompilationContext, never null
+	 */
+	public static CompilationContext current() {
+		Engine engine = EngineThread.getEngine();
+		if (engine != null) {
+			return engine.getContext();
+		}
+		return defaultContext;
+	}
+
+	public IDDb getIDDb() {
+		return idDb;
+	}
+
+	public HashMap<IPCore, IPCoreStorage> getIPCoreMap() {
+		return ipCoreMap;
+	}
+
+	public HashMap<Buffer, SequentialPinData> getPinDriveData() {
+		return pinDriveData;
+	}
+
+	public HashMap<Buffer, SequentialPinData> getPinTestData() {
+		return pinTestData;
+	}
+
+	public HashSet<EntryMethod> getEntryMethods() {
+		return entryMethods;
+	}
+
+	public CompileProfiler getProfiler() {
+		return profiler;
+	}
+
+	public synchronized int nextMemoryModuleId() {
+		return memoryModuleId++;
+	}
+
+	public synchronized int nextKickerIndex() {
+		return kickerIndex++;
+	}
+
+	public synchronized int nextRamInstance(Class<?> ramClass) {
+		Integer count = ramInstanceCounts.get(ramClass);
+		int next = count == null ? 0 : count.intValue();
+		ramInstanceCounts.put(ramClass, next + 1);
+		return next;
+	}
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.app;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openforge.frontend.xlim.app.XLIMEngine;
+
+/**
+ * CompileBenchmark is a command line harness measuring the time of each phase
+ * of the compilation (buildLim and the phases of
+ * {@link LIMCompiler#processLim}) on a set of XLIM designs. Each design is
+ * compiled a number of times to warm up the JVM, then a number of measured
+ * times, in the same JVM. For each phase the mean, minimum and maximum times
+ * are printed, and optionally written to a CSV file to track regressions.
+ * 
+ * <pre>
+ * CompileBenchmark [-warmup n] [-iterations n] [-csv file] [-synthetic size]*
+ *                  [design.xlim]* [-- forge options]
+ * </pre>
+ * 
+ * A synthetic design is an actor with one action made of a chain of size
+ * arithmetic operations, which gives a design of a known, scalable size.
+ */
+public class CompileBenchmark {
+
+	/** The options used by Xronos to compile an instance */
+	private static final String[] FORGE_FLAGS = { "-pipeline", "-noblockio",
+			"-no_block_sched", "-simple_arbitration", "-noedk", "-loopbal",
+			"-multdecomplimit", "2", "-comb_lut_mem_read", "-dplut", "-nolog",
+			"-noinclude" };
+
+	private int warmup = 3;
+
+	private int iterations = 10;
+
+	private final List<String> forgeOptions = new ArrayList<String>(
+			Arrays.asList(FORGE_FLAGS));
+
+	/** The times of each measured iteration, by design and by phase */
+	private final Map<String, Map<String, List<Long>>> times = new LinkedHashMap<String, Map<String, List<Long>>>();
+
+	public static void main(String[] args) throws IOException {
+		CompileBenchmark benchmark = new CompileBenchmark();
+		List<File> designs = new ArrayList<File>();
+		File csv = null;
+		File tmpDir = createTempDir();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup")) {
+				benchmark.warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-iterations")) {
+				benchmark.iterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-csv")) {
+				csv = new File(args[++i]);
+			} else if (args[i].equals("-synthetic")) {
+				int size = Integer.parseInt(args[++i]);
+				designs.add(writeSyntheticDesign(tmpDir, size));
+			} else if (args[i].equals("--")) {
+				benchmark.forgeOptions.addAll(Arrays.asList(args).subList(
+						i + 1, args.length));
+				break;
+			} else {
+				designs.add(new File(args[i]));
+			}
+		}
+		if (designs.isEmpty()) {
+			System.err.println("usage: CompileBenchmark [-warmup n] "
+					+ "[-iterations n] [-csv file] [-synthetic size]* "
+					+ "[design.xlim]* [-- forge options]");
+			System.exit(-1);
+		}
+
+		for (File design : designs) {
+			benchmark.run(design, new File(tmpDir, "out"));
+		}
+		benchmark.print(System.out);
+		if (csv != null) {
+			PrintStream ps = new PrintStream(new FileOutputStream(csv));
+			benchmark.printCsv(ps);
+			ps.close();
+		}
+	}
+
+	/**
+	 * Compiles a design warmup + iterations times, recording the phase times
+	 * of the measured iterations.
+	 */
+	public void run(File design, File outputDir) {
+		String name = design.getName();
+		name = name.substring(0, name.lastIndexOf('.'));
+		Map<String, List<Long>> designTimes = new LinkedHashMap<String, List<Long>>();
+		times.put(design.getName(), designTimes);
+		outputDir.mkdirs();
+
+		for (int i = 0; i < warmup + iterations; i++) {
+			List<String> args = new ArrayList<String>(forgeOptions);
+			args.addAll(Arrays.asList("-d", outputDir.getPath(), "-o", name,
+					design.getPath()));
+
+			System.gc();
+			// The job redirects the standard streams to its logger
+			PrintStream out = System.out;
+			PrintStream err = System.err;
+			GenericJob gj = new GenericJob();
+			try {
+				gj.setOptionValues(args.toArray(new String[0]));
+			} catch (NewJob.ForgeOptionException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+			new Forge().preprocess(gj);
+			gj.updateLoggers();
+
+			Engine engine = new XLIMEngine(gj);
+			long t0 = System.nanoTime();
+			try {
+				engine.begin();
+			} finally {
+				engine.kill();
+				System.setOut(out);
+				System.setErr(err);
+			}
+			long total = System.nanoTime() - t0;
+
+			if (i >= warmup) {
+				record(designTimes, "buildLim", engine.getBuildLimTime());
+				if (engine.getLimCompiler() != null) {
+					for (Map.Entry<String, Long> entry : engine
+							.getLimCompiler().getPhaseTimes().entrySet()) {
+						record(designTimes, entry.getKey(), entry.getValue());
+					}
+				}
+				record(designTimes, "total", total);
+			}
+		}
+	}
+
+	private void record(Map<String, List<Long>> designTimes, String phase,
+			long time) {
+		List<Long> phaseTimes = designTimes.get(phase);
+		if (phaseTimes == null) {
+			phaseTimes = new ArrayList<Long>();
+			designTimes.put(phase, phaseTimes);
+		}
+		phaseTimes.add(time);
+	}
+
+	public void print(PrintStream ps) {
+		for (Map.Entry<String, Map<String, List<Long>>> design : times
+				.entrySet()) {
+			ps.println(design.getKey() + " (" + iterations
+					+ " iterations, ms: mean min max)");
+			for (Map.Entry<String, List<Long>> phase : design.getValue()
+					.entrySet()) {
+				long[] stats = stats(phase.getValue());
+				ps.println(String.format("  %-24s %10.3f %10.3f %10.3f",
+						phase.getKey(), stats[0] / 1e6, stats[1] / 1e6,
+						stats[2] / 1e6));
+			}
+		}
+	}
+
+	public void printCsv(PrintStream ps) {
+		ps.println("design,phase,iterations,mean_ns,min_ns,max_ns");
+		for (Map.Entry<String, Map<String, List<Long>>> design : times
+				.entrySet()) {
+			for (Map.Entry<String, List<Long>> phase : design.getValue()
+					.entrySet()) {
+				long[] stats = stats(phase.getValue());
+				ps.println(design.getKey() + "," + phase.getKey() + ","
+						+ phase.getValue().size() + "," + stats[0] + ","
+						+ stats[1] + "," + stats[2]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the mean, min and max of the given times.
+	 */
+	private static long[] stats(List<Long> values) {
+		long sum = 0;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (long value : values) {
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		return new long[] { values.isEmpty() ? 0 : sum / values.size(), min,
+				max };
+	}
+
+	private static File createTempDir() throws IOException {
+		File dir = File.createTempFile("forgebench", "");
+		if (!dir.delete() || !dir.mkdirs()) {
+			throw new IOException("Cannot create " + dir);
+		}
+		return dir;
+	}
+
+	/**
+	 * Writes an XLIM actor with a state variable and an action computing a
+	 * chain of size operations from the token read on its input port.
+	 */
+	static File writeSyntheticDesign(File dir, int size) throws IOException {
+		String[] kinds = { "$add", "$xor", "$sub", "$and", "$or" };
+		File file = new File(dir, "synthetic" + size + ".xlim");
+		PrintStream ps = new PrintStream(new FileOutputStream(file));
+		ps.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		ps.println("<design name=\"synthetic" + size + "\">");
+		ps.println("  <actor-port dir=\"in\" name=\"A\" size=\"32\" typeName=\"int\"/>");
+		ps.println("  <actor-port dir=\"out\" name=\"B\" size=\"32\" typeName=\"int\"/>");
+		ps.println("  <stateVar name=\"acc\" sourceName=\"acc\">"
+				+ "<initValue size=\"32\" typeName=\"int\" value=\"0\"/>"
+				+ "</stateVar>");
+		ps.println("  <module autostart=\"false\" kind=\"action\" name=\"step\">");
+		ps.println("    <operation kind=\"pinRead\" portName=\"A\" removable=\"no\">"
+				+ "<port dir=\"out\" size=\"32\" source=\"x0\" typeName=\"int\"/>"
+				+ "</operation>");
+		ps.println("    <operation kind=\"var_ref\" name=\"acc\">"
+				+ "<port dir=\"out\" size=\"32\" source=\"acc0\" typeName=\"int\"/>"
+				+ "</operation>");
+		for (int i = 0; i < size; i++) {
+			String operand = (i % 3 == 0) ? "acc0" : "c" + i;
+			if (i % 3 != 0) {
+				ps.println("    <operation kind=\"$literal_Integer\" value=\""
+						+ (i * 7 + 1)
+						+ "\"><port dir=\"out\" size=\"32\" source=\"c" + i
+						+ "\" typeName=\"int\"/></operation>");
+			}
+			ps.println("    <operation kind=\"" + kinds[i % kinds.length]
+					+ "\"><port dir=\"in\" source=\"x" + i
+					+ "\"/><port dir=\"in\" source=\"" + operand
+					+ "\"/><port dir=\"out\" size=\"32\" source=\"x" + (i + 1)
+					+ "\" typeName=\"int\"/></operation>");
+		}
+		ps.println("    <operation kind=\"assign\" target=\"acc\">"
+				+ "<port dir=\"in\" source=\"x" + size + "\"/></operation>");
+		ps.println("    <operation kind=\"pinWrite\" portName=\"B\" style=\"simple\">"
+				+ "<port dir=\"in\" source=\"x" + size + "\"/></operation>");
+		ps.println("  </module>");
+		ps.println("  <module autostart=\"true\" kind=\"action-scheduler\" name=\"scheduler\">");
+		ps.println("    <module kind=\"if\">");
+		ps.println("      <module decision=\"ready\" kind=\"test\">");
+		ps.println("        <operation kind=\"pinStatus\" portName=\"A\">"
+				+ "<port dir=\"out\" size=\"1\" source=\"ready\" typeName=\"bool\"/>"
+				+ "</operation>");
+		ps.println("      </module>");
+		ps.println("      <module kind=\"then\">");
+		ps.println("        <operation kind=\"taskCall\" target=\"step\"/>");
+		ps.println("      </module>");
+		ps.println("    </module>");
+		ps.println("  </module>");
+		ps.println("</design>");
+		ps.close();
+		return file;
+	}
+
+}
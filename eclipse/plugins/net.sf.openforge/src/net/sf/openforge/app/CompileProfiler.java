@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.app;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sf.openforge.lim.Component;
+import net.sf.openforge.lim.FilteredVisitor;
+import net.sf.openforge.lim.Visitable;
+
+/**
+ * CompileProfiler records, for each phase of {@link LIMCompiler#processLim}
+ * and for each {@link net.sf.openforge.optimize.Optimization} run by the
+ * optimizer, the wall clock time, the CPU time and the bytes allocated by the
+ * compiling thread. Phases also record the number of LIM components in the
+ * design before and after they ran.
+ * <p>
+ * The worker threads which run part of the compilation (the parallel
+ * optimizations and the Verilog translation) report their own CPU time and
+ * allocations through {@link #endWorker}. Their work is added to the phase or
+ * the optimization during which it completed, so the CPU time of a phase may
+ * be larger than its wall clock time.
+ * <p>
+ * The profiler belongs to the {@link CompilationContext} and does nothing
+ * until it is enabled, which {@link LIMCompiler} does when the -Xprofile
+ * option is set. The results are written as CSV and JSON by
+ * {@link #writeCsv} and {@link #writeJson}.
+ */
+public class CompileProfiler {
+
+	private static final ThreadMXBean threadBean = ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), or null
+	 * if the running VM does not provide it.
+	 */
+	private static final Method allocatedBytesMethod = findAllocatedBytesMethod();
+
+	private boolean enabled = false;
+
+	private final Map<String, Stat> phases = new LinkedHashMap<String, Stat>();
+
+	private final Map<String, Stat> optimizations = new LinkedHashMap<String, Stat>();
+
+	/** The CPU time reported by the worker threads so far **/
+	private long workerCpu = 0;
+
+	/** The bytes allocated by the worker threads so far **/
+	private long workerAllocated = 0;
+
+	/**
+	 * A point in time of the current thread, as returned by {@link #begin}.
+	 */
+	public static class Sample {
+		private final long wall;
+		private final long cpu;
+		private final long allocated;
+		private final long workerCpu;
+		private final long workerAllocated;
+
+		private Sample(long workerCpu, long workerAllocated) {
+			wall = System.nanoTime();
+			cpu = cpuTime();
+			allocated = allocatedBytes();
+			this.workerCpu = workerCpu;
+			this.workerAllocated = workerAllocated;
+		}
+	}
+
+	/**
+	 * The accumulated measurements of a phase or an optimization.
+	 */
+	public static class Stat {
+		private final String name;
+		private int runs = 0;
+		private int modifications = 0;
+		private long wall = 0;
+		private long cpu = 0;
+		private long allocated = 0;
+		private int nodesBefore = -1;
+		private int nodesAfter = -1;
+
+		private Stat(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getRuns() {
+			return runs;
+		}
+
+		public int getModifications() {
+			return modifications;
+		}
+
+		/** The wall clock time, in nanoseconds */
+		public long getWallTime() {
+			return wall;
+		}
+
+		/** The CPU time, in nanoseconds, or -1 if not supported */
+		public long getCpuTime() {
+			return cpu;
+		}
+
+		/** The allocated bytes, or -1 if not supported */
+		public long getAllocatedBytes() {
+			return allocated;
+		}
+
+		/** The number of components before the first run, or -1 */
+		public int getNodesBefore() {
+			return nodesBefore;
+		}
+
+		/** The number of components after the last run, or -1 */
+		public int getNodesAfter() {
+			return nodesAfter;
+		}
+
+		private void add(Sample start, Sample end) {
+			runs++;
+			wall += end.wall - start.wall;
+			if (cpu < 0 || end.cpu < 0 || end.workerCpu < 0) {
+				cpu = -1;
+			} else {
+				cpu += end.cpu - start.cpu + end.workerCpu - start.workerCpu;
+			}
+			if (allocated < 0 || end.allocated < 0 || end.workerAllocated < 0) {
+				allocated = -1;
+			} else {
+				allocated += end.allocated - start.allocated
+						+ end.workerAllocated - start.workerAllocated;
+			}
+		}
+	}
+
+	/**
+	 * Enables or disables the profiler and discards the results recorded so
+	 * far.
+	 */
+	public synchronized void reset(boolean enabled) {
+		this.enabled = enabled;
+		phases.clear();
+		optimizations.clear();
+		workerCpu = 0;
+		workerAllocated = 0;
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the current point in time of this thread, or null if the
+	 * profiler is disabled.
+	 */
+	public synchronized Sample begin() {
+		return enabled ? sample() : null;
+	}
+
+	/**
+	 * Adds the CPU time and the allocations of the current worker thread since
+	 * the given sample to the measurements of the compiling thread.
+	 * 
+	 * @param start
+	 *            the value returned by {@link #begin} on this worker thread,
+	 *            may be null
+	 */
+	public synchronized void endWorker(Sample start) {
+		if (start == null || !enabled) {
+			return;
+		}
+		Sample end = sample();
+		if (workerCpu >= 0) {
+			workerCpu = end.cpu < 0 ? -1 : workerCpu + end.cpu - start.cpu;
+		}
+		if (workerAllocated >= 0) {
+			workerAllocated = end.allocated < 0 ? -1 : workerAllocated
+					+ end.allocated - start.allocated;
+		}
+	}
+
+	/**
+	 * Charges the time since the given sample to the named phase.
+	 * 
+	 * @param start
+	 *            the value returned by {@link #begin}, may be null
+	 * @param nodesBefore
+	 *            the number of components before the phase
+	 * @param nodesAfter
+	 *            the number of components after the phase
+	 */
+	public synchronized void endPhase(String name, Sample start,
+			int nodesBefore, int nodesAfter) {
+		if (start == null || !enabled) {
+			return;
+		}
+		Stat stat = getStat(phases, name);
+		stat.add(start, sample());
+		if (stat.nodesBefore < 0) {
+			stat.nodesBefore = nodesBefore;
+		}
+		stat.nodesAfter = nodesAfter;
+	}
+
+	/**
+	 * Charges the time since the given sample to the named optimization.
+	 * 
+	 * @param start
+	 *            the value returned by {@link #begin}, may be null
+	 * @param modified
+	 *            true if this run modified the design
+	 */
+	public synchronized void endOptimization(String name, Sample start,
+			boolean modified) {
+		if (start == null || !enabled) {
+			return;
+		}
+		Stat stat = getStat(optimizations, name);
+		stat.add(start, sample());
+		if (modified) {
+			stat.modifications++;
+		}
+	}
+
+	public synchronized Map<String, Stat> getPhases() {
+		return new LinkedHashMap<String, Stat>(phases);
+	}
+
+	public synchronized Map<String, Stat> getOptimizations() {
+		return new LinkedHashMap<String, Stat>(optimizations);
+	}
+
+	/**
+	 * Counts the components reachable from the given target.
+	 */
+	public static int countNodes(Visitable target) {
+		final int[] count = new int[1];
+		target.accept(new FilteredVisitor() {
+			@Override
+			public void filterAny(Component c) {
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+
+	/**
+	 * Writes one line per phase and per optimization.
+	 */
+	public synchronized void writeCsv(PrintStream ps) {
+		ps.println("kind,name,runs,modifications,wall_ms,cpu_ms,allocated_bytes,nodes_before,nodes_after");
+		for (Stat stat : phases.values()) {
+			ps.println("phase," + csvLine(stat));
+		}
+		for (Stat stat : optimizations.values()) {
+			ps.println("optimization," + csvLine(stat));
+		}
+	}
+
+	/**
+	 * Writes the phases and the optimizations as a JSON object.
+	 */
+	public synchronized void writeJson(PrintStream ps, String design) {
+		ps.println("{");
+		ps.println("  \"design\": " + quote(design) + ",");
+		ps.println("  \"phases\": [");
+		writeJsonStats(ps, phases, true);
+		ps.println("  ],");
+		ps.println("  \"optimizations\": [");
+		writeJsonStats(ps, optimizations, false);
+		ps.println("  ]");
+		ps.println("}");
+	}
+
+	private static void writeJsonStats(PrintStream ps, Map<String, Stat> stats,
+			boolean isPhase) {
+		int i = 0;
+		for (Stat stat : stats.values()) {
+			StringBuilder sb = new StringBuilder("    {");
+			sb.append("\"name\": ").append(quote(stat.name));
+			sb.append(", \"runs\": ").append(stat.runs);
+			if (!isPhase) {
+				sb.append(", \"modifications\": ").append(stat.modifications);
+			}
+			sb.append(", \"wallMs\": ").append(millis(stat.wall));
+			sb.append(", \"cpuMs\": ").append(millis(stat.cpu));
+			sb.append(", \"allocatedBytes\": ").append(stat.allocated);
+			if (isPhase) {
+				sb.append(", \"nodesBefore\": ").append(stat.nodesBefore);
+				sb.append(", \"nodesAfter\": ").append(stat.nodesAfter);
+			}
+			sb.append(++i < stats.size() ? "}," : "}");
+			ps.println(sb);
+		}
+	}
+
+	private static String csvLine(Stat stat) {
+		String name = stat.name.replace('"', '\'');
+		if (name.indexOf(',') >= 0) {
+			name = "\"" + name + "\"";
+		}
+		return name + "," + stat.runs + "," + stat.modifications + ","
+				+ millis(stat.wall) + "," + millis(stat.cpu) + ","
+				+ stat.allocated + "," + stat.nodesBefore + ","
+				+ stat.nodesAfter;
+	}
+
+	private static String millis(long nanos) {
+		if (nanos < 0) {
+			return "-1";
+		}
+		return String.format(Locale.US, "%.3f", nanos / 1e6);
+	}
+
+	private static String quote(String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private Sample sample() {
+		return new Sample(workerCpu, workerAllocated);
+	}
+
+	private static Stat getStat(Map<String, Stat> stats, String name) {
+		Stat stat = stats.get(name);
+		if (stat == null) {
+			stat = new Stat(name);
+			stats.put(name, stat);
+		}
+		return stat;
+	}
+
+	private static long cpuTime() {
+		if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+			return -1;
+		}
+		return threadBean.getCurrentThreadCpuTime();
+	}
+
+	private static long allocatedBytes() {
+		if (allocatedBytesMethod == null) {
+			return -1;
+		}
+		try {
+			return (Long) allocatedBytesMethod.invoke(threadBean, Thread
+					.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private static Method findAllocatedBytesMethod() {
+		try {
+			Class<?> beanClass = Class
+					.forName("com.sun.management.ThreadMXBean");
+			if (!beanClass.isInstance(threadBean)) {
+				return null;
+			}
+			Method supported = beanClass
+					.getMethod("isThreadAllocatedMemorySupported");
+			if (!(Boolean) supported.invoke(threadBean)) {
+				return null;
+			}
+			return beanClass.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -56,6 +56,18 @@ public abstract class Engine extends Stoppable.Adapter implements Runnable {
 
 	private final Set<JobListener> listeners = new HashSet<JobListener>();
 	private final GenericJob gj;
+
+	/**
+	 * The state of this compilation which used to be kept in static fields
+	 * (IDs, IPCores, pin simulation data, entry methods and RunTime values).
+	 */
+	private final CompilationContext context = new CompilationContext();
+
+	/** The LIMCompiler which processed the design, null until then */
+	private LIMCompiler limCompiler;
+
+	/** The time spent in buildLim, in nanoseconds */
+	private long buildLimTime;
 	protected JobHandler jobHandler;
 	protected volatile int status = STOPPED;
 
@@ -77,6 +89,15 @@ public abstract class Engine extends Stoppable.Adapter implements Runnable {
 		return gj;
 	}
 
+	/**
+	 * Get the compilation context owned by this Engine.
+	 * 
+	 * @return the CompilationContext of this Engine
+	 */
+	public CompilationContext getContext() {
+		return context;
+	}
+
 	/**
 	 * Gets the design produced by this Engine. May be null, or the result of
 	 * any stage of compilation.
@@ -85,6 +106,23 @@ public abstract class Engine extends Stoppable.Adapter implements Runnable {
 		return design;
 	}
 
+	/**
+	 * Gets the LIMCompiler which processed the design, from which the time
+	 * spent in each phase can be retrieved. Null if the design has not been
+	 * processed.
+	 */
+	public LIMCompiler getLimCompiler() {
+		return limCompiler;
+	}
+
+	/**
+	 * Gets the time spent building the design in the last {@link #begin}, in
+	 * nanoseconds.
+	 */
+	public long getBuildLimTime() {
+		return buildLimTime;
+	}
+
 	/**
 	 * If this returns a non-null Design object, the lim will be processed.
 	 * 
@@ -107,13 +145,16 @@ public abstract class Engine extends Stoppable.Adapter implements Runnable {
 
 			breathe();
 
+			long buildStart = System.nanoTime();
 			design = buildLim();
+			buildLimTime = System.nanoTime() - buildStart;
 
 			breathe();
 
 			if (design != null) {
 				long t0 = System.currentTimeMillis();
-				new LIMCompiler().processLim(design);
+				limCompiler = new LIMCompiler();
+				limCompiler.processLim(design);
 				long t1 = System.currentTimeMillis();
 				System.out.println("LIM Compiled in: "
 						+ ((float) (t1 - t0) / (float) 1000) + "s\n");
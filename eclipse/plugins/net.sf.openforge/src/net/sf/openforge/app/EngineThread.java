@@ -20,101 +20,66 @@
  */
 package net.sf.openforge.app;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * A EngineThread is used to interact with a thread or runnable object. It also
  * has static methods to manipulate the mapping of Thread :: Job [1 :: 1]
+ * <p>
+ * The Engine of a thread is not inherited by the threads it creates, so that
+ * long lived threads (pool workers, timers) never keep a stale Engine for a
+ * later compilation. Tasks submitted to an executor by an Engine must be
+ * wrapped with {@link #bind(Runnable)} or {@link #bind(Callable)} so that
+ * they run, and allocate their IDs, in the context of that Engine whatever
+ * the worker thread.
  * 
  * @author <a href="cschanck@xilinx.com">CRSS</a>
  * @version $Id: EngineThread.java 2 2005-06-09 20:00:48Z imiller $
  */
 public class EngineThread {
-	private static Map<Thread, Engine> threadToJob = new HashMap<Thread, Engine>();
+	private static final ThreadLocal<Engine> threadToJob = new ThreadLocal<Engine>();
 
 	// statc class -- don't create any instances!
 	private EngineThread() {
 	}
 
 	/**
-	 * Add the relationship of a thread to an engine. This will overwrite a
-	 * previously added relationship for this thread.
-	 * 
-	 * @param thread
-	 *            a value of type 'Thread'
-	 * @param engine
-	 *            a value of type 'Engine'
-	 */
-	public static void addThread(Thread thread, Engine engine) {
-		synchronized (threadToJob) {
-			threadToJob.put(thread, engine);
-		}
-	}
-
-	/**
-	 * Adds a relationship from the current thread to the specified engine
+	 * Adds a relationship from the current thread to the specified engine.
+	 * This will overwrite a previously added relationship for this thread.
 	 * 
 	 * @param engine
 	 *            a value of type 'Engine'
 	 */
 	public static void addThread(Engine engine) {
-		addThread(Thread.currentThread(), engine);
+		threadToJob.set(engine);
 	}
 
 	/**
-	 * Remove the relationship of a thread to an engine.
-	 * 
-	 * @param thread
-	 *            a value of type 'Thread'
+	 * Remove the relationship of the current thread to an engine.
 	 */
-	public static void removeThread(Thread thread) {
-		synchronized (threadToJob) {
-			threadToJob.remove(thread);
-		}
+	public static void removeThread() {
+		threadToJob.remove();
 	}
 
 	/**
-	 * Remove the relationship of a thread to an engine.
+	 * Remove the relationship of the current thread to the given engine.
 	 * 
-	 * @param thread
-	 *            a value of type 'Thread'
+	 * @param engine
+	 *            a value of type 'Engine'
 	 */
 	public static void removeJob(Engine engine) {
-		synchronized (threadToJob) {
-			for (Iterator<Entry<Thread, Engine>> it = threadToJob.entrySet()
-					.iterator(); it.hasNext();) {
-				Entry<Thread, Engine> entry = it.next();
-				Engine e = entry.getValue();
-				if (e.equals(engine))
-					it.remove();
-			}
+		if (engine.equals(threadToJob.get())) {
+			threadToJob.remove();
 		}
 	}
 
 	/**
-	 * check if a thread has a known engine
+	 * check if the current thread has a known engine
 	 * 
-	 * @param thread
-	 *            a value of type 'Thread'
 	 * @return a value of type 'boolean'
 	 */
-	public static final boolean isKnownThread(Thread thread) {
-
-		return threadToJob.containsKey(thread);
-	}
-
-	/**
-	 * Get the Engine for specific engine
-	 * 
-	 * @param thread
-	 *            a value of type 'Thread'
-	 * @return a value of type 'Engine'
-	 */
-	public static final Engine getEngine(Thread thread) {
-		return threadToJob.get(thread);
+	public static final boolean isKnownThread() {
+		return threadToJob.get() != null;
 	}
 
 	/**
@@ -122,12 +87,11 @@ public class EngineThread {
 	 * 
 	 */
 	public static final Engine getEngine() {
-		return getEngine(Thread.currentThread());
+		return threadToJob.get();
 	}
 
-	public static final GenericJob getGenericJob(Thread t) {
-
-		Engine e = getEngine(t);
+	public static final GenericJob getGenericJob() {
+		Engine e = getEngine();
 
 		if (e != null) {
 
@@ -137,8 +101,64 @@ public class EngineThread {
 		return null;
 	}
 
-	public static final GenericJob getGenericJob() {
-		return getGenericJob(Thread.currentThread());
+	/**
+	 * Wraps a task so that it runs with the Engine of the calling thread,
+	 * whatever the thread executing it.
+	 * 
+	 * @param task
+	 *            a value of type 'Runnable'
+	 * @return a Runnable bound to the current Engine
+	 */
+	public static Runnable bind(final Runnable task) {
+		final Engine engine = getEngine();
+		return new Runnable() {
+			@Override
+			public void run() {
+				final Engine previous = threadToJob.get();
+				threadToJob.set(engine);
+				try {
+					task.run();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wraps a task so that it runs with the Engine of the calling thread,
+	 * whatever the thread executing it.
+	 * 
+	 * @param task
+	 *            a value of type 'Callable'
+	 * @return a Callable bound to the current Engine
+	 */
+	public static <T> Callable<T> bind(final Callable<T> task) {
+		final Engine engine = getEngine();
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				final Engine previous = threadToJob.get();
+				threadToJob.set(engine);
+				try {
+					return task.call();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gives back to the current thread the Engine it had before running a
+	 * bound task.
+	 */
+	private static void restore(Engine previous) {
+		if (previous == null) {
+			threadToJob.remove();
+		} else {
+			threadToJob.set(previous);
+		}
 	}
 
 	public static void info(Object token, String s) {
@@ -22,6 +22,8 @@
 package net.sf.openforge.app;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -108,6 +110,14 @@ public class ForgeFileHandler {
 		return this.fileMap.containsKey(key);
 	}
 
+	/**
+	 * Returns all the Files registered with this handler, these are all the
+	 * outputs (and output directories) of the compilation.
+	 */
+	public Collection<File> getRegisteredFiles() {
+		return new ArrayList<File>(fileMap.values());
+	}
+
 	/**
 	 * Returns a string of the form <i>baseName</i>postFix.suffix
 	 */
@@ -30,9 +30,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -42,8 +43,8 @@ import net.sf.openforge.backend.hdl.TestBenchEngine;
 import net.sf.openforge.backend.hdl.VerilogTranslateEngine;
 import net.sf.openforge.backend.sysgen.SysgenSimApi;
 import net.sf.openforge.backend.timedc.CycleCTranslateEngine;
+import net.sf.openforge.backend.timedc.CycleSimEngine;
 import net.sf.openforge.forge.api.internal.Core;
-import net.sf.openforge.forge.api.runtime.RunTime;
 import net.sf.openforge.forge.api.sim.pin.PinSimData;
 import net.sf.openforge.lim.Call;
 import net.sf.openforge.lim.CodeLabel;
@@ -77,9 +78,60 @@ public class LIMCompiler {
 
 	private File reportDirectory;
 
+	/** The time spent in each phase of processLim, in nanoseconds */
+	private final Map<String, Long> phaseTimes = new LinkedHashMap<String, Long>();
+
+	/** The start of the current phase */
+	private long phaseStart;
+
+	/** The profiler of the compilation, and its sample of the current phase */
+	private CompileProfiler profiler;
+	private CompileProfiler.Sample phaseSample;
+
+	/** The number of components when the current phase started */
+	private int phaseNodes;
+
 	public LIMCompiler() {
 	}
 
+	/**
+	 * Returns the wall clock time spent in each phase of the last
+	 * {@link #processLim}, in nanoseconds, in the order the phases ran.
+	 */
+	public Map<String, Long> getPhaseTimes() {
+		return Collections.unmodifiableMap(phaseTimes);
+	}
+
+	/**
+	 * Starts a new phase, ignoring the time spent since the last one ended.
+	 */
+	private void startPhase(Design design) {
+		if (profiler.isEnabled()) {
+			phaseNodes = CompileProfiler.countNodes(design);
+		}
+		phaseSample = profiler.begin();
+		phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase, charging its time to the given name, and starts
+	 * the next one. The time spent counting the components of the design for
+	 * the profiler is not charged to any phase.
+	 */
+	private void endPhase(String name, Design design) {
+		long now = System.nanoTime();
+		Long time = phaseTimes.get(name);
+		phaseTimes.put(name, (time == null ? 0 : time) + now - phaseStart);
+		if (profiler.isEnabled()) {
+			int nodes = CompileProfiler.countNodes(design);
+			profiler.endPhase(name, phaseSample, phaseNodes, nodes);
+			phaseNodes = nodes;
+			phaseSample = profiler.begin();
+			now = System.nanoTime();
+		}
+		phaseStart = now;
+	}
+
 	/**
 	 * Compiles/Translates/etc a LIM design
 	 * 
@@ -99,10 +151,19 @@ public class LIMCompiler {
 		} else {
 			cycleCEngine = null;
 		}
+		final CycleSimEngine cycleSimEngine;
+		if (gj.getUnscopedBooleanOptionValue(OptionRegistry.XCYCLE_SIM)) {
+			cycleSimEngine = new CycleSimEngine();
+		} else {
+			cycleSimEngine = null;
+		}
 
 		if (cycleCEngine != null) {
 			cycleCEngine.initEnvironment();
 		}
+		if (cycleSimEngine != null) {
+			cycleSimEngine.initEnvironment();
+		}
 		for (OutputEngine engine : outputEngines) {
 			engine.initEnvironment();
 		}
@@ -117,11 +178,17 @@ public class LIMCompiler {
 
 		Engine.breathe();
 
+		phaseTimes.clear();
+		profiler = CompilationContext.current().getProfiler();
+		profiler.reset(gj.getUnscopedBooleanOptionValue(OptionRegistry.XPROFILE));
+		startPhase(design);
+
 		/*
 		 * Optimize.
 		 */
 		Optimizer optimizer = new Optimizer();
 		design = (Design) optimizer.optimize(design);
+		endPhase("optimize", design);
 
 		Engine.breathe();
 
@@ -129,6 +196,7 @@ public class LIMCompiler {
 		 * Schedule.
 		 */
 		design = Scheduler.schedule(design);
+		endPhase("schedule", design);
 
 		Engine.breathe();
 
@@ -137,6 +205,7 @@ public class LIMCompiler {
 		//
 		final ThroughputAnalyzer throughputAnalyzer = new ThroughputAnalyzer();
 		design.accept(throughputAnalyzer);
+		endPhase("throughput", design);
 
 		Engine.breathe();
 
@@ -152,6 +221,7 @@ public class LIMCompiler {
 		LimDRC ldrc = new LimDRC();
 		design.accept(ldrc);
 		ldrc.dumpFailures();
+		endPhase("drc", design);
 
 		Engine.breathe();
 
@@ -160,18 +230,27 @@ public class LIMCompiler {
 		 * relies on a well-connected LIM graph.
 		 */
 		net.sf.openforge.lim.naming.LIMLogicalNamer.setNames(design, false);
+		endPhase("naming", design);
 
 		Engine.breathe();
 
 		try {
 			if (cycleCEngine != null) {
 				cycleCEngine.translate(design);
+				endPhase(cycleCEngine.getOutputPhaseId(), design);
 			}
 		} catch (IOException ioe) {
 			gj.fatalError("Error generating files during "
 					+ cycleCEngine.getOutputPhaseId() + "\n" + ioe);
 		}
 
+		// The simulation is built from the design as the C model sees it,
+		// before the pass through components are removed.
+		if (cycleSimEngine != null) {
+			cycleSimEngine.translate(design);
+			endPhase(cycleSimEngine.getOutputPhaseId(), design);
+		}
+
 		Engine.breathe();
 
 		if (gj.getUnscopedBooleanOptionValue(OptionRegistry.SHOULD_SIMULATE)) {
@@ -185,12 +264,16 @@ public class LIMCompiler {
 		// Moved here from the translate method so that reporting
 		// correctly ignores these pass through.
 		design.accept(new PassThroughComponentRemover());
+		endPhase("pass through removal", design);
 
 		if (gj.getUnscopedBooleanOptionValue(OptionRegistry.REPORT)) {
+			startPhase(design);
 			report(design, throughputAnalyzer);
+			endPhase("report", design);
 			Engine.breathe();
 		}
 
+		startPhase(design);
 		if (!Core.isEmpty()) {
 			IPCoreInstantiator ip = new IPCoreInstantiator(design);
 			ip.makeIPCore();
@@ -199,6 +282,7 @@ public class LIMCompiler {
 		for (OutputEngine engine : outputEngines) {
 			try {
 				engine.translate(design);
+				endPhase(engine.getOutputPhaseId(), design);
 			} catch (IOException ioe) {
 				gj.fatalError("Error generating files during "
 						+ engine.getOutputPhaseId());
@@ -207,6 +291,10 @@ public class LIMCompiler {
 
 		reportDesignCharacteristics(design);
 
+		if (profiler.isEnabled()) {
+			writeProfile(design);
+		}
+
 		if (gj.getUnscopedBooleanOptionValue(OptionRegistry.ENABLE_XFLOW)) {
 			xflow(design);
 			Engine.breathe();
@@ -215,7 +303,15 @@ public class LIMCompiler {
 		// LXGraph.graphTo(design, "/tmp/" +design.showIDGlobal()+"_graph.dot");
 		GenericTestbenchWriter test = new GenericTestbenchWriter(design);
 		test.genTestbench();
-		clearAPIRuntime();
+
+		// Run after all the test vectors have been written.
+		if (cycleSimEngine != null) {
+			try {
+				cycleSimEngine.simulate();
+			} catch (IOException ioe) {
+				gj.error("Error running the cycle simulation\n" + ioe);
+			}
+		}
 
 		return design;
 	}
@@ -276,39 +372,6 @@ public class LIMCompiler {
 		return engines;
 	}
 
-	private void clearAPIRuntime() {
-		// clear out the api RunTime class in case this is a multi
-		// file compilation
-		try {
-			Class<RunTime> runtime = net.sf.openforge.forge.api.runtime.RunTime.class;
-
-			// init all fields
-			// FIXME
-			@SuppressWarnings("rawtypes")
-			Class[] args = { java.lang.Integer.TYPE, java.io.File.class,
-					java.io.File.class, java.io.File.class };
-
-			Method method = runtime.getDeclaredMethod("setValues", args);
-
-			// allow ourselves to call the private method
-			method.setAccessible(true);
-
-			Object[] params = new Object[4];
-
-			params[0] = new Integer(0);
-			params[1] = null;
-			params[2] = null;
-			params[3] = null;
-
-			method.invoke(null, params);
-		} catch (Throwable t) {
-			// Fail silently. We no longer use/maintain the API
-			// classes. Message removed 03/24/2005 IDM.
-			// EngineThread.getGenericJob().error("internal problem configuring RunTime api class: "
-			// + t.getMessage());
-		}
-	}
-
 	/**
 	 * Reports the user the latency and control characteristics of each top
 	 * level module.
@@ -410,7 +473,8 @@ public class LIMCompiler {
 			this.reportDirectory.mkdirs();
 		}
 
-		final File resourceReportFile = new File(this.reportDirectory,
+		final File resourceReportFile = gj.getFileHandler().registerFile(
+				new ForgeFileKey("resource report"), this.reportDirectory,
 				design.showIDLogical() + "_resource.rpt");
 		gj.info("writing " + resourceReportFile.getAbsolutePath());
 		gj.inc();
@@ -422,7 +486,8 @@ public class LIMCompiler {
 		closeFile(resourceReportFile, reportFos);
 		gj.dec();
 
-		final File throughputReportFile = new File(this.reportDirectory,
+		final File throughputReportFile = gj.getFileHandler().registerFile(
+				new ForgeFileKey("throughput report"), this.reportDirectory,
 				design.showIDLogical() + "_throughput.rpt");
 		gj.info("writing " + throughputReportFile.getAbsolutePath());
 		gj.inc();
@@ -432,9 +497,10 @@ public class LIMCompiler {
 		gj.dec();
 
 		// output FPGA resource utilization report
-		final File resourceUtilizationReportFile = new File(
-				this.reportDirectory, design.showIDLogical()
-						+ "_ResourceUtilizationReport.html");
+		final File resourceUtilizationReportFile = gj.getFileHandler()
+				.registerFile(new ForgeFileKey("resource utilization report"),
+						this.reportDirectory,
+						design.showIDLogical() + "_ResourceUtilizationReport.html");
 		gj.info("writing " + resourceUtilizationReportFile.getAbsolutePath());
 		gj.inc();
 		FileOutputStream resourceUtilizationFos = openFile(resourceUtilizationReportFile);
@@ -445,7 +511,8 @@ public class LIMCompiler {
 		gj.dec();
 
 		// output XML resource report
-		final File reportXmlFile = new File(this.reportDirectory,
+		final File reportXmlFile = gj.getFileHandler().registerFile(
+				new ForgeFileKey("xml resource report"), this.reportDirectory,
 				design.showIDLogical() + ".xml");
 		gj.info("writing " + reportXmlFile.getAbsolutePath());
 		gj.inc();
@@ -470,6 +537,34 @@ public class LIMCompiler {
 		// Job.dec();
 	}
 
+	/**
+	 * Writes the per-phase and per-optimization profile of this compilation
+	 * to the report directory, as CSV and as JSON.
+	 */
+	private void writeProfile(Design design) {
+		GenericJob gj = EngineThread.getGenericJob();
+		if (!this.reportDirectory.exists()) {
+			this.reportDirectory.mkdirs();
+		}
+
+		final File csvFile = gj.getFileHandler().registerFile(
+				new ForgeFileKey("profile csv"), this.reportDirectory,
+				design.showIDLogical() + "_profile.csv");
+		gj.info("writing " + csvFile.getAbsolutePath());
+		final FileOutputStream csvFos = openFile(csvFile);
+		profiler.writeCsv(new PrintStream(csvFos, true));
+		closeFile(csvFile, csvFos);
+
+		final File jsonFile = gj.getFileHandler().registerFile(
+				new ForgeFileKey("profile json"), this.reportDirectory,
+				design.showIDLogical() + "_profile.json");
+		gj.info("writing " + jsonFile.getAbsolutePath());
+		final FileOutputStream jsonFos = openFile(jsonFile);
+		profiler.writeJson(new PrintStream(jsonFos, true),
+				design.showIDLogical());
+		closeFile(jsonFile, jsonFos);
+	}
+
 	private void xflow(Design design) {
 		GenericJob gj = EngineThread.getGenericJob();
 		gj.info("Running xflow ...");
@@ -484,6 +484,31 @@ public class OptionRegistry {
 	public static final OptionKey XDETAILED_REPORT = new OptionKey(PREFIX
 			+ "Xdetailed_report", "Xdetailed_report",
 			"Adds extra sizing and constant information to resource report");
+
+	public static final OptionKey XXLIM_NATIVE = new OptionKey(PREFIX
+			+ "Xxlim_native", "Xxlim_native",
+			"Run the attribute rewriting XLIM to SLIM stages natively");
+	public static final OptionKey XXLIM_DIFF = new OptionKey(PREFIX
+			+ "Xxlim_diff", "Xxlim_diff",
+			"Lower XLIM to SLIM with both pipelines and report any difference");
+	public static final OptionKey XPROFILE = new OptionKey(PREFIX
+			+ "Xprofile", "Xprofile",
+			"Write a per-phase time, allocation and optimization profile with the reports");
+	public static final OptionKey XOPTIMIZE_PARALLEL = new OptionKey(PREFIX
+			+ "Xoptimize_parallel", "Xoptimize_parallel",
+			"Run the task local optimizations of the tasks in parallel");
+	public static final OptionKey XOPTIMIZE_THREADS = new OptionKey(PREFIX
+			+ "Xoptimize_threads", "Xoptimize_threads",
+			"Number of threads of the parallel optimizations, 0 for one per processor");
+	public static final OptionKey XSTREAM_VERILOG = new OptionKey(PREFIX
+			+ "Xstream_verilog", "Xstream_verilog",
+			"Write each Verilog module as soon as it is translated");
+	public static final OptionKey XTRANSLATE_PARALLEL = new OptionKey(PREFIX
+			+ "Xtranslate_parallel", "Xtranslate_parallel",
+			"Translate the Verilog modules of the tasks in parallel");
+	public static final OptionKey XCYCLE_SIM = new OptionKey(PREFIX
+			+ "Xcycle_sim", "Xcycle_sim",
+			"Simulate the scheduled design cycle by cycle and check it against the test vectors");
 	//
 	// Any 'extra' search labels that are needed are defined here.
 	//
@@ -583,6 +608,14 @@ public class OptionRegistry {
 		OPTION_KEYS.add(XGCCRAW);
 		OPTION_KEYS.add(XNOGCC_COMP);
 		OPTION_KEYS.add(XDETAILED_REPORT);
+		OPTION_KEYS.add(XXLIM_NATIVE);
+		OPTION_KEYS.add(XXLIM_DIFF);
+		OPTION_KEYS.add(XPROFILE);
+		OPTION_KEYS.add(XOPTIMIZE_PARALLEL);
+		OPTION_KEYS.add(XOPTIMIZE_THREADS);
+		OPTION_KEYS.add(XSTREAM_VERILOG);
+		OPTION_KEYS.add(XTRANSLATE_PARALLEL);
+		OPTION_KEYS.add(XCYCLE_SIM);
 		OPTION_KEYS.add(XNOGCC_PRE);
 		OPTION_KEYS.add(XGCCANSI);
 		OPTION_KEYS.add(CCOMPILECPPFLAGS);
@@ -905,6 +938,38 @@ public class OptionRegistry {
 				false, // default value
 				true // hidden?
 				));
+		defaults.put(XXLIM_NATIVE, new OptionBoolean(XXLIM_NATIVE, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XXLIM_DIFF, new OptionBoolean(XXLIM_DIFF, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XPROFILE, new OptionBoolean(XPROFILE, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XOPTIMIZE_PARALLEL, new OptionBoolean(XOPTIMIZE_PARALLEL, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XOPTIMIZE_THREADS, new OptionInt(XOPTIMIZE_THREADS, // key
+				0, // default value
+				true // hidden?
+				));
+		defaults.put(XSTREAM_VERILOG, new OptionBoolean(XSTREAM_VERILOG, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XTRANSLATE_PARALLEL, new OptionBoolean(XTRANSLATE_PARALLEL, // key
+				false, // default value
+				true // hidden?
+				));
+		defaults.put(XCYCLE_SIM, new OptionBoolean(XCYCLE_SIM, // key
+				false, // default value
+				true // hidden?
+				));
 		defaults.put(XNOGCC_PRE, new OptionBoolean(XNOGCC_PRE, // key
 				false, // default value
 				true // hidden?
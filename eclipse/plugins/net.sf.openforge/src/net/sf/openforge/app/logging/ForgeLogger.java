@@ -86,7 +86,7 @@ public class ForgeLogger {
 		allocatedHandlers.put(key, h);
 	}
 
-	public static Handler getStreamHandler(OutputStream os) {
+	public static synchronized Handler getStreamHandler(OutputStream os) {
 		Handler h = getCachedHandler(os);
 		if (h == null) {
 			h = new ForgeStreamHandler(os, new ForgeLogFormatter());
@@ -95,7 +95,7 @@ public class ForgeLogger {
 		return h;
 	}
 
-	public static Handler getFileOutputHandler(String filename) {
+	public static synchronized Handler getFileOutputHandler(String filename) {
 		Handler h = getCachedHandler(filename);
 		if (h == null) {
 			try {
@@ -21,9 +21,11 @@
 
 package net.sf.openforge.backend.hdl;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 
 import net.sf.openforge.app.EngineThread;
 import net.sf.openforge.app.ForgeFileHandler;
@@ -33,6 +35,7 @@ import net.sf.openforge.app.OptionRegistry;
 import net.sf.openforge.backend.OutputEngine;
 import net.sf.openforge.backend.edk.ForgeCoreDescriptor;
 import net.sf.openforge.lim.Design;
+import net.sf.openforge.util.IndentWriter;
 import net.sf.openforge.verilog.translate.VerilogNaming;
 import net.sf.openforge.verilog.translate.VerilogTranslator;
 
@@ -137,15 +140,42 @@ public class VerilogTranslateEngine implements OutputEngine {
 		// where the translator throws an exception.
 		final boolean suppressAppModule = gj
 				.getUnscopedBooleanOptionValue(OptionRegistry.SUPPRESS_APP_MODULE);
-		VerilogTranslator vt = new VerilogTranslator(design, suppressAppModule);
+		final boolean parallel = gj
+				.getUnscopedBooleanOptionValue(OptionRegistry.XTRANSLATE_PARALLEL);
+		final VerilogTranslator vt;
+		if (parallel
+				|| gj.getUnscopedBooleanOptionValue(OptionRegistry.XSTREAM_VERILOG)) {
+			// The modules are written while they are translated, so the
+			// file has to be opened first. It is removed if the
+			// translator fails. The parallel translation always streams,
+			// the text of each task is printed by its worker.
+			if (!vFile.getParentFile().exists()) {
+				vFile.getParentFile().mkdirs();
+			}
+			final BufferedWriter vWriter = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(vFile)));
+			try {
+				vt = new VerilogTranslator(design, suppressAppModule, vWriter,
+						parallel);
+			} catch (RuntimeException e) {
+				vWriter.close();
+				vFile.delete();
+				throw e;
+			}
+			final IndentWriter ipWriter = new IndentWriter(vWriter);
+			vt.writeIPCore(ipWriter);
+			ipWriter.close();
+		} else {
+			vt = new VerilogTranslator(design, suppressAppModule);
 
-		if (!vFile.getParentFile().exists()) {
-			vFile.getParentFile().mkdirs();
-		}
-		FileOutputStream vFos = new FileOutputStream(vFile);
+			if (!vFile.getParentFile().exists()) {
+				vFile.getParentFile().mkdirs();
+			}
+			FileOutputStream vFos = new FileOutputStream(vFile);
 
-		vt.writeDocument(vFos);
-		vFos.close();
+			vt.writeDocument(vFos);
+			vFos.close();
+		}
 
 		if (fileHandler.isRegistered(SIMINCL)) {
 			FileOutputStream simFos = new FileOutputStream(
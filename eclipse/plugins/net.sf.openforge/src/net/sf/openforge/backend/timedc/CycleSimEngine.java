@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.openforge.backend.timedc;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.app.ForgeFileHandler;
+import net.sf.openforge.app.ForgeFileKey;
+import net.sf.openforge.app.ForgeFileTyper;
+import net.sf.openforge.app.GenericJob;
+import net.sf.openforge.backend.OutputEngine;
+import net.sf.openforge.lim.Design;
+
+/**
+ * CycleSimEngine is the implementation of {@link OutputEngine} that controls
+ * the in process cycle accurate simulation of the design. The simulation is
+ * compiled from the design at the same point as the cycle accurate C model is
+ * generated and is run by {@link #simulate} once the test vectors of the
+ * design have been written.
+ */
+public class CycleSimEngine implements OutputEngine {
+
+	public static final ForgeFileKey RESULTS = new ForgeFileKey(
+			"Java sim results");
+	public static final ForgeFileKey CYCLES = new ForgeFileKey(
+			"Java sim cycles");
+
+	private CycleSimulator simulator = null;
+
+	@Override
+	public void initEnvironment() {
+		ForgeFileHandler fileHandler = EngineThread.getGenericJob()
+				.getFileHandler();
+		fileHandler.registerFile(RESULTS,
+				fileHandler.buildName("_java_sim", "results"));
+		fileHandler.registerFile(CYCLES,
+				fileHandler.buildName("_java_sim", "cycles"));
+	}
+
+	@Override
+	public void translate(Design design) {
+		try {
+			simulator = new CycleSimulator(design);
+		} catch (CycleSimulator.CycleSimulatorException cse) {
+			EngineThread.getGenericJob().error(
+					"Could not build a cycle simulation due to internal error: "
+							+ cse.getMessage());
+		}
+	}
+
+	/**
+	 * Runs the testbench for the type of the design source against the
+	 * compiled simulation.
+	 * 
+	 * @throws IOException
+	 *             if a vector or result file cannot be read or written
+	 */
+	public void simulate() throws IOException {
+		if (simulator == null) {
+			return;
+		}
+		final GenericJob gj = EngineThread.getGenericJob();
+		final ForgeFileHandler fileHandler = gj.getFileHandler();
+		final String baseName = gj.getOutputBaseName();
+		final File results = fileHandler.getFile(RESULTS);
+		final File dir = results.getAbsoluteFile().getParentFile();
+		final File[] inputFiles = gj.getTargetFiles();
+
+		int errors;
+		try {
+			if (ForgeFileTyper.isXLIMSource(inputFiles[0].getName())) {
+				for (String port : simulator.getIOHandler()
+						.getInputPortNames()) {
+					if (!new File(dir, baseName + "_" + port + ".vec").exists()) {
+						gj.info("No test vectors for port " + port
+								+ ", cycle simulation skipped");
+						return;
+					}
+				}
+				errors = CycleSimTestbench.runQueue(simulator, dir, baseName,
+						fileHandler.getFile(CYCLES));
+			} else {
+				final File inFile = new File(dir, baseName
+						+ "_input_blocks.vec");
+				final File expFile = new File(dir, baseName
+						+ "_output_expected.vec");
+				if (!inFile.exists() || !expFile.exists()) {
+					gj.info("No test vectors, cycle simulation skipped");
+					return;
+				}
+				errors = CycleSimTestbench.runVEC(simulator, inFile, expFile,
+						results);
+			}
+		} catch (CycleSimulator.CycleSimulatorException cse) {
+			gj.error("Cycle simulation failed due to internal error: "
+					+ cse.getMessage());
+			return;
+		}
+
+		if (errors == 0) {
+			gj.info("Cycle simulation passed in " + simulator.getCycle()
+					+ " cycles");
+		} else {
+			gj.warn("Cycle simulation found " + errors + " errors in "
+					+ simulator.getCycle() + " cycles");
+		}
+	}
+
+	/**
+	 * Returns a string which uniquely identifies this phase of the compiler
+	 * output.
+	 * 
+	 * @return a non-empty, non-null String
+	 */
+	@Override
+	public String getOutputPhaseId() {
+		return "Cycle-accurate Java simulation";
+	}
+
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.openforge.backend.timedc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.app.GenericJob;
+
+/**
+ * CycleSimTestbench drives a {@link CycleSimulator} with the same stimulus and
+ * checks as the testbench mains written by {@link CycleCTestbench} for the C
+ * model, so that the results of the in process simulation can be compared
+ * with those of the compiled C model and of the HDL simulation.
+ * 
+ * <p>
+ * The VEC testbench writes the same per-cycle results format as the C model
+ * testbench. The queue testbench reads one vector file per port, each a
+ * sequence of hex values in which <code>//</code> starts a comment, and writes
+ * the per-cycle port trace of the C model testbench.
+ */
+public class CycleSimTestbench {
+
+	// Give it 20K cycles of non responsiveness before giving up.
+	private static final int HANG_TIMER_EXP = 20000;
+
+	/** The cycle on which the data of the first input becomes valid. */
+	private static final int VERILOG_EXISTS_DELAY = 11;
+
+	/** The maximum number of output masks read from the expected file. */
+	private static final int MAX_MASKS = 8192;
+
+	private CycleSimTestbench() {
+	}
+
+	/**
+	 * Runs the simulation with the data of the
+	 * <code>xxxx_input_blocks.vec</code> file and verifies the writes against
+	 * the <code>xxxx_output_expected.vec</code> file, writing the cycle
+	 * results to the given file.
+	 * 
+	 * @return the number of errors found
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	public static int runVEC(CycleSimulator sim, File inFile, File expFile,
+			File results) throws IOException {
+		final IOHandler ioHandle = sim.getIOHandler();
+		final boolean hasInput = ioHandle.getInputCount() > 0;
+		final boolean hasOutput = ioHandle.getOutputCount() > 0;
+		final int outId = ioHandle.getInputCount();
+
+		final VECData in = new VECData(inFile, false);
+		final VECData exp = new VECData(expFile, true);
+		final int inputFinalCount = in.values.size();
+		final int expFinalCount = exp.values.size();
+		// The expected data has 1 extra 'pad' at the end
+		final int expMaskCount = Math.min(exp.pads.size(), MAX_MASKS) - 1;
+
+		final PrintStream output = new PrintStream(
+				new FileOutputStream(results));
+		int inputCount = 0;
+		int cycleCount = 0;
+		int expCount = 0;
+		int expMaskIndex = 0;
+		int errors = 0;
+		boolean doOneMore = false;
+		int dataExistsDelay = 0;
+		int hangTimer = 0;
+		try {
+			while ((expCount < expFinalCount) || doOneMore) {
+				doOneMore = false;
+				if (hangTimer > HANG_TIMER_EXP) {
+					// The C testbench keeps going, there is no point.
+					output.println("HANG TIMER EXPIRED");
+					errors++;
+					break;
+				}
+				hangTimer++;
+
+				int inData = 0;
+				if (hasInput) {
+					if (sim.isAcking(0)) {
+						inputCount++;
+						hangTimer = 0;
+					}
+					inData = (int) in.get(inputCount);
+					final boolean exists = inputCount < inputFinalCount
+							&& dataExistsDelay > VERILOG_EXISTS_DELAY;
+					sim.setDataValue(0, inData, exists ? 1 : 0);
+				}
+				if (hasOutput) {
+					sim.getDataValue(outId, 0);
+				}
+
+				sim.update();
+				sim.clockEdge();
+
+				final boolean read = hasInput && sim.isAcking(0);
+				final boolean write = hasOutput && sim.isSending(outId);
+				final int outData = hasOutput ? sim.getDataValue(outId, 0)
+						: 0;
+
+				// Verify the result
+				if (write) {
+					final long mask = expMaskIndex < expMaskCount ? exp.pads
+							.get(expMaskIndex) : -1L;
+					final long maskedResult = outData & mask;
+					final long maskedExpected = exp.values.get(expCount)
+							& mask;
+					if (exp.valid.get(expCount) != 0
+							&& maskedResult != maskedExpected) {
+						EngineThread.getGenericJob().error(
+								String.format(
+										"Result error! result #%d expected %016x obtained %016x",
+										expCount, maskedExpected, maskedResult));
+						errors++;
+					}
+					expMaskIndex = (expMaskIndex == (expMaskCount - 1)) ? 0
+							: (expMaskIndex + 1);
+					expCount++;
+					doOneMore = (expCount == expFinalCount);
+					hangTimer = 0;
+				}
+
+				if (cycleCount > 0 || read || write) {
+					final String inString = hasInput ? String.format(
+							"%08x %01x", inData, read ? 1 : 0)
+							: "xxxxxxxx z";
+					final String outString = hasOutput ? String.format(
+							"%08x %01x", outData, write ? 1 : 0)
+							: "xxxxxxxx z";
+					output.println(String.format("%08x ", cycleCount)
+							+ inString + " " + outString);
+					cycleCount++;
+				}
+				dataExistsDelay++;
+			}
+		} finally {
+			output.close();
+		}
+		return errors;
+	}
+
+	/**
+	 * Runs the simulation with the data of the vector file of each port,
+	 * feeding the input values to the design and checking the values sent on
+	 * the outputs, until all the vectors are consumed. A per cycle trace of
+	 * the ports is written to the given file.
+	 * 
+	 * @param vectorDir
+	 *            the directory holding the <code>baseName_port.vec</code>
+	 *            files
+	 * @return the number of errors found
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	public static int runQueue(CycleSimulator sim, File vectorDir,
+			String baseName, File cycles) throws IOException {
+		final IOHandler ioHandle = sim.getIOHandler();
+		final List<String> ports = new ArrayList<String>();
+		ports.addAll(ioHandle.getInputPortNames());
+		ports.addAll(ioHandle.getOutputPortNames());
+		final int inputCount = ioHandle.getInputCount();
+		final GenericJob job = EngineThread.getGenericJob();
+
+		final List<LinkedList<Long>> vectors = new ArrayList<LinkedList<Long>>();
+		for (String portName : ports) {
+			vectors.add(readVectors(new File(vectorDir, baseName + "_"
+					+ portName + ".vec")));
+		}
+
+		final PrintStream cycleResults = new PrintStream(new FileOutputStream(
+				cycles));
+		// The number of results received on each port
+		final int[] resultCounts = new int[ports.size()];
+		int errors = 0;
+		int timer = 0;
+		int hangTimer = 0;
+		try {
+			while (remain(vectors)) {
+				if (hangTimer > HANG_TIMER_EXP) {
+					cycleResults.println("HANG TIMER EXPIRED");
+					errors++;
+					break;
+				}
+				timer++;
+				hangTimer++;
+
+				for (int id = 0; id < inputCount; id++) {
+					final LinkedList<Long> queue = vectors.get(id);
+					if (queue.isEmpty()) {
+						sim.setDataValue(id, 0, 0);
+					} else {
+						sim.setDataValue(id, queue.getFirst().intValue(), 1);
+					}
+				}
+
+				sim.update();
+
+				for (int id = 0; id < inputCount; id++) {
+					if (sim.isAcking(id) && !vectors.get(id).isEmpty()) {
+						vectors.get(id).removeFirst();
+						hangTimer = 0;
+					}
+				}
+				for (int id = inputCount; id < ports.size(); id++) {
+					if (sim.isSending(id)) {
+						final int result = sim.getDataValue(id, 1);
+						final LinkedList<Long> queue = vectors.get(id);
+						final int resultIndex = resultCounts[id]++;
+						hangTimer = 0;
+						if (queue.isEmpty()) {
+							job.error(String.format(
+									"Unexpected result #%d on %s obtained %016x",
+									resultIndex, ports.get(id), result));
+							errors++;
+						} else if (result != queue.removeFirst().intValue()) {
+							job.error(String.format(
+									"Result error! result #%d on %s obtained %016x",
+									resultIndex, ports.get(id), result));
+							errors++;
+						}
+					} else {
+						// Ensure the ack is set low
+						sim.getDataValue(id, 0);
+					}
+				}
+
+				if (sim.isFiring()) {
+					hangTimer = 0;
+				}
+
+				final StringBuilder line = new StringBuilder();
+				line.append(timer).append(": ");
+				for (int id = 0; id < ports.size(); id++) {
+					final boolean send = id >= inputCount ? sim.isSending(id)
+							: vectors.get(id).size() > 0;
+					final boolean ack = sim.isAcking(id);
+					final int data = id >= inputCount ? sim.getDataValue(id,
+							send ? 1 : 0) : sim.get(id, "data");
+					line.append(String.format("%x %x %x ",
+							(send || ack) ? data : 0, send ? 1 : 0, ack ? 1
+									: 0));
+				}
+				cycleResults.println(line.toString());
+
+				sim.clockEdge();
+			}
+			cycleResults.println(String.format("%d errors found in %d cycles",
+					errors, timer));
+		} finally {
+			cycleResults.close();
+		}
+		job.info(String.format("%d errors found in %d cycles", errors, timer));
+		return errors;
+	}
+
+	private static boolean remain(List<LinkedList<Long>> vectors) {
+		for (LinkedList<Long> queue : vectors) {
+			if (!queue.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the hex values of a vector file, skipping the comments.
+	 */
+	private static LinkedList<Long> readVectors(File file) throws IOException {
+		final LinkedList<Long> values = new LinkedList<Long>();
+		final BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int comment = line.indexOf("//");
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				for (String token : line.trim().split("\\s+")) {
+					if (token.length() > 0) {
+						values.add(parseHex(token));
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return values;
+	}
+
+	private static long parseHex(String token) {
+		return new BigInteger(token, 16).longValue();
+	}
+
+	/**
+	 * The contents of a file in the xxx_input_blocks.vec format: the data
+	 * elements, the 'is valid' flag of each data element and the values after
+	 * the //pad data comment.
+	 */
+	private static class VECData {
+		private final List<Long> values = new ArrayList<Long>();
+		private final List<Long> valid = new ArrayList<Long>();
+		private final List<Long> pads = new ArrayList<Long>();
+
+		/**
+		 * @param supplyValid
+		 *            if true, the value after each block comment line is the
+		 *            'is valid' flag of the data elements up to the next
+		 *            block comment
+		 */
+		VECData(File file, boolean supplyValid) throws IOException {
+			final BufferedReader reader = new BufferedReader(new FileReader(
+					file));
+			try {
+				long validValue = 1;
+				boolean readValid = false;
+				boolean inPad = false;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.startsWith("//")) {
+						if (line.contains("pad")) {
+							inPad = true;
+						} else if (!inPad) {
+							readValid = supplyValid;
+						}
+						continue;
+					}
+					for (String token : line.split("\\s+")) {
+						if (token.length() == 0) {
+							continue;
+						}
+						final long value = parseHex(token);
+						if (inPad) {
+							pads.add(value);
+						} else if (readValid) {
+							validValue = value;
+							readValid = false;
+						} else {
+							values.add(value);
+							valid.add(validValue);
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		/**
+		 * Returns the indexed data element, with the first pad value
+		 * following the last data element.
+		 */
+		long get(int index) {
+			if (index < values.size()) {
+				return values.get(index);
+			}
+			return pads.isEmpty() ? 0 : pads.get(0);
+		}
+	}
+
+}// CycleSimTestbench
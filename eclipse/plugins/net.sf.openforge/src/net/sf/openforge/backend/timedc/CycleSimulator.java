@@ -0,0 +1,1814 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.openforge.backend.timedc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.app.ForgeFileTyper;
+import net.sf.openforge.lim.Bus;
+import net.sf.openforge.lim.Call;
+import net.sf.openforge.lim.Component;
+import net.sf.openforge.lim.DataFlowVisitor;
+import net.sf.openforge.lim.Design;
+import net.sf.openforge.lim.Exit;
+import net.sf.openforge.lim.GlobalReset;
+import net.sf.openforge.lim.IPCoreCall;
+import net.sf.openforge.lim.InBuf;
+import net.sf.openforge.lim.OutBuf;
+import net.sf.openforge.lim.PinRead;
+import net.sf.openforge.lim.PinReferee;
+import net.sf.openforge.lim.PinStateChange;
+import net.sf.openforge.lim.PinWrite;
+import net.sf.openforge.lim.Port;
+import net.sf.openforge.lim.PriorityMux;
+import net.sf.openforge.lim.Register;
+import net.sf.openforge.lim.RegisterGateway;
+import net.sf.openforge.lim.RegisterRead;
+import net.sf.openforge.lim.RegisterReferee;
+import net.sf.openforge.lim.RegisterWrite;
+import net.sf.openforge.lim.Task;
+import net.sf.openforge.lim.TriBuf;
+import net.sf.openforge.lim.UnexpectedVisitationException;
+import net.sf.openforge.lim.Value;
+import net.sf.openforge.lim.io.SimpleInternalPin;
+import net.sf.openforge.lim.io.SimplePin;
+import net.sf.openforge.lim.io.SimplePinRead;
+import net.sf.openforge.lim.io.SimplePinWrite;
+import net.sf.openforge.lim.memory.EndianSwapper;
+import net.sf.openforge.lim.memory.LogicalMemory;
+import net.sf.openforge.lim.memory.LogicalMemoryPort;
+import net.sf.openforge.lim.memory.MemoryAccess;
+import net.sf.openforge.lim.memory.MemoryBank;
+import net.sf.openforge.lim.memory.MemoryGateway;
+import net.sf.openforge.lim.memory.MemoryRead;
+import net.sf.openforge.lim.memory.MemoryReferee;
+import net.sf.openforge.lim.memory.MemoryWrite;
+import net.sf.openforge.lim.op.AddOp;
+import net.sf.openforge.lim.op.AndOp;
+import net.sf.openforge.lim.op.CastOp;
+import net.sf.openforge.lim.op.ComplementOp;
+import net.sf.openforge.lim.op.ConditionalAndOp;
+import net.sf.openforge.lim.op.ConditionalOrOp;
+import net.sf.openforge.lim.op.DivideOp;
+import net.sf.openforge.lim.op.EqualsOp;
+import net.sf.openforge.lim.op.GreaterThanEqualToOp;
+import net.sf.openforge.lim.op.GreaterThanOp;
+import net.sf.openforge.lim.op.LeftShiftOp;
+import net.sf.openforge.lim.op.LessThanEqualToOp;
+import net.sf.openforge.lim.op.LessThanOp;
+import net.sf.openforge.lim.op.MinusOp;
+import net.sf.openforge.lim.op.ModuloOp;
+import net.sf.openforge.lim.op.MultiplyOp;
+import net.sf.openforge.lim.op.NoOp;
+import net.sf.openforge.lim.op.NotEqualsOp;
+import net.sf.openforge.lim.op.NotOp;
+import net.sf.openforge.lim.op.NumericPromotionOp;
+import net.sf.openforge.lim.op.OrOp;
+import net.sf.openforge.lim.op.OrOpMulti;
+import net.sf.openforge.lim.op.PlusOp;
+import net.sf.openforge.lim.op.ReductionOrOp;
+import net.sf.openforge.lim.op.RightShiftOp;
+import net.sf.openforge.lim.op.RightShiftUnsignedOp;
+import net.sf.openforge.lim.op.ShortcutIfElseOp;
+import net.sf.openforge.lim.op.SubtractOp;
+import net.sf.openforge.lim.op.TimingOp;
+import net.sf.openforge.lim.op.XorOp;
+import net.sf.openforge.lim.primitive.And;
+import net.sf.openforge.lim.primitive.EncodedMux;
+import net.sf.openforge.lim.primitive.Mux;
+import net.sf.openforge.lim.primitive.Not;
+import net.sf.openforge.lim.primitive.Or;
+import net.sf.openforge.lim.primitive.Reg;
+import net.sf.openforge.lim.primitive.SRL16;
+
+/**
+ * CycleSimulator is a cycle accurate simulation of a scheduled {@link Design}
+ * which runs in the JVM. It has the behavior of the C model written by
+ * {@link CycleCTranslator}, including the widths and promotions of the C types
+ * of that model, so that no C compiler is needed to check the cycle behavior
+ * of the design.
+ * 
+ * <p>
+ * The design is compiled into a flat array of value slots, one per bus, and a
+ * levelized array of evaluation nodes, one per combinational operation. A
+ * call to {@link #update} evaluates the nodes in order, and evaluates them
+ * again only while a value read before it was written (a feedback value)
+ * changes. A call to {@link #clockEdge} updates the state of the registers,
+ * shift registers, memories and reset. The I/O of the design is accessed
+ * through the same calls as the C model API.
+ * 
+ * <p>
+ * As in the C model, memories are simulated at the level of the LIM memory
+ * accesses, not the structure of the memory banks.
+ */
+public class CycleSimulator implements IOHandler.Members {
+
+	/** The number of evaluations of the logic allowed to settle a cycle. */
+	private static final int MAX_PASSES = 1000;
+
+	private static final int ADD = 0;
+	private static final int SUB = 1;
+	private static final int MUL = 2;
+	private static final int DIV = 3;
+	private static final int MOD = 4;
+	private static final int AND = 5;
+	private static final int OR = 6;
+	private static final int XOR = 7;
+	private static final int SHL = 8;
+	private static final int SHR = 9;
+	private static final int EQ = 10;
+	private static final int NE = 11;
+	private static final int LT = 12;
+	private static final int LE = 13;
+	private static final int GT = 14;
+	private static final int GE = 15;
+	private static final int LAND = 16;
+	private static final int LOR = 17;
+	private static final int NEG = 18;
+	private static final int COMPL = 19;
+	private static final int LNOT = 20;
+	private static final int IDENT = 21;
+
+	private final IOHandler ioHandle;
+	private final CNameCache nameCache = new CNameCache();
+
+	/* The slots, holding the value of each bus and state variable. */
+	private long[] values = new long[256];
+	private CType[] types = new CType[256];
+	private boolean[] feedback = new boolean[256];
+	private int slotCount = 0;
+
+	private final Map<Bus, Integer> busSlots = new HashMap<Bus, Integer>();
+	private final Map<String, Integer> constantSlots = new HashMap<String, Integer>();
+	private final Map<String, Integer> memberSlots = new HashMap<String, Integer>();
+
+	/** The evaluation nodes, in levelized order once compiled. */
+	private Node[] nodes;
+
+	/** The state bearing elements, updated at each clock edge. */
+	private final List<StateElement> stateElements = new ArrayList<StateElement>();
+	private final Map<LogicalMemory, Memory> memories = new HashMap<LogicalMemory, Memory>();
+	private final Map<Register, RegisterState> registers = new HashMap<Register, RegisterState>();
+
+	/** The slots of the internal pins, which are cleared at each update. */
+	private int[] internalPins;
+
+	/** The slots of the internal pins which are the go of a task. */
+	private int[] taskGos;
+
+	private boolean settled;
+	private long cycle = 0;
+
+	/**
+	 * Compiles the given scheduled design into a simulation whose state is
+	 * that of the design after reset is asserted.
+	 * 
+	 * @param design
+	 *            a scheduled Design
+	 * @throws CycleSimulatorException
+	 *             if the design contains structures that cannot be simulated
+	 */
+	public CycleSimulator(Design design) {
+		ioHandle = IOHandler.makeIOHandler(design);
+
+		final List<Node> compiled = new ArrayList<Node>();
+		final List<Integer> pins = new ArrayList<Integer>();
+		final List<Integer> gos = new ArrayList<Integer>();
+		design.accept(new SimCompiler(compiled, pins, gos));
+
+		nodes = levelize(compiled);
+		internalPins = toArray(pins);
+		taskGos = toArray(gos);
+		ioHandle.initialize(this);
+	}
+
+	/**
+	 * Propagates the values of the state and the inputs through the
+	 * combinational logic of the design, the equivalent of the update function
+	 * of the C model.
+	 * 
+	 * @throws CycleSimulatorException
+	 *             if the logic does not settle
+	 */
+	public void update() {
+		// The outputs are a 'wired-or' of the pin writes and the
+		// internal pins are simply wires, so all start from 0.
+		ioHandle.clearOutputs(this);
+		for (int slot : internalPins) {
+			values[slot] = 0;
+		}
+
+		int passes = 0;
+		do {
+			if (++passes > MAX_PASSES) {
+				throw new CycleSimulatorException(
+						"Combinational logic did not settle in cycle " + cycle);
+			}
+			settled = true;
+			for (Node node : nodes) {
+				node.evaluate();
+			}
+		} while (!settled);
+	}
+
+	/**
+	 * Updates all the state elements of the design, the equivalent of the
+	 * clockEdge function of the C model.
+	 */
+	public void clockEdge() {
+		for (StateElement element : stateElements) {
+			element.tick();
+		}
+		cycle++;
+	}
+
+	/**
+	 * Returns the number of clock edges simulated so far.
+	 */
+	public long getCycle() {
+		return cycle;
+	}
+
+	/**
+	 * Returns true if any task of the design is being started in the current
+	 * cycle.
+	 */
+	public boolean isFiring() {
+		for (int slot : taskGos) {
+			if (values[slot] != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the current value of the given bus, or 0 if the bus is not part
+	 * of the simulated logic.
+	 */
+	public long getValue(Bus bus) {
+		final Integer slot = busSlots.get(bus);
+		return slot == null ? 0 : values[slot];
+	}
+
+	/**
+	 * Returns the interface id of the named port, or -1 if the port is
+	 * unknown.
+	 */
+	public int getInterfaceID(String portName) {
+		final List<String> names = new ArrayList<String>(
+				ioHandle.getInputPortNames());
+		names.addAll(ioHandle.getOutputPortNames());
+		return names.indexOf(portName);
+	}
+
+	public boolean isSending(int id) {
+		return ioHandle.isSending(this, id);
+	}
+
+	public boolean isAcking(int id) {
+		return ioHandle.isAcking(this, id);
+	}
+
+	public int getDataValue(int id, int ackValue) {
+		return ioHandle.getDataValue(this, id, ackValue);
+	}
+
+	public void setDataValue(int id, int dataValue, int sendValue) {
+		ioHandle.setDataValue(this, id, dataValue, sendValue);
+	}
+
+	/**
+	 * Returns the value of the named member of the I/O structure with the
+	 * given interface id.
+	 */
+	@Override
+	public int get(int id, String member) {
+		return (int) values[memberSlot(id, member)];
+	}
+
+	/**
+	 * Sets the value of the named member of the I/O structure with the given
+	 * interface id.
+	 */
+	@Override
+	public void set(int id, String member, int value) {
+		values[memberSlot(id, member)] = value;
+	}
+
+	IOHandler getIOHandler() {
+		return ioHandle;
+	}
+
+	private void set(int slot, long value) {
+		final long v = types[slot].normalize(value);
+		if (values[slot] != v) {
+			values[slot] = v;
+			if (feedback[slot]) {
+				settled = false;
+			}
+		}
+	}
+
+	private boolean test(int slot) {
+		return values[slot] != 0;
+	}
+
+	private int newSlot(CType type, long init) {
+		if (slotCount == values.length) {
+			values = Arrays.copyOf(values, slotCount * 2);
+			types = Arrays.copyOf(types, slotCount * 2);
+			feedback = Arrays.copyOf(feedback, slotCount * 2);
+		}
+		types[slotCount] = type;
+		values[slotCount] = type.normalize(init);
+		return slotCount++;
+	}
+
+	private int slot(Bus bus) {
+		Integer slot = busSlots.get(bus);
+		if (slot == null) {
+			slot = newSlot(CType.of(bus.getValue()), 0);
+			busSlots.put(bus, slot);
+		}
+		return slot;
+	}
+
+	private int constant(long value, CType type) {
+		final String key = type + ":" + value;
+		Integer slot = constantSlots.get(key);
+		if (slot == null) {
+			slot = newSlot(type, value);
+			constantSlots.put(key, slot);
+		}
+		return slot;
+	}
+
+	private int memberSlot(int id, String member) {
+		final String key = id + "." + member;
+		Integer slot = memberSlots.get(key);
+		if (slot == null) {
+			// Every member of the I/O structures is a C int
+			slot = newSlot(CType.INT, 0);
+			memberSlots.put(key, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Orders the nodes so that each is evaluated after the nodes writing the
+	 * values it reads. Where the logic has a cycle, the first node in
+	 * traversal order which is not yet placed is taken next. Each value that
+	 * is read before being written in the resulting order is marked as a
+	 * feedback value.
+	 */
+	private Node[] levelize(List<Node> compiled) {
+		final int count = compiled.size();
+		final Map<Integer, List<Integer>> writers = new HashMap<Integer, List<Integer>>();
+		for (int i = 0; i < count; i++) {
+			for (int slot : compiled.get(i).writes) {
+				List<Integer> list = writers.get(slot);
+				if (list == null) {
+					list = new ArrayList<Integer>();
+					writers.put(slot, list);
+				}
+				list.add(i);
+			}
+		}
+
+		final List<List<Integer>> successors = new ArrayList<List<Integer>>(
+				count);
+		final int[] inDegree = new int[count];
+		for (int i = 0; i < count; i++) {
+			successors.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < count; i++) {
+			for (int slot : compiled.get(i).reads) {
+				final List<Integer> list = writers.get(slot);
+				if (list == null) {
+					continue;
+				}
+				for (int writer : list) {
+					if (writer != i) {
+						successors.get(writer).add(i);
+						inDegree[i]++;
+					}
+				}
+			}
+		}
+
+		final PriorityQueue<Integer> ready = new PriorityQueue<Integer>();
+		for (int i = 0; i < count; i++) {
+			if (inDegree[i] == 0) {
+				ready.add(i);
+			}
+		}
+		final boolean[] placed = new boolean[count];
+		final int[] position = new int[count];
+		final Node[] order = new Node[count];
+		int next = 0;
+		int firstUnplaced = 0;
+		while (next < count) {
+			int index;
+			if (ready.isEmpty()) {
+				while (placed[firstUnplaced]) {
+					firstUnplaced++;
+				}
+				index = firstUnplaced;
+			} else {
+				index = ready.poll();
+				if (placed[index]) {
+					continue;
+				}
+			}
+			placed[index] = true;
+			position[index] = next;
+			order[next++] = compiled.get(index);
+			for (int successor : successors.get(index)) {
+				if (--inDegree[successor] == 0 && !placed[successor]) {
+					ready.add(successor);
+				}
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			for (int slot : compiled.get(i).reads) {
+				final List<Integer> list = writers.get(slot);
+				if (list == null) {
+					continue;
+				}
+				for (int writer : list) {
+					if (writer != i && position[writer] >= position[i]) {
+						feedback[slot] = true;
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		final int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	private static int[] slots(int... slots) {
+		return slots;
+	}
+
+	private static long compute(int op, long x, long y, CType type) {
+		final boolean unsigned = type.width == 64 && !type.signed;
+		switch (op) {
+		case ADD:
+			return x + y;
+		case SUB:
+			return x - y;
+		case MUL:
+			return x * y;
+		case DIV:
+			// A divide by zero result is a don't care in the hardware
+			if (y == 0)
+				return 0;
+			return unsigned ? divideUnsigned(x, y) : x / y;
+		case MOD:
+			if (y == 0)
+				return 0;
+			return unsigned ? x - divideUnsigned(x, y) * y : x % y;
+		case AND:
+			return x & y;
+		case OR:
+			return x | y;
+		case XOR:
+			return x ^ y;
+		case EQ:
+			return x == y ? 1 : 0;
+		case NE:
+			return x != y ? 1 : 0;
+		case LT:
+			return less(x, y, unsigned) ? 1 : 0;
+		case LE:
+			return !less(y, x, unsigned) ? 1 : 0;
+		case GT:
+			return less(y, x, unsigned) ? 1 : 0;
+		case GE:
+			return !less(x, y, unsigned) ? 1 : 0;
+		case LAND:
+			return (x != 0 && y != 0) ? 1 : 0;
+		case LOR:
+			return (x != 0 || y != 0) ? 1 : 0;
+		case SHL:
+			return type.width == 64 ? x << y : (long) ((int) x << y);
+		case SHR:
+			if (type.width == 64)
+				return type.signed ? x >> y : x >>> y;
+			return type.signed ? (long) ((int) x >> y) : (long) ((int) x >>> y);
+		case NEG:
+			return -x;
+		case COMPL:
+			return ~x;
+		case LNOT:
+			return x == 0 ? 1 : 0;
+		case IDENT:
+			return x;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + op);
+		}
+	}
+
+	private static boolean less(long x, long y, boolean unsigned) {
+		if (unsigned) {
+			return (x ^ Long.MIN_VALUE) < (y ^ Long.MIN_VALUE);
+		}
+		return x < y;
+	}
+
+	private static long divideUnsigned(long x, long y) {
+		if (y < 0) {
+			return less(x, y, true) ? 0 : 1;
+		}
+		if (x >= 0) {
+			return x / y;
+		}
+		final long quotient = ((x >>> 1) / y) << 1;
+		final long remainder = x - quotient * y;
+		return quotient + (less(remainder, y, true) ? 0 : 1);
+	}
+
+	/**
+	 * A C type of the model, char, short, int or long long, signed or
+	 * unsigned. Values are held in their type, sign or zero extended to 64
+	 * bits.
+	 */
+	static final class CType {
+		static final CType INT = new CType(32, true);
+		static final CType CHAR = new CType(8, true);
+
+		private static final CType[] TYPES = { CHAR, new CType(8, false),
+				new CType(16, true), new CType(16, false), INT,
+				new CType(32, false), new CType(64, true),
+				new CType(64, false) };
+
+		final int width;
+		final boolean signed;
+
+		private CType(int width, boolean signed) {
+			this.width = width;
+			this.signed = signed;
+		}
+
+		/**
+		 * Returns the type declared by {@link OpHandle#getTypeDeclaration} for
+		 * the given size.
+		 */
+		static CType get(int size, boolean signed) {
+			final int index;
+			if (size <= 8)
+				index = 0;
+			else if (size <= 16)
+				index = 2;
+			else if (size <= 32)
+				index = 4;
+			else
+				index = 6;
+			return TYPES[index + (signed ? 0 : 1)];
+		}
+
+		static CType of(Value value) {
+			return get(value.getSize(), value.isSigned());
+		}
+
+		/** Returns the type after the integral promotions. */
+		CType promote() {
+			return width < 32 ? INT : this;
+		}
+
+		/** Returns the type of the usual arithmetic conversions. */
+		static CType common(CType a, CType b) {
+			a = a.promote();
+			b = b.promote();
+			if (a.width != b.width) {
+				return a.width > b.width ? a : b;
+			}
+			return a.signed ? b : a;
+		}
+
+		long normalize(long value) {
+			switch (width) {
+			case 8:
+				return signed ? (byte) value : value & 0xFFL;
+			case 16:
+				return signed ? (short) value : value & 0xFFFFL;
+			case 32:
+				return signed ? (int) value : value & 0xFFFFFFFFL;
+			default:
+				return value;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return (signed ? "s" : "u") + width;
+		}
+	}
+
+	/**
+	 * A combinational operation, which reads and writes value slots.
+	 */
+	private abstract class Node {
+		final int[] reads;
+		final int[] writes;
+
+		Node(int[] reads, int[] writes) {
+			this.reads = reads;
+			this.writes = writes;
+		}
+
+		abstract void evaluate();
+	}
+
+	private class CopyNode extends Node {
+		private final int dst;
+		private final int src;
+
+		CopyNode(int dst, int src) {
+			super(slots(src), slots(dst));
+			this.dst = dst;
+			this.src = src;
+		}
+
+		@Override
+		void evaluate() {
+			set(dst, values[src]);
+		}
+	}
+
+	/** if (enable) { dst = src; } */
+	private class ConditionalCopyNode extends Node {
+		private final int dst;
+		private final int enable;
+		private final int src;
+
+		ConditionalCopyNode(int dst, int enable, int src) {
+			super(slots(enable, src), slots(dst));
+			this.dst = dst;
+			this.enable = enable;
+			this.src = src;
+		}
+
+		@Override
+		void evaluate() {
+			if (test(enable)) {
+				set(dst, values[src]);
+			}
+		}
+	}
+
+	/** dst |= (enable) ? src : 0; */
+	private class WiredOrNode extends Node {
+		private final int dst;
+		private final int enable;
+		private final int src;
+
+		WiredOrNode(int dst, int enable, int src) {
+			super(slots(enable, src), slots(dst));
+			this.dst = dst;
+			this.enable = enable;
+			this.src = src;
+		}
+
+		@Override
+		void evaluate() {
+			if (test(enable)) {
+				set(dst, values[dst] | values[src]);
+			}
+		}
+	}
+
+	private class UnaryNode extends Node {
+		private final int op;
+		private final int dst;
+		private final int src;
+		private final CType type;
+
+		UnaryNode(int op, int dst, int src) {
+			super(slots(src), slots(dst));
+			this.op = op;
+			this.dst = dst;
+			this.src = src;
+			type = types[src].promote();
+		}
+
+		@Override
+		void evaluate() {
+			set(dst, type.normalize(compute(op, values[src], 0, type)));
+		}
+	}
+
+	private class BinaryNode extends Node {
+		private final int op;
+		private final int dst;
+		private final int left;
+		private final int right;
+		private final CType type;
+		private final CType result;
+
+		BinaryNode(int op, int dst, int left, int right) {
+			super(slots(left, right), slots(dst));
+			this.op = op;
+			this.dst = dst;
+			this.left = left;
+			this.right = right;
+			type = CType.common(types[left], types[right]);
+			result = op >= EQ ? CType.INT : type;
+		}
+
+		@Override
+		void evaluate() {
+			final long x = type.normalize(values[left]);
+			final long y = type.normalize(values[right]);
+			set(dst, result.normalize(compute(op, x, y, type)));
+		}
+	}
+
+	/**
+	 * A shift, whose type is that of the promoted left operand. The left
+	 * operand may first be cast to another type.
+	 */
+	private class ShiftNode extends Node {
+		private final int op;
+		private final int dst;
+		private final int left;
+		private final int right;
+		private final CType cast;
+		private final CType type;
+
+		ShiftNode(int op, int dst, int left, int right, CType cast) {
+			super(slots(left, right), slots(dst));
+			this.op = op;
+			this.dst = dst;
+			this.left = left;
+			this.right = right;
+			this.cast = cast;
+			type = cast.promote();
+		}
+
+		@Override
+		void evaluate() {
+			final long x = type.normalize(cast.normalize(values[left]));
+			set(dst, type.normalize(compute(op, x, values[right], type)));
+		}
+	}
+
+	/** The bitwise and/or of 1 or more values, evaluated left to right. */
+	private class BitwiseNode extends Node {
+		private final int op;
+		private final int dst;
+		private final int[] srcs;
+		private final CType[] steps;
+
+		BitwiseNode(int op, int dst, int[] srcs) {
+			super(srcs, slots(dst));
+			this.op = op;
+			this.dst = dst;
+			this.srcs = srcs;
+			steps = new CType[srcs.length];
+			steps[0] = types[srcs[0]];
+			for (int i = 1; i < srcs.length; i++) {
+				steps[i] = CType.common(steps[i - 1], types[srcs[i]]);
+			}
+		}
+
+		@Override
+		void evaluate() {
+			long value = values[srcs[0]];
+			for (int i = 1; i < srcs.length; i++) {
+				value = compute(op, steps[i].normalize(value),
+						steps[i].normalize(values[srcs[i]]), steps[i]);
+			}
+			set(dst, value);
+		}
+	}
+
+	/** dst = (select) ? d1 : d2; */
+	private class MuxNode extends Node {
+		private final int dst;
+		private final int select;
+		private final int d1;
+		private final int d2;
+		private final CType type;
+
+		MuxNode(int dst, int select, int d1, int d2) {
+			super(slots(select, d1, d2), slots(dst));
+			this.dst = dst;
+			this.select = select;
+			this.d1 = d1;
+			this.d2 = d2;
+			type = CType.common(types[d1], types[d2]);
+		}
+
+		@Override
+		void evaluate() {
+			set(dst, type.normalize(values[test(select) ? d1 : d2]));
+		}
+	}
+
+	/** switch (select) { case i : dst = srcs[i]; break; default : dst = 0; } */
+	private class EncodedMuxNode extends Node {
+		private final int dst;
+		private final int select;
+		private final int[] srcs;
+
+		EncodedMuxNode(int dst, int select, int[] srcs) {
+			super(concat(select, srcs), slots(dst));
+			this.dst = dst;
+			this.select = select;
+			this.srcs = srcs;
+		}
+
+		@Override
+		void evaluate() {
+			final long index = values[select];
+			set(dst, (index >= 0 && index < srcs.length) ? values[srcs[(int) index]]
+					: 0);
+		}
+	}
+
+	/**
+	 * The next state of a flop. Unlike the C model, which handles the REG,
+	 * REGE, REGR, REGRE and REGRS types, every combination of the control
+	 * ports is handled, with the asynchronous clear and preset taking effect
+	 * at the clock edge as a reset and set.
+	 */
+	private class RegNode extends Node {
+		private final int next;
+		private final int out;
+		private final int data;
+		private final int enable;
+		private final int reset;
+		private final int preset;
+
+		RegNode(int next, int out, int data, int enable, int reset, int preset) {
+			super(slots(data, enable, reset, preset, out), slots(next));
+			this.next = next;
+			this.out = out;
+			this.data = data;
+			this.enable = enable;
+			this.reset = reset;
+			this.preset = preset;
+		}
+
+		@Override
+		void evaluate() {
+			if (test(reset))
+				set(next, 0);
+			else if (test(preset))
+				set(next, -1);
+			else
+				set(next, values[test(enable) ? data : out]);
+		}
+	}
+
+	private class SRL16Node extends Node {
+		private final SRL16State state;
+		private final int data;
+		private final int enable;
+
+		SRL16Node(SRL16State state, int data, int enable) {
+			super(enable < 0 ? slots(data) : slots(data, enable), enable < 0 ? slots(state.next)
+					: slots(state.next, state.enable));
+			this.state = state;
+			this.data = data;
+			this.enable = enable;
+		}
+
+		@Override
+		void evaluate() {
+			set(state.next, values[data]);
+			if (enable >= 0) {
+				set(state.enable, values[enable]);
+			}
+		}
+	}
+
+	/**
+	 * The logic of a memory read or write. The result of a read is the memory
+	 * contents at the current address of the port, the done is the pending
+	 * state of the access and, on a go, the port is set up for the access at
+	 * the next clock edge.
+	 */
+	private class MemoryAccessNode extends Node {
+		private final MemoryPort port;
+		private final int width;
+		private final int result;
+		private final int done;
+		private final int pendingIn;
+		private final int pendingOut;
+		private final int go;
+		private final int address;
+		private final int size;
+		private final int data;
+
+		MemoryAccessNode(MemoryPort port, int width, int result, int done,
+				int pendingIn, int pendingOut, int go, int address, int size,
+				int data) {
+			super(data < 0 ? slots(pendingOut, go, address, size) : slots(
+					pendingOut, go, address, size, data), result < 0 ? slots(
+					done, pendingIn) : slots(result, done, pendingIn));
+			this.port = port;
+			this.width = width;
+			this.result = result;
+			this.done = done;
+			this.pendingIn = pendingIn;
+			this.pendingOut = pendingOut;
+			this.go = go;
+			this.address = address;
+			this.size = size;
+			this.data = data;
+		}
+
+		@Override
+		void evaluate() {
+			if (result >= 0) {
+				set(result, port.memory.load(width, port.addrCurrent));
+			}
+			set(done, values[pendingOut]);
+			if (test(go)) {
+				set(pendingIn, 1);
+				port.addrNext = (int) values[address];
+				if (data >= 0) {
+					port.dataNext = values[data];
+				}
+				port.en = 1;
+				port.we = (byte) (data >= 0 ? 1 : 0);
+				port.size = (byte) values[size];
+			} else {
+				set(pendingIn, 0);
+			}
+		}
+	}
+
+	private class RegisterWriteNode extends Node {
+		private final RegisterState register;
+		private final int pendingIn;
+		private final int go;
+		private final int data;
+
+		RegisterWriteNode(RegisterState register, int pendingIn, int go,
+				int data) {
+			super(slots(go, data), slots(register.next, register.enable,
+					pendingIn));
+			this.register = register;
+			this.pendingIn = pendingIn;
+			this.go = go;
+			this.data = data;
+		}
+
+		@Override
+		void evaluate() {
+			if (test(go)) {
+				set(register.next, values[data]);
+				set(register.enable, 1);
+				set(pendingIn, 1);
+			} else {
+				set(pendingIn, 0);
+			}
+		}
+	}
+
+	private static int[] concat(int first, int[] rest) {
+		final int[] all = new int[rest.length + 1];
+		all[0] = first;
+		System.arraycopy(rest, 0, all, 1, rest.length);
+		return all;
+	}
+
+	/**
+	 * A state bearing element, updated at the clock edge.
+	 */
+	private abstract class StateElement {
+		abstract void tick();
+	}
+
+	/** Moves a next state value to the current state. */
+	private class FlopState extends StateElement {
+		private final int next;
+		private final int out;
+
+		FlopState(int next, int out) {
+			this.next = next;
+			this.out = out;
+		}
+
+		@Override
+		void tick() {
+			values[out] = values[next];
+		}
+	}
+
+	private class SRL16State extends StateElement {
+		private final long[] stages;
+		private final int next;
+		private final int enable;
+		private final int out;
+
+		SRL16State(int depth, int next, int enable, int out) {
+			stages = new long[depth];
+			this.next = next;
+			this.enable = enable;
+			this.out = out;
+		}
+
+		@Override
+		void tick() {
+			if (test(enable)) {
+				System.arraycopy(stages, 0, stages, 1, stages.length - 1);
+				stages[0] = values[next];
+				values[out] = stages[stages.length - 1];
+			}
+		}
+	}
+
+	private class RegisterState extends StateElement {
+		private final int out;
+		private final int next;
+		private final int enable;
+
+		RegisterState(CType type, long init) {
+			out = newSlot(type, init);
+			next = newSlot(type, 0);
+			enable = newSlot(CType.CHAR, 0);
+		}
+
+		@Override
+		void tick() {
+			if (test(enable)) {
+				values[out] = values[next];
+			}
+			values[enable] = 0;
+		}
+	}
+
+	/**
+	 * The global reset, asserted for a number of cycles after which it stays
+	 * deasserted.
+	 */
+	private class ResetState extends StateElement {
+		private final int out;
+		private final int delay;
+		private int count = 0;
+
+		ResetState(int out, int delay) {
+			this.out = out;
+			this.delay = delay;
+			values[out] = delay > 0 ? 1 : 0;
+		}
+
+		@Override
+		void tick() {
+			if (count < delay + 2) {
+				count++;
+			}
+			values[out] = count < delay ? 1 : 0;
+		}
+	}
+
+	/**
+	 * The contents of a memory, held as the bytes of the C array of the model
+	 * in little endian order, and the state of its ports.
+	 */
+	private class Memory extends StateElement {
+		private final byte[] contents;
+		private final Map<LogicalMemoryPort, MemoryPort> ports = new LinkedHashMap<LogicalMemoryPort, MemoryPort>();
+
+		Memory(LogicalMemory memory) {
+			final long[] init = MemoryWriter.getInitialValues(memory);
+			final int bytes = CType.get(MemoryWriter.getBankWidth(memory),
+					true).width / 8;
+			contents = new byte[init.length * bytes];
+			for (int i = 0; i < init.length; i++) {
+				store(i * bytes, bytes, init[i]);
+			}
+			for (LogicalMemoryPort port : memory.getLogicalMemoryPorts()) {
+				ports.put(port, new MemoryPort(this));
+			}
+		}
+
+		/**
+		 * Returns the signed value of the given width at the given byte
+		 * address, or 0 if the address is outside of the memory.
+		 */
+		long load(int width, int address) {
+			final CType type = CType.get(width, true);
+			final int bytes = type.width / 8;
+			final int offset = (address / bytes) * bytes;
+			if (offset < 0 || offset + bytes > contents.length) {
+				return 0;
+			}
+			long value = 0;
+			for (int i = bytes - 1; i >= 0; i--) {
+				value = (value << 8) | (contents[offset + i] & 0xFFL);
+			}
+			return type.normalize(value);
+		}
+
+		private void store(int offset, int bytes, long value) {
+			if (offset < 0 || offset + bytes > contents.length) {
+				throw new CycleSimulatorException("Memory write at " + offset
+						+ " is outside of the memory in cycle " + cycle);
+			}
+			for (int i = 0; i < bytes; i++) {
+				contents[offset + i] = (byte) (value >>> (8 * i));
+			}
+		}
+
+		@Override
+		void tick() {
+			for (MemoryPort port : ports.values()) {
+				port.addrCurrent = port.addrNext;
+				if (port.we != 0 && port.en != 0) {
+					int bytes = 0;
+					switch (port.size) {
+					case 0:
+						bytes = 4;
+						break;
+					case 1:
+						bytes = 1;
+						break;
+					case 2:
+						bytes = 2;
+						break;
+					case 3:
+						bytes = 8;
+						break;
+					}
+					if (bytes > 0) {
+						store((port.addrCurrent / bytes) * bytes, bytes,
+								port.dataNext);
+					}
+				}
+				port.en = 0;
+				port.we = 0;
+				port.size = 0;
+			}
+		}
+	}
+
+	/** The state of a memory port, as the memStateStruct of the model. */
+	private static class MemoryPort {
+		private final Memory memory;
+		private int addrNext = 0;
+		private int addrCurrent = 0;
+		private long dataNext = 0;
+		private byte en = 0;
+		private byte we = 0;
+		private byte size = 0;
+
+		MemoryPort(Memory memory) {
+			this.memory = memory;
+		}
+	}
+
+	/**
+	 * SimCompiler visits the design in data flow order, as the
+	 * TranslateVisitor of {@link CycleCTranslator}, creating the evaluation
+	 * nodes and state elements of each component.
+	 */
+	private class SimCompiler extends DataFlowVisitor {
+		private final List<Node> compiled;
+		private final List<Integer> pins;
+		private final List<Integer> gos;
+		private final Map<Port, Port> callPorts = new HashMap<Port, Port>();
+		private final Map<Bus, Bus> callBuses = new HashMap<Bus, Bus>();
+
+		SimCompiler(List<Node> compiled, List<Integer> pins, List<Integer> gos) {
+			setRunForward(true);
+			this.compiled = compiled;
+			this.pins = pins;
+			this.gos = gos;
+		}
+
+		@Override
+		public void visit(Design design) {
+			int delay = 5;
+			if (ForgeFileTyper.isXLIMSource(EngineThread.getGenericJob()
+					.getTargetFiles()[0].getName()))
+				delay = 10;
+			for (GlobalReset grst : design.getResetPins()) {
+				stateElements.add(new ResetState(slot(grst.getBus()), delay));
+			}
+
+			// The task calls are traversed with their tasks.
+			final List<Call> taskCalls = new ArrayList<Call>();
+			for (Task task : design.getTasks()) {
+				taskCalls.add(task.getCall());
+			}
+			for (Component comp : design.getDesignModule().getComponents()) {
+				if (!taskCalls.contains(comp)) {
+					try {
+						comp.accept(this);
+					}
+					// Anything that throws a UVE is not going to
+					// factor into the simulation anyway.
+					catch (UnexpectedVisitationException uve) {
+					}
+				}
+			}
+			for (Task task : design.getTasks()) {
+				task.accept(this);
+			}
+		}
+
+		@Override
+		public void visit(Call call) {
+			// Create correlations from call port/bus to block port/bus
+			for (Port port : call.getPorts()) {
+				callPorts.put(call.getProcedurePort(port), port);
+			}
+			for (Bus bus : call.getBuses()) {
+				callBuses.put(call.getProcedureBus(bus), bus);
+			}
+			super.visit(call);
+		}
+
+		@Override
+		public void visit(InBuf ib) {
+			final List<Bus> buses = new ArrayList<Bus>();
+			buses.add(ib.getGoBus());
+			buses.add(ib.getResetBus());
+			buses.addAll(ib.getDataBuses());
+			for (Bus ibBus : buses) {
+				if (ibBus.getTag() == Component.SIDEBAND) {
+					continue;
+				}
+				Bus source = ibBus.getPeer().getBus();
+				if (source == null && callPorts.containsKey(ibBus.getPeer())) {
+					source = callPorts.get(ibBus.getPeer()).getBus();
+				}
+
+				if (source != null) {
+					add(new CopyNode(slot(ibBus), operand(source)));
+				} else if (ibBus.isUsed() && ibBus.getPeer().isUsed()) {
+					// Some ports, eg clk/reset, may not be used
+					throw new CycleSimulatorException("null source for " + ib
+							+ " " + ibBus);
+				}
+			}
+		}
+
+		@Override
+		public void visit(OutBuf ob) {
+			for (Port port : ob.getPorts()) {
+				if (port.getTag() == Component.SIDEBAND) {
+					continue;
+				}
+				final Bus source = port.getBus();
+				final Bus target = port.getPeer();
+				if (source != null) {
+					add(new CopyNode(slot(target), operand(source)));
+					if (callBuses.containsKey(target)) {
+						add(new CopyNode(slot(callBuses.get(target)),
+								operand(target)));
+					}
+				} else if (port.isUsed() && target.isUsed()) {
+					throw new CycleSimulatorException("null source for " + ob
+							+ " " + port);
+				}
+			}
+		}
+
+		@Override
+		public void visit(Reg reg) {
+			final int out = slot(reg.getResultBus());
+			long init = 0;
+			if (reg.getInitialValue() != null) {
+				init = reg.getInitialValue().toNumber().numberValue()
+						.longValue();
+			}
+			values[out] = types[out].normalize(init);
+			final int next = newSlot(types[out], 0);
+
+			// An absent control is a constant that never takes effect
+			final int type = reg.getType();
+			final int data = operand(reg.getDataPort().getBus());
+			final int enable = (type & Reg.ENABLE) != 0 ? operand(reg
+					.getEnablePort().getBus()) : constant(1, CType.INT);
+			final int reset = (type & (Reg.RESET | Reg.CLEAR)) != 0 ? operand(reg
+					.getInternalResetPort().getBus()) : constant(0, CType.INT);
+			final int preset = (type & (Reg.SET | Reg.PRESET)) != 0 ? operand(reg
+					.getSetPort().getBus()) : constant(0, CType.INT);
+			add(new RegNode(next, out, data, enable, reset, preset));
+			stateElements.add(new FlopState(next, out));
+		}
+
+		@Override
+		public void visit(EncodedMux m) {
+			final int[] srcs = new int[m.getDataPorts().size()];
+			for (int i = 0; i < srcs.length; i++) {
+				srcs[i] = operand(m.getDataPort(i).getBus());
+			}
+			add(new EncodedMuxNode(slot(m.getResultBus()), operand(m
+					.getSelectPort().getBus()), srcs));
+		}
+
+		@Override
+		public void visit(Mux m) {
+			if (m.getGoPorts().size() != 2) {
+				throw new CycleSimulatorException("Mux with "
+						+ m.getGoPorts().size() + " ports");
+			}
+			final Port go = m.getGoPorts().get(0);
+			final Bus d1 = m.getDataPort(go).getBus();
+			final Bus d2 = m.getDataPort(m.getGoPorts().get(1)).getBus();
+			add(new MuxNode(slot(m.getResultBus()), operand(go.getBus()),
+					operand(d1), operand(d2)));
+		}
+
+		@Override
+		public void visit(MemoryRead memRead) {
+			final int result = slot(memRead.getResultBus());
+			addMemoryAccess(memRead, result, -1);
+			// The containing module takes the value from the physical
+			// output, which is the result of the read.
+			if (memRead.getPhysicalComponent() != null) {
+				alias(memRead.getPhysicalComponent().getExit(Exit.DONE)
+						.getDataBuses().get(0), result);
+			}
+		}
+
+		@Override
+		public void visit(MemoryWrite memWrite) {
+			addMemoryAccess(memWrite, -1, operand(memWrite.getDataPort()
+					.getBus()));
+		}
+
+		private void addMemoryAccess(MemoryAccess acc, int result, int data) {
+			final LogicalMemory logicalMem = acc.getMemoryPort()
+					.getLogicalMemory();
+			Memory memory = memories.get(logicalMem);
+			if (memory == null) {
+				memory = new Memory(logicalMem);
+				memories.put(logicalMem, memory);
+				stateElements.add(memory);
+			}
+			final int pendingIn = newSlot(CType.CHAR, 0);
+			final int pendingOut = newSlot(CType.CHAR, 0);
+			add(new MemoryAccessNode(memory.ports.get(acc.getMemoryPort()),
+					acc.getWidth(), result, slot(acc.getExit(Exit.DONE)
+							.getDoneBus()), pendingIn, pendingOut,
+					operand(acc.getGoPort().getBus()), operand(acc
+							.getAddressPort().getBus()), operand(acc
+							.getSizePort().getBus()), data));
+			stateElements.add(new FlopState(pendingIn, pendingOut));
+		}
+
+		@Override
+		public void visit(RegisterRead regRead) {
+			final RegisterState register = getRegister((Register) regRead
+					.getReferenceable());
+			add(new CopyNode(slot(regRead.getResultBus()), register.out));
+		}
+
+		@Override
+		public void visit(RegisterWrite regWrite) {
+			final RegisterState register = getRegister((Register) regWrite
+					.getReferenceable());
+			// The done of the write is the pending state of the write
+			final int pendingIn = newSlot(CType.CHAR, 0);
+			add(new RegisterWriteNode(register, pendingIn, operand(regWrite
+					.getGoPort().getBus()), operand(regWrite.getDataPort()
+					.getBus())));
+			stateElements.add(new FlopState(pendingIn, slot(regWrite.getExit(
+					Exit.DONE).getDoneBus())));
+		}
+
+		private RegisterState getRegister(Register target) {
+			RegisterState register = registers.get(target);
+			if (register == null) {
+				final long init = MemoryWriter.constantValue(target
+						.getInitialValue().getRep(),
+						RegisterVar.ADDRESSING_POLICY);
+				register = new RegisterState(CType.get(target.getInitWidth(),
+						Register.isSigned()), init);
+				registers.put(target, register);
+				stateElements.add(register);
+			}
+			return register;
+		}
+
+		@Override
+		public void visit(OrOp or) {
+			// The OrOpMulti is only created in gateway objects and in
+			// merging pin accesses, neither of which is simulated.
+			if (!(or instanceof OrOpMulti)) {
+				addBitwise(or, OR);
+			}
+		}
+
+		@Override
+		public void visit(Or o) {
+			addBitwise(o, OR);
+		}
+
+		@Override
+		public void visit(And a) {
+			addBitwise(a, AND);
+		}
+
+		private void addBitwise(Component comp, int op) {
+			final List<Port> ports = comp.getDataPorts();
+			final int[] srcs = new int[ports.size()];
+			for (int i = 0; i < srcs.length; i++) {
+				srcs[i] = operand(ports.get(i).getBus());
+			}
+			add(new BitwiseNode(op, slot(comp.getExit(Exit.DONE)
+					.getDataBuses().get(0)), srcs));
+		}
+
+		@Override
+		public void visit(ReductionOrOp reducedOr) {
+			add(new BinaryNode(NE, slot(reducedOr.getResultBus()),
+					operand(reducedOr.getDataPort().getBus()), constant(0,
+							CType.INT)));
+		}
+
+		@Override
+		public void visit(SRL16 srl16) {
+			final int out = slot(srl16.getResultBus());
+			final boolean hasEnable = srl16.getEnablePort().isUsed();
+			final SRL16State state = new SRL16State(srl16.getStages(),
+					newSlot(types[out], 0), newSlot(CType.CHAR, hasEnable ? 0
+							: 1), out);
+			add(new SRL16Node(state, operand(srl16.getInDataPort().getBus()),
+					hasEnable ? operand(srl16.getEnablePort().getBus()) : -1));
+			stateElements.add(state);
+		}
+
+		@Override
+		public void visit(SimplePin pin) {
+			// Unhandled pins include CLK and RESET, which are handled
+			// via the clock edge and the kicker circuitry.
+			if (pin instanceof SimpleInternalPin || !ioHandle.isHandled(pin)) {
+				final Bus source = pin.getXLatData().getSource();
+				final int slot = slot(source);
+				if (pin instanceof SimpleInternalPin) {
+					pins.add(slot);
+					// The same rule as the task go vars of the C model
+					if (new OpHandle(pin, nameCache).getBusName(source)
+							.contains("_go_")) {
+						gos.add(slot);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void visit(SimplePinRead comp) {
+			add(new CopyNode(slot(comp.getResultBus()),
+					pinSlot((SimplePin) comp.getReferenceable())));
+		}
+
+		/**
+		 * The pin write masks the data that it sends to an external pin with
+		 * the enable so that all the writes are a simple wired or.
+		 */
+		@Override
+		public void visit(SimplePinWrite comp) {
+			final SimplePin pin = (SimplePin) comp.getReferenceable();
+			final int data = operand(comp.getDataPort().getBus());
+			final int enable = operand(comp.getGoPort().getBus());
+			if (ioHandle.isHandled(pin)) {
+				add(new WiredOrNode(pinSlot(pin), enable, data));
+			} else {
+				add(new ConditionalCopyNode(pinSlot(pin), enable, data));
+			}
+		}
+
+		private int pinSlot(SimplePin pin) {
+			if (ioHandle.isHandled(pin)) {
+				return memberSlot(ioHandle.getInterfaceID(pin),
+						ioHandle.getMemberName(pin));
+			}
+			return slot(pin.getXLatData().getSource());
+		}
+
+		@Override
+		public void visit(AddOp add) {
+			addBinary(add, ADD);
+		}
+
+		@Override
+		public void visit(AndOp andOp) {
+			addBinary(andOp, AND);
+		}
+
+		@Override
+		public void visit(CastOp cast) {
+			addUnary(cast, IDENT);
+		}
+
+		@Override
+		public void visit(ComplementOp comp) {
+			addUnary(comp, COMPL);
+		}
+
+		@Override
+		public void visit(ConditionalAndOp cand) {
+			addBinary(cand, LAND);
+		}
+
+		@Override
+		public void visit(ConditionalOrOp cor) {
+			addBinary(cor, LOR);
+		}
+
+		@Override
+		public void visit(DivideOp divide) {
+			addBinary(divide, DIV);
+		}
+
+		@Override
+		public void visit(EqualsOp equals) {
+			addBinary(equals, EQ);
+		}
+
+		@Override
+		public void visit(GreaterThanEqualToOp gte) {
+			addBinary(gte, GE);
+		}
+
+		@Override
+		public void visit(GreaterThanOp gt) {
+			addBinary(gt, GT);
+		}
+
+		@Override
+		public void visit(LeftShiftOp leftShift) {
+			addShift(leftShift, SHL, null);
+		}
+
+		@Override
+		public void visit(LessThanEqualToOp lte) {
+			addBinary(lte, LE);
+		}
+
+		@Override
+		public void visit(LessThanOp lt) {
+			addBinary(lt, LT);
+		}
+
+		@Override
+		public void visit(MinusOp minus) {
+			addUnary(minus, NEG);
+		}
+
+		@Override
+		public void visit(ModuloOp modulo) {
+			addBinary(modulo, MOD);
+		}
+
+		@Override
+		public void visit(MultiplyOp multiply) {
+			addBinary(multiply, MUL);
+		}
+
+		@Override
+		public void visit(NotEqualsOp notEquals) {
+			addBinary(notEquals, NE);
+		}
+
+		@Override
+		public void visit(NotOp not) {
+			addUnary(not, LNOT);
+		}
+
+		@Override
+		public void visit(PlusOp plus) {
+			addUnary(plus, IDENT);
+		}
+
+		@Override
+		public void visit(SubtractOp subtract) {
+			addBinary(subtract, SUB);
+		}
+
+		@Override
+		public void visit(XorOp xor) {
+			addBinary(xor, XOR);
+		}
+
+		@Override
+		public void visit(Not n) {
+			addUnary(n, LNOT);
+		}
+
+		@Override
+		public void visit(RightShiftOp rightShift) {
+			addShift(rightShift, SHR, null);
+		}
+
+		@Override
+		public void visit(RightShiftUnsignedOp rightShiftUnsigned) {
+			// The left operand is cast to an unsigned type
+			final Bus bus1 = rightShiftUnsigned.getDataPorts().get(0).getBus();
+			addShift(rightShiftUnsigned, SHR,
+					CType.get(bus1.getValue().getSize(), false));
+		}
+
+		/*
+		 * Skip the gateway and referee objects, they are only related to
+		 * sideband data movement which we ignore since our memory read and
+		 * memory write objects access memory directly.
+		 */
+		@Override
+		public void visit(RegisterGateway regGateway) {
+		}
+
+		@Override
+		public void visit(MemoryReferee memReferee) {
+		}
+
+		@Override
+		public void visit(MemoryGateway memGateway) {
+		}
+
+		@Override
+		public void visit(RegisterReferee vis) {
+		}
+
+		@Override
+		public void visit(PinReferee vis) {
+		}
+
+		@Override
+		public void visit(EndianSwapper vis) {
+		}
+
+		/*
+		 * These we expect to not traverse, or to be obsolete
+		 */
+		@Override
+		public void visit(MemoryBank vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(NoOp vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(IPCoreCall vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(TimingOp vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(PinRead vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(PinWrite vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(PinStateChange vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(TriBuf vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(ShortcutIfElseOp vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(NumericPromotionOp vis) {
+			unexpected(vis);
+		}
+
+		@Override
+		public void visit(PriorityMux vis) {
+			unexpected(vis);
+		}
+
+		private void unexpected(Component comp) {
+			throw new CycleSimulatorException("Cannot simulate " + comp);
+		}
+
+		private void addUnary(Component op, int code) {
+			final Bus bus1 = op.getDataPorts().get(0).getBus();
+			final Bus result = op.getExit(Exit.DONE).getDataBuses().get(0);
+			add(new UnaryNode(code, slot(result), operand(bus1)));
+		}
+
+		private void addBinary(Component op, int code) {
+			assert op.getDataPorts().size() == 2 : "Not 2 ports on " + op
+					+ " " + op.getDataPorts().size();
+			final Bus bus1 = op.getDataPorts().get(0).getBus();
+			final Bus bus2 = op.getDataPorts().get(1).getBus();
+			final Bus result = op.getExit(Exit.DONE).getDataBuses().get(0);
+			add(new BinaryNode(code, slot(result), operand(bus1),
+					operand(bus2)));
+		}
+
+		private void addShift(Component op, int code, CType cast) {
+			final Bus bus1 = op.getDataPorts().get(0).getBus();
+			final Bus bus2 = op.getDataPorts().get(1).getBus();
+			final Bus result = op.getExit(Exit.DONE).getDataBuses().get(0);
+			final int left = operand(bus1);
+			add(new ShiftNode(code, slot(result), left, operand(bus2),
+					cast == null ? types[left] : cast));
+		}
+
+		/**
+		 * Returns the slot holding the value of the given bus. As in the C
+		 * model, constant values are literals, int typed when small, and
+		 * don't care values are 0.
+		 */
+		private int operand(Bus bus) {
+			final Value value = bus.getValue();
+			if (value.isConstant() && !value.isDontCare()) {
+				final long valueMask = value.getValueMask();
+				if (valueMask > -127 && valueMask < 127) {
+					return constant(valueMask, CType.INT);
+				}
+				return constant(valueMask,
+						CType.get(bus.getSize(), value.isSigned()));
+			} else if (value.isDontCare()) {
+				return constant(0, CType.INT);
+			}
+			return slot(bus);
+		}
+
+		/**
+		 * Makes the given bus take its value from the given slot.
+		 */
+		private void alias(Bus bus, int slot) {
+			final Integer existing = busSlots.get(bus);
+			if (existing == null) {
+				busSlots.put(bus, slot);
+			} else if (existing != slot) {
+				add(new CopyNode(existing, slot));
+			}
+		}
+
+		private void add(Node node) {
+			compiled.add(node);
+		}
+	}
+
+	public static class CycleSimulatorException extends RuntimeException {
+		private static final long serialVersionUID = 2416185364301839212L;
+
+		public CycleSimulatorException(String msg) {
+			super(msg);
+		}
+	}
+
+}// CycleSimulator
@@ -328,6 +328,73 @@ public abstract class IOHandler {
 		return "UNKNOWN PIN";
 	}
 
+	/**
+	 * Returns the interface id of the fifo interface containing the given pin,
+	 * in the numbering of the getInterfaceID API call, or -1 if the pin is not
+	 * handled.
+	 */
+	public int getInterfaceID(SimplePin pin) {
+		for (int i = 0; i < inputs.size(); i++) {
+			if (inputs.get(i).getPins().contains(pin)) {
+				return i;
+			}
+		}
+		for (int i = 0; i < outputs.size(); i++) {
+			if (outputs.get(i).getPins().contains(pin)) {
+				return inputs.size() + i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets each produced value to zero, the Java equivalent of
+	 * {@link #writeOutputInits}.
+	 */
+	public void clearOutputs(Members members) {
+		for (int i = 0; i < getInputs().size(); i++) {
+			for (SimplePin pin : getInputs().get(i).getOutputPins()) {
+				members.set(i, getMemberName(pin), 0);
+			}
+		}
+		for (int i = 0; i < getOutputs().size(); i++) {
+			for (SimplePin pin : getOutputs().get(i).getOutputPins()) {
+				members.set(getInputCount() + i, getMemberName(pin), 0);
+			}
+		}
+	}
+
+	/**
+	 * Sets the initial values of the data structures, as done by the
+	 * initialization strings in {@link #declareStructures}. Members are zero
+	 * unless set here.
+	 */
+	public void initialize(Members members) {
+	}
+
+	/** The Java equivalent of the isSending API call. */
+	public abstract boolean isSending(Members members, int id);
+
+	/** The Java equivalent of the isAcking API call. */
+	public abstract boolean isAcking(Members members, int id);
+
+	/** The Java equivalent of the getDataValue API call. */
+	public abstract int getDataValue(Members members, int id, int ackValue);
+
+	/** The Java equivalent of the setDataValue API call. */
+	public abstract void setDataValue(Members members, int id, int dataValue,
+			int sendValue);
+
+	/**
+	 * Members gives access to the data structures of a simulation of the
+	 * design, addressed by interface id and member name.
+	 */
+	public interface Members {
+		public int get(int id, String member);
+
+		public void set(int id, String member, int value);
+	}
+
 	public void writeOutputInits(PrintStream ps) {
 		for (int i = 0; i < getInputs().size(); i++) {
 			FifoIF fifo = getInputs().get(i);
@@ -422,6 +489,46 @@ public abstract class IOHandler {
 			return "{0,0,0,1,0}";
 		}
 
+		@Override
+		public void initialize(Members members) {
+			for (int i = 0; i < getOutputCount(); i++) {
+				members.set(getInputCount() + i, RDY_MEMBER, 1);
+			}
+		}
+
+		@Override
+		public boolean isSending(Members members, int id) {
+			// inputs never send data
+			return id >= getInputCount() && members.get(id, SEND_MEMBER) != 0;
+		}
+
+		@Override
+		public boolean isAcking(Members members, int id) {
+			// outputs never ack their data
+			return id < getInputCount() && members.get(id, ACK_MEMBER) != 0;
+		}
+
+		@Override
+		public int getDataValue(Members members, int id, int ackValue) {
+			if (id < getInputCount()) {
+				// there is no data to retrieve from an input
+				return 0;
+			}
+			members.set(id, ACK_MEMBER, ackValue);
+			members.set(id, RDY_MEMBER, 1);
+			return members.get(id, DATA_MEMBER);
+		}
+
+		@Override
+		public void setDataValue(Members members, int id, int dataValue,
+				int sendValue) {
+			// there is no data to set on an output
+			if (id < getInputCount()) {
+				members.set(id, DATA_MEMBER, dataValue);
+				members.set(id, SEND_MEMBER, sendValue);
+			}
+		}
+
 		@Override
 		public void writeIsSending(PrintStream ps, boolean declOnly) {
 			ps.print("int isSending (int id)");
@@ -602,6 +709,38 @@ public abstract class IOHandler {
 			return "{0,0,0,0,0}";
 		}
 
+		@Override
+		public boolean isSending(Members members, int id) {
+			// inputs never send data
+			return id >= getInputCount() && members.get(id, WRITE_MEMBER) != 0;
+		}
+
+		@Override
+		public boolean isAcking(Members members, int id) {
+			// outputs never ack their data
+			return id < getInputCount() && members.get(id, READ_MEMBER) != 0;
+		}
+
+		@Override
+		public int getDataValue(Members members, int id, int ackValue) {
+			if (id < getInputCount()) {
+				// there is no data to retrieve from an input
+				return 0;
+			}
+			members.set(id, FULL_MEMBER, ackValue);
+			return members.get(id, DATA_MEMBER);
+		}
+
+		@Override
+		public void setDataValue(Members members, int id, int dataValue,
+				int sendValue) {
+			// there is no data to set on an output
+			if (id < getInputCount()) {
+				members.set(id, DATA_MEMBER, dataValue);
+				members.set(id, EXISTS_MEMBER, sendValue);
+			}
+		}
+
 		@Override
 		protected String getMemberName(SimplePin pin) {
 			String name = pin.getName().toLowerCase();
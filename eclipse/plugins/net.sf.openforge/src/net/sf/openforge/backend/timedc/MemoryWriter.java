@@ -69,54 +69,15 @@ public class MemoryWriter {
 			final String name = ID.showLogical(logicalMem) + hash;
 			final String legalName = CNameCache.getLegalIdentifier(name);
 
-			// Get the structural memory and the size of each data in the memory
-			final StructuralMemory sm = logicalMem.getStructuralMemory();
-
-			// Get the Initial value of the memory :
-			// LogicalMemory->StructuralMemory->List of MemoryBank->InitValues
-			final int size = sm.getAddressableLocations();
-			final AddressStridePolicy addressPolicy = logicalMem
-					.getAddressStridePolicy();
-			final int stride = addressPolicy.getStride();
-
-			if (!(stride == 8 || stride == 16 || stride == 32 || stride == 64)) {
-				if (stride != sm.getDataWidth()) {
-					throw new IllegalArgumentException(
-							"Cannot generate C memory for memory with stride of "
-									+ stride + " and width of "
-									+ sm.getDataWidth());
-				}
-			}
-
-			// Collect the banks that make up the memory
-			final List<MemoryBank> banks = sm.getBanks();
-			boolean first = true;
-			final int numBanks = banks.size();
-			final int mbWidth = banks.get(0).getWidth();
-			final int numLines = (int) Math.ceil((double) size
-					/ (double) (mbWidth * numBanks));
-
-			String initialization = "";
-			final String memType = OpHandle.getTypeDeclaration(mbWidth, true);
-
-			initialization += "{";
-
-			for (int row = 0; row < numLines; row++) {
-				for (MemoryBank mb : banks) {
-					// final byte [][] values = mb.getInitValues();
-					final AddressableUnit[][] values = mb.getInitValues();
-					final int numColumns = values[0].length;
-					// final byte [] rep = new byte[numColumns];
-					final AddressableUnit[] rep = new AddressableUnit[numColumns];
-					System.arraycopy(values[row], 0, rep, 0, numColumns);
-
-					long value = constantValue(rep, addressPolicy);
-					if (!first)
-						initialization += ",";
-					else
-						first = false;
-					initialization += Long.toString(value);
-				}
+			final long[] values = getInitialValues(logicalMem);
+			final String memType = OpHandle.getTypeDeclaration(
+					getBankWidth(logicalMem), true);
+
+			String initialization = "{";
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0)
+					initialization += ",";
+				initialization += Long.toString(values[i]);
 			}
 			initialization += "}";
 			memoryMap.put(logicalMem, new MemoryVar(legalName, initialization,
@@ -126,6 +87,70 @@ public class MemoryWriter {
 		return memoryMap;
 	}
 
+	/**
+	 * Returns the width of the banks of the given memory, which determines the
+	 * type of the elements of the C array holding its contents.
+	 * 
+	 * @param logicalMem
+	 *            a non-null LogicalMemory
+	 * @return the bit width of each memory bank
+	 */
+	static int getBankWidth(LogicalMemory logicalMem) {
+		return logicalMem.getStructuralMemory().getBanks().get(0).getWidth();
+	}
+
+	/**
+	 * Returns the initial contents of the given memory as one value per bank
+	 * per line, in the order in which they populate the C array.
+	 * 
+	 * @param logicalMem
+	 *            a non-null LogicalMemory
+	 * @return the endian-correct initial value of each array element
+	 * @throws IllegalArgumentException
+	 *             if the memory cannot be represented as a C array
+	 */
+	static long[] getInitialValues(LogicalMemory logicalMem) {
+		// Get the structural memory and the size of each data in the memory
+		final StructuralMemory sm = logicalMem.getStructuralMemory();
+
+		// Get the Initial value of the memory :
+		// LogicalMemory->StructuralMemory->List of MemoryBank->InitValues
+		final int size = sm.getAddressableLocations();
+		final AddressStridePolicy addressPolicy = logicalMem
+				.getAddressStridePolicy();
+		final int stride = addressPolicy.getStride();
+
+		if (!(stride == 8 || stride == 16 || stride == 32 || stride == 64)) {
+			if (stride != sm.getDataWidth()) {
+				throw new IllegalArgumentException(
+						"Cannot generate C memory for memory with stride of "
+								+ stride + " and width of "
+								+ sm.getDataWidth());
+			}
+		}
+
+		// Collect the banks that make up the memory
+		final List<MemoryBank> banks = sm.getBanks();
+		final int numBanks = banks.size();
+		final int mbWidth = banks.get(0).getWidth();
+		final int numLines = (int) Math.ceil((double) size
+				/ (double) (mbWidth * numBanks));
+
+		final long[] values = new long[numLines * numBanks];
+		int index = 0;
+		for (int row = 0; row < numLines; row++) {
+			for (MemoryBank mb : banks) {
+				final AddressableUnit[][] init = mb.getInitValues();
+				final int numColumns = init[0].length;
+				final AddressableUnit[] rep = new AddressableUnit[numColumns];
+				System.arraycopy(init[row], 0, rep, 0, numColumns);
+
+				values[index++] = constantValue(rep, addressPolicy);
+			}
+		}
+		return values;
+	}
+
 	/**
 	 * Returns an endian-correct constant for the given byte rep. Endianness is
 	 * determined by the endianness of the compilation as specified by the
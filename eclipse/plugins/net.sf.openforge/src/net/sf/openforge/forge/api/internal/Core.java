@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.forge.api.ipcore.IPCore;
 import net.sf.openforge.forge.api.pin.Buffer;
 
@@ -33,21 +34,25 @@ import net.sf.openforge.forge.api.pin.Buffer;
  */
 public class Core {
 
-	/** A HashMap of IPCore->IPCoreStorage */
-	private static HashMap<IPCore, IPCoreStorage> internalCoreMap = new HashMap<IPCore, IPCoreStorage>();
+	/**
+	 * Returns the HashMap of IPCore->IPCoreStorage of the current compilation.
+	 */
+	private static HashMap<IPCore, IPCoreStorage> internalCoreMap() {
+		return CompilationContext.current().getIPCoreMap();
+	}
 
 	/**
 	 * @return A set of IPCore objects
 	 */
 	public static Set<IPCore> getIPCores() {
-		return internalCoreMap.keySet();
+		return internalCoreMap().keySet();
 	}
 
 	public static IPCore getIPCore(IPCoreStorage ipcs) {
 		// we need to find the IPCore that maps to the given storage
-		for (IPCore ipc : internalCoreMap.keySet()) {
+		for (IPCore ipc : internalCoreMap().keySet()) {
 
-			if (ipcs == internalCoreMap.get(ipc)) {
+			if (ipcs == internalCoreMap().get(ipc)) {
 				return (ipc);
 			}
 		}
@@ -65,7 +70,7 @@ public class Core {
 	 */
 	public static void addIPCore(IPCore ipc, String moduleName) {
 		IPCoreStorage ipcs = new IPCoreStorage(moduleName);
-		internalCoreMap.put(ipc, ipcs);
+		internalCoreMap().put(ipc, ipcs);
 	}
 
 	/**
@@ -89,7 +94,7 @@ public class Core {
 	 * @return the IPCoreStorage for the specified IPCore
 	 */
 	public static IPCoreStorage getIPCoreStorage(IPCore ipc) {
-		return internalCoreMap.get(ipc);
+		return internalCoreMap().get(ipc);
 	}
 
 	/**
@@ -118,7 +123,7 @@ public class Core {
 	 * @return true if no IPCore objects have been registered.
 	 */
 	public static boolean isEmpty() {
-		return internalCoreMap.isEmpty();
+		return internalCoreMap().isEmpty();
 	}
 
 	/**
@@ -128,7 +133,7 @@ public class Core {
 	 * @return a Collection of IPCoreStorage objects
 	 */
 	public static Collection<IPCoreStorage> getIPCoreStorages() {
-		return new HashSet<IPCoreStorage>(internalCoreMap.values());
+		return new HashSet<IPCoreStorage>(internalCoreMap().values());
 	}
 
 	/**
@@ -163,7 +168,7 @@ public class Core {
 	 */
 	@SuppressWarnings("unchecked")
 	public static Map<IPCore, IPCoreStorage> cloneIPCoreMap() {
-		return (Map<IPCore, IPCoreStorage>) internalCoreMap.clone();
+		return (Map<IPCore, IPCoreStorage>) internalCoreMap().clone();
 	}
 
 	/**
@@ -175,7 +180,7 @@ public class Core {
 	public static void setIPCoreMap(Map<IPCore, IPCoreStorage> m) {
 		clearIPCoreMap();
 		for (Entry<IPCore, IPCoreStorage> entry : m.entrySet()) {
-			internalCoreMap.put(entry.getKey(), entry.getValue());
+			internalCoreMap().put(entry.getKey(), entry.getValue());
 		}
 	}
 
@@ -183,7 +188,7 @@ public class Core {
 	 * Clears all entries in the internal IPCore->IPCoreStorage map.
 	 */
 	public static void clearIPCoreMap() {
-		internalCoreMap.clear();
+		internalCoreMap().clear();
 	}
 
 }
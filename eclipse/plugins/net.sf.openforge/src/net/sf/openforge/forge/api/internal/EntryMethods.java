@@ -21,6 +21,7 @@ import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Set;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.forge.api.entry.EntryMethod;
 
 /**
@@ -32,8 +33,12 @@ public class EntryMethods {
 
 	public static volatile boolean runAutoStarts = true;
 
-	/** Set of entry methods */
-	private static final HashSet<EntryMethod> entrySet = new HashSet<EntryMethod>();
+	/**
+	 * Returns the set of entry methods of the current compilation.
+	 */
+	private static HashSet<EntryMethod> entrySet() {
+		return CompilationContext.current().getEntryMethods();
+	}
 
 	// only we call this
 	private EntryMethods() {
@@ -43,7 +48,7 @@ public class EntryMethods {
 	 * Clears the Collection of EntryMethods maintained by this class.
 	 */
 	public static void clearEntryMethods() {
-		entrySet.clear();
+		entrySet().clear();
 	}
 
 	/**
@@ -52,7 +57,7 @@ public class EntryMethods {
 	 * @return a 'Set' of EntryMethod objects.
 	 */
 	public static Set<EntryMethod> getEntryMethods() {
-		return entrySet;
+		return entrySet();
 	}
 
 	/**
@@ -62,7 +67,7 @@ public class EntryMethods {
 	 */
 	@SuppressWarnings("unchecked")
 	public static Set<EntryMethod> cloneEntryMethods() {
-		return (Set<EntryMethod>) entrySet.clone();
+		return (Set<EntryMethod>) entrySet().clone();
 	}
 
 	/**
@@ -73,7 +78,7 @@ public class EntryMethods {
 	 * 
 	 */
 	public static void setEntryMethods(Set<EntryMethod> s) {
-		entrySet.addAll(s);
+		entrySet().addAll(s);
 	}
 
 	/**
@@ -84,7 +89,7 @@ public class EntryMethods {
 	 * @return true if the EntryMethod is found
 	 */
 	public static boolean contains(EntryMethod em) {
-		return entrySet.contains(em);
+		return entrySet().contains(em);
 	}
 
 	/**
@@ -96,6 +101,7 @@ public class EntryMethods {
 	 */
 	public static boolean add(EntryMethod em) {
 		boolean ret = false;
+		final Set<EntryMethod> entrySet = entrySet();
 		synchronized (entrySet) {
 			ret = entrySet.add(em);
 		}
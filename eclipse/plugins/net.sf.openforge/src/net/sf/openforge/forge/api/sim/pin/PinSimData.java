@@ -20,6 +20,7 @@ import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.forge.api.pin.Buffer;
 import net.sf.openforge.forge.api.pin.ClockDomain;
 import net.sf.openforge.forge.api.pin.RestrictedPin;
@@ -50,10 +51,19 @@ import net.sf.openforge.forge.api.pin.RestrictedPin;
  * <p>
  */
 public class PinSimData {
-	private static HashMap<Buffer, SequentialPinData> mapPinToDriveData = new HashMap<Buffer, SequentialPinData>(
-			11);
-	private static HashMap<Buffer, SequentialPinData> mapPinToTestData = new HashMap<Buffer, SequentialPinData>(
-			11);
+	/**
+	 * Returns the drive data map of the current compilation.
+	 */
+	private static HashMap<Buffer, SequentialPinData> mapPinToDriveData() {
+		return CompilationContext.current().getPinDriveData();
+	}
+
+	/**
+	 * Returns the test data map of the current compilation.
+	 */
+	private static HashMap<Buffer, SequentialPinData> mapPinToTestData() {
+		return CompilationContext.current().getPinTestData();
+	}
 
 	private PinSimData() {
 	}
@@ -68,7 +78,7 @@ public class PinSimData {
 	 *            a value of type 'PinData'
 	 */
 	public static void setDriveData(Buffer pin, PinData pinData) {
-		mapPinToDriveData.put(pin, new SequentialPinData(pinData));
+		mapPinToDriveData().put(pin, new SequentialPinData(pinData));
 	}
 
 	/**
@@ -81,7 +91,7 @@ public class PinSimData {
 	 *            a value of type 'PinData'
 	 */
 	public static void setTestData(Buffer pin, PinData pinData) {
-		mapPinToTestData.put(pin, new SequentialPinData(pinData));
+		mapPinToTestData().put(pin, new SequentialPinData(pinData));
 	}
 
 	/**
@@ -123,7 +133,7 @@ public class PinSimData {
 	 */
 	public static void setDriveData(RestrictedPin rpin, PinData pinData,
 			ClockDomain domain) {
-		mapPinToDriveData.put(getOriginalBuffer(rpin), new SequentialPinData(
+		mapPinToDriveData().put(getOriginalBuffer(rpin), new SequentialPinData(
 				pinData));
 		rpin.setDomain(domain);
 	}
@@ -141,7 +151,7 @@ public class PinSimData {
 	 */
 	public static void setTestData(RestrictedPin rpin, PinData pinData,
 			ClockDomain domain) {
-		mapPinToTestData.put(getOriginalBuffer(rpin), new SequentialPinData(
+		mapPinToTestData().put(getOriginalBuffer(rpin), new SequentialPinData(
 				pinData));
 		rpin.setDomain(domain);
 	}
@@ -156,7 +166,7 @@ public class PinSimData {
 	 */
 	public static PinData getDriveData(Buffer pin) {
 
-		PinData pd = mapPinToDriveData.get(pin);
+		PinData pd = mapPinToDriveData().get(pin);
 
 		if (pd == null) {
 			pd = new SequentialPinData();
@@ -174,7 +184,7 @@ public class PinSimData {
 	 * @return a value of type 'PinSimData'
 	 */
 	public static PinData getTestData(Buffer pin) {
-		PinData pd = mapPinToTestData.get(pin);
+		PinData pd = mapPinToTestData().get(pin);
 		if (pd == null) {
 			pd = new SequentialPinData();
 			setTestData(pin, pd);
@@ -187,26 +197,26 @@ public class PinSimData {
 	 * 
 	 */
 	public static void clear() {
-		mapPinToDriveData.clear();
-		mapPinToTestData.clear();
+		mapPinToDriveData().clear();
+		mapPinToTestData().clear();
 	}
 
 	public static Map<Buffer, SequentialPinData> getDriveMap() {
-		return mapPinToDriveData;
+		return mapPinToDriveData();
 	}
 
 	@SuppressWarnings("unchecked")
 	public static Map<Buffer, SequentialPinData> cloneDriveMap() {
-		return (Map<Buffer, SequentialPinData>) mapPinToDriveData.clone();
+		return (Map<Buffer, SequentialPinData>) mapPinToDriveData().clone();
 	}
 
 	public static Map<Buffer, SequentialPinData> getTestMap() {
-		return mapPinToTestData;
+		return mapPinToTestData();
 	}
 
 	@SuppressWarnings("unchecked")
 	public static Map<Buffer, SequentialPinData> cloneTestMap() {
-		return (Map<Buffer, SequentialPinData>) mapPinToTestData.clone();
+		return (Map<Buffer, SequentialPinData>) mapPinToTestData().clone();
 	}
 
 	public static void setDriveData(Map<Buffer, SequentialPinData> m) {
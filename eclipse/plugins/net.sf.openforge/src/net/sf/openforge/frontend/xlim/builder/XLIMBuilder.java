@@ -20,6 +20,9 @@ import static net.sf.openforge.util.xml.Util.xpathEvalNode;
 
 import javax.xml.transform.Transformer;
 
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.app.GenericJob;
+import net.sf.openforge.app.OptionRegistry;
 import net.sf.openforge.frontend.slim.builder.SLIMBuilder;
 import net.sf.openforge.frontend.slim.builder.SLIMConstants;
 import net.sf.openforge.lim.Design;
@@ -73,8 +76,58 @@ public class XLIMBuilder extends org.xml.sax.helpers.DefaultHandler {
 		return slimBuilder.build(slimDesignElement);
 	}
 
+	/**
+	 * Lowers an XLIM document to SLIM. The XSLT stylesheets are used unless
+	 * the native stages are selected; in diff mode both lowerings are run, the
+	 * first difference is reported and the selected lowering is kept.
+	 */
 	public Node xlim2slim(Node n) throws Exception {
-		return Util.applyTransforms(n, xlimTransforms);
+		GenericJob gj = EngineThread.getGenericJob();
+		boolean runNative = gj
+				.getUnscopedBooleanOptionValue(OptionRegistry.XXLIM_NATIVE);
+		boolean diff = gj.getUnscopedBooleanOptionValue(OptionRegistry.XXLIM_DIFF);
+		if (!runNative && !diff) {
+			return Util.applyTransforms(n, xlimTransforms);
+		}
+		if (!diff) {
+			return lower(n);
+		}
+
+		Node reference = Util.applyTransforms(n, xlimTransforms);
+		Node slim = lower(n);
+		String difference = new XLIMDiff().compare(reference, slim);
+		if (difference == null) {
+			gj.info("XLIM lowering: identical to the XSLT lowering");
+		} else {
+			gj.warn("XLIM lowering differs from the XSLT lowering at "
+					+ difference);
+		}
+		return runNative ? slim : reference;
+	}
+
+	/**
+	 * Applies the lowering stages in order. The stages which only rewrite
+	 * attributes element by element are run by {@link XLIMNativePasses} on the
+	 * document produced by the previous stylesheet; the twelve others,
+	 * including all the expensive ones, are still run as stylesheets. The
+	 * input node is never modified since the first stage is a stylesheet.
+	 */
+	private Node lower(Node n) throws Exception {
+		XLIMNativePasses nativePasses = new XLIMNativePasses();
+		Node doc = n;
+		for (int i = 0; i < xlimTransformPaths.length; i++) {
+			String path = xlimTransformPaths[i];
+			if (i > 0 && path.endsWith("/XLIMTagify.xslt")) {
+				doc = nativePasses.tagify(doc);
+			} else if (i > 0 && path.endsWith("/XLIMMakePortNames.xslt")) {
+				doc = nativePasses.makePortNames(doc);
+			} else if (i > 0 && path.endsWith("/XLIMFixNames.xslt")) {
+				doc = nativePasses.fixNames(doc);
+			} else {
+				doc = Util.applyTransform(doc, xlimTransforms[i]);
+			}
+		}
+		return doc;
 	}
 
 	private final SLIMBuilder slimBuilder;
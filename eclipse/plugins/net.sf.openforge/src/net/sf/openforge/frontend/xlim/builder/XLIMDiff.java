@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.frontend.xlim.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * XLIMDiff compares the SLIM documents produced by two lowerings of the same
+ * XLIM document. The generated identifiers (tags and names created with
+ * generate-id() or by {@link XLIMNativePasses}) differ between the lowerings,
+ * so within the attributes which hold identifiers, a generated identifier is
+ * considered equal to another one when they are consistently renamed: each
+ * identifier of the first document always corresponds to the same identifier
+ * of the second document, and conversely. Any other value, including the parts
+ * of an identifier around the generated one, must be identical.
+ */
+public class XLIMDiff {
+
+	/** The attributes which name or refer to an element or a port **/
+	private static final Collection<String> IDENTIFIER_ATTRIBUTES = new HashSet<String>(
+			Arrays.asList("tag", "name", "source", "tsource", "dest",
+					"decision", "loopTag", "portName", "sourceName", "newName"));
+
+	/**
+	 * A generated identifier: generate-id() of Saxon (d0e12) or of
+	 * {@link XLIMNativePasses} (n12), possibly behind the prefix the
+	 * stylesheets put in front of it.
+	 */
+	private static final Pattern GENERATED_ID = Pattern
+			.compile("(z|pz|dz|dd)?(d\\d+[a-z]\\d+|n\\d+)");
+
+	private final Map<String, String> forward = new HashMap<String, String>();
+
+	private final Map<String, String> backward = new HashMap<String, String>();
+
+	/**
+	 * Compares two documents.
+	 * 
+	 * @param expected
+	 *            the reference document
+	 * @param actual
+	 *            the document to check
+	 * @return a description of the first difference, or null if the documents
+	 *         are equivalent
+	 */
+	public String compare(Node expected, Node actual) {
+		return compare(root(expected), root(actual), "");
+	}
+
+	private String compare(Element expected, Element actual, String path) {
+		path = path + "/" + expected.getNodeName();
+		String tag = expected.getAttribute("tag");
+		if (tag.length() > 0) {
+			path = path + "[@tag='" + tag + "']";
+		}
+		if (!expected.getNodeName().equals(actual.getNodeName())) {
+			return path + ": element " + actual.getNodeName()
+					+ " instead of " + expected.getNodeName();
+		}
+
+		NamedNodeMap expectedAttrs = expected.getAttributes();
+		NamedNodeMap actualAttrs = actual.getAttributes();
+		if (expectedAttrs.getLength() != actualAttrs.getLength()) {
+			return path + ": " + actualAttrs.getLength()
+					+ " attributes instead of " + expectedAttrs.getLength();
+		}
+		for (int i = 0; i < expectedAttrs.getLength(); i++) {
+			Node attr = expectedAttrs.item(i);
+			if (!actual.hasAttribute(attr.getNodeName())) {
+				return path + ": missing attribute " + attr.getNodeName();
+			}
+			String expectedValue = attr.getNodeValue();
+			String actualValue = actual.getAttribute(attr.getNodeName());
+			if (!match(attr.getNodeName(), expectedValue, actualValue)) {
+				return path + "/@" + attr.getNodeName() + ": " + actualValue
+						+ " instead of " + expectedValue;
+			}
+		}
+
+		List<Node> expectedChildren = children(expected);
+		List<Node> actualChildren = children(actual);
+		if (expectedChildren.size() != actualChildren.size()) {
+			return path + ": " + actualChildren.size()
+					+ " children instead of " + expectedChildren.size();
+		}
+		for (int i = 0; i < expectedChildren.size(); i++) {
+			Node expectedChild = expectedChildren.get(i);
+			Node actualChild = actualChildren.get(i);
+			String diff;
+			if (expectedChild.getNodeType() == Node.ELEMENT_NODE
+					&& actualChild.getNodeType() == Node.ELEMENT_NODE) {
+				diff = compare((Element) expectedChild, (Element) actualChild,
+						path);
+			} else if (expectedChild.getNodeType() != Node.ELEMENT_NODE
+					&& actualChild.getNodeType() != Node.ELEMENT_NODE) {
+				diff = expectedChild.getNodeValue().trim()
+						.equals(actualChild.getNodeValue().trim()) ? null
+						: path + ": text " + actualChild.getNodeValue()
+								+ " instead of "
+								+ expectedChild.getNodeValue();
+			} else {
+				diff = path + ": child " + i + " is a different kind of node";
+			}
+			if (diff != null) {
+				return diff;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compares two values of an attribute. The values of the identifier
+	 * attributes are split at each underscore; the generated identifiers found
+	 * this way must be renamed consistently and everything else must be
+	 * identical. The values of the other attributes must be identical.
+	 */
+	private boolean match(String attribute, String expected, String actual) {
+		if (!IDENTIFIER_ATTRIBUTES.contains(attribute)) {
+			return expected.equals(actual);
+		}
+		String[] expectedParts = expected.split("_", -1);
+		String[] actualParts = actual.split("_", -1);
+		if (expectedParts.length != actualParts.length) {
+			return false;
+		}
+		for (int i = 0; i < expectedParts.length; i++) {
+			Matcher expectedId = GENERATED_ID.matcher(expectedParts[i]);
+			Matcher actualId = GENERATED_ID.matcher(actualParts[i]);
+			boolean expectedGenerated = expectedId.matches();
+			boolean actualGenerated = actualId.matches();
+			if (expectedGenerated && actualGenerated) {
+				if (!String.valueOf(expectedId.group(1)).equals(
+						String.valueOf(actualId.group(1)))
+						|| !rename(expectedId.group(2), actualId.group(2))) {
+					return false;
+				}
+			} else if (expectedGenerated || actualGenerated
+					|| !expectedParts[i].equals(actualParts[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that the renaming of the generated identifiers stays a one to one
+	 * mapping.
+	 */
+	private boolean rename(String expected, String actual) {
+		String mapped = forward.get(expected);
+		String reverse = backward.get(actual);
+		if (mapped == null && reverse == null) {
+			forward.put(expected, actual);
+			backward.put(actual, expected);
+			return true;
+		}
+		return actual.equals(mapped) && expected.equals(reverse);
+	}
+
+	/**
+	 * Returns the element and non blank text children of an element.
+	 */
+	private List<Node> children(Element element) {
+		List<Node> children = new ArrayList<Node>();
+		for (Node child = element.getFirstChild(); child != null; child = child
+				.getNextSibling()) {
+			short type = child.getNodeType();
+			if (type == Node.ELEMENT_NODE) {
+				children.add(child);
+			} else if ((type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE)
+					&& child.getNodeValue().trim().length() > 0) {
+				children.add(child);
+			}
+		}
+		return children;
+	}
+
+	private Element root(Node node) {
+		if (node instanceof Document) {
+			return ((Document) node).getDocumentElement();
+		}
+		return (Element) node;
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.frontend.xlim.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * XLIMNativePasses implements in Java the stylesheets of the XLIM to SLIM
+ * lowering which only rewrite the attributes of each element independently of
+ * the rest of the document (XLIMTagify, XLIMMakePortNames and XLIMFixNames).
+ * Contrary to the stylesheets, the passes modify the document in place instead
+ * of building a new one. The identifiers created by the stylesheets with
+ * generate-id() are replaced by identifiers unique within one lowering.
+ * <p>
+ * Only these stages are native. The stages which restructure the document
+ * (loops, control, port routing, dependencies, PHIs and exits) and the typing
+ * stages are still run as stylesheets, each on a complete DOM, so the native
+ * lowering is not streamed and saves only the cost of the three stages above.
+ */
+public class XLIMNativePasses {
+
+	/** The counter of the identifiers generated by the passes **/
+	private int nextId = 0;
+
+	/**
+	 * Equivalent of XLIMTagify.xslt: gives every element a unique tag
+	 * attribute, overwriting any existing tag.
+	 * 
+	 * @param doc
+	 *            the document to modify
+	 * @return the modified document
+	 */
+	public Node tagify(Node doc) {
+		for (Element element : elements(doc)) {
+			element.setAttribute("tag", generateId());
+		}
+		return doc;
+	}
+
+	/**
+	 * Equivalent of XLIMMakePortNames.xslt: creates a unique name for each
+	 * input port and a copy of the source attribute for each output port. An
+	 * existing port name is not overwritten.
+	 * 
+	 * @param doc
+	 *            the document to modify
+	 * @return the modified document
+	 */
+	public Node makePortNames(Node doc) {
+		for (Element element : elements(doc)) {
+			if (element.getNodeName().equals("port")
+					&& !element.hasAttribute("name")) {
+				if (element.getAttribute("dir").equals("in")) {
+					element.setAttribute("name", generateId() + "_inPort");
+				} else {
+					element.setAttribute("name", element.getAttribute("source"));
+				}
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Equivalent of XLIMFixNames.xslt: replaces any name or source attribute
+	 * with a value of FIXME by a unique identifier.
+	 * 
+	 * @param doc
+	 *            the document to modify
+	 * @return the modified document
+	 */
+	public Node fixNames(Node doc) {
+		for (Element element : elements(doc)) {
+			boolean fixName = element.getAttribute("name").equals("FIXME");
+			boolean fixSource = element.getAttribute("source").equals("FIXME");
+			if (fixName || fixSource) {
+				String id = "z" + generateId();
+				if (fixName) {
+					element.setAttribute("name", id);
+				}
+				if (fixSource) {
+					element.setAttribute("source", id);
+				}
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Returns the elements of the document in document order. As the
+	 * stylesheets do, the comments, processing instructions and white space
+	 * only text nodes are removed on the way.
+	 */
+	private List<Element> elements(Node doc) {
+		List<Element> elements = new ArrayList<Element>();
+		Node root = doc instanceof Document ? doc : doc.getOwnerDocument();
+		collect(root, elements);
+		return elements;
+	}
+
+	private void collect(Node node, List<Element> elements) {
+		if (node.getNodeType() == Node.ELEMENT_NODE) {
+			elements.add((Element) node);
+		}
+		Node child = node.getFirstChild();
+		while (child != null) {
+			Node next = child.getNextSibling();
+			switch (child.getNodeType()) {
+			case Node.COMMENT_NODE:
+			case Node.PROCESSING_INSTRUCTION_NODE:
+				node.removeChild(child);
+				break;
+			case Node.TEXT_NODE:
+			case Node.CDATA_SECTION_NODE:
+				if (child.getNodeValue().trim().length() == 0) {
+					node.removeChild(child);
+				}
+				break;
+			case Node.ELEMENT_NODE:
+				collect(child, elements);
+				break;
+			default:
+				break;
+			}
+			child = next;
+		}
+	}
+
+	/**
+	 * The identifiers of the stylesheets start with the letter d, the ones
+	 * generated here with an n, so that both never collide.
+	 */
+	private String generateId() {
+		return "n" + nextId++;
+	}
+
+}
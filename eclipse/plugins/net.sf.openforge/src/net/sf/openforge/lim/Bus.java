@@ -23,8 +23,8 @@ package net.sf.openforge.lim;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 
+import net.sf.openforge.util.OrderedSet;
 import net.sf.openforge.util.naming.ID;
 import net.sf.openforge.util.naming.IDSourceInfo;
 
@@ -63,10 +63,10 @@ public class Bus extends ID {
 	private Port peer = null;
 
 	/** Collection of Ports; accessed directly by Port */
-	Collection<Port> ports = new HashSet<Port>(3);
+	Collection<Port> ports = new OrderedSet<Port>(3);
 
 	/** Collection of Dependencys; accessed directly by Dependency */
-	Collection<Dependency> logicalDependents = new HashSet<Dependency>(3);
+	Collection<Dependency> logicalDependents = new OrderedSet<Dependency>(3);
 
 	/** True if significant, false if ignorable */
 	private boolean isUsed = false;
@@ -270,7 +270,7 @@ public class Bus extends ID {
 			//
 			//
 			// make sure we get no dups to process
-			HashSet<Port> hs = new HashSet<Port>();
+			Collection<Port> hs = new OrderedSet<Port>();
 
 			// for all logicals
 			for (Dependency d : getLogicalDependents()) {
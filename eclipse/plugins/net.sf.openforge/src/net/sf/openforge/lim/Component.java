@@ -23,7 +23,6 @@ package net.sf.openforge.lim;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -88,7 +87,7 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 	protected List<Entry> entries = new LinkedList<Entry>();
 
 	/** Map of Exit.Tag to Exit */
-	Map<Exit.Tag, Exit> exits = new HashMap<Exit.Tag, Exit>();
+	Map<Exit.Tag, Exit> exits = new LinkedHashMap<Exit.Tag, Exit>();
 
 	/** Natural log of 2 */
 	private static final double LN_2 = Math.log(2);
@@ -229,7 +228,11 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 				throw sme;
 			}
 		}
-		return pushValuesForward();
+		if (pushValuesForward()) {
+			recordModification();
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -243,7 +246,23 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 		for (Bus bus : getBuses()) {
 			bus.pushValueBackward();
 		}
-		return pushValuesBackward();
+		if (pushValuesBackward()) {
+			recordModification();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records that this component was modified, which counts as a
+	 * modification of each module containing it.
+	 * 
+	 * @see Module#getModificationCount()
+	 */
+	protected void recordModification() {
+		if (owner != null) {
+			owner.recordModification();
+		}
 	}
 
 	/**
@@ -580,6 +599,7 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 	public void removeExit(Exit exit) {
 		assert exits.containsKey(exit.getTag());
 		exits.remove(exit.getTag());
+		DataFlowOrder.invalidate(this);
 	}
 
 	/**
@@ -664,6 +684,7 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 			}
 
 			removeDependencies(port);
+			DataFlowOrder.invalidate(this);
 			return true;
 		}
 		return false;
@@ -688,6 +709,7 @@ public abstract class Component extends ID implements Visitable, Cloneable,
 	public boolean removeDataBus(Bus bus) {
 		for (Exit exit : getExits()) {
 			if (exit.removeDataBus(bus)) {
+				DataFlowOrder.invalidate(this);
 				return true;
 			}
 		}
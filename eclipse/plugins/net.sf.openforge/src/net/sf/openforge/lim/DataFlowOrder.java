@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.lim;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DataFlowOrder is the order in which a {@link DataFlowVisitor} visits the
+ * components of a {@link Module}, forward and in reverse, together with the
+ * feedback points which are visited last. It is computed on demand and cached
+ * by the module, which drops it whenever one of its components is added or
+ * removed, or a connection or dependency of one of its components changes.
+ * The order is therefore shared by all the data flow visitors which traverse
+ * the module until it is modified.
+ * <p>
+ * The ordering algorithm is the one DataFlowVisitor always used, a queue from
+ * which components not yet ready are pulled to the front, but the queue is
+ * indexed so that moving a component is no longer linear in the size of the
+ * module.
+ */
+final class DataFlowOrder {
+
+	/** The feedback points this order was computed for */
+	private final Set<Component> feedbackPoints;
+
+	private final Module module;
+
+	private Component[] forward = null;
+	private Component[] forwardFeedback = null;
+	private Component[] reverse = null;
+	private Component[] reverseFeedback = null;
+
+	/** False once the module has been modified */
+	private boolean valid = true;
+
+	DataFlowOrder(Module module, Set<Component> feedbackPoints) {
+		this.module = module;
+		this.feedbackPoints = new HashSet<Component>(feedbackPoints);
+	}
+
+	/**
+	 * Tests whether this order was computed for the given feedback points.
+	 */
+	boolean isFor(Set<Component> feedbackPoints) {
+		return this.feedbackPoints.equals(feedbackPoints);
+	}
+
+	/**
+	 * Returns false once the module has been modified since this order was
+	 * computed.
+	 */
+	boolean isValid() {
+		return valid;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Gets the components in forward data flow order, excluding the feedback
+	 * points.
+	 */
+	Component[] getForward() {
+		if (forward == null) {
+			Set<Component> feedback = new LinkedHashSet<Component>(
+					feedbackPoints);
+			List<Component> order = new ArrayList<Component>();
+			orderForward(module.getComponents(), new HashSet<Component>(
+					feedbackPoints), feedback, order, null);
+			forward = order.toArray(new Component[order.size()]);
+			forwardFeedback = feedback.toArray(new Component[feedback.size()]);
+		}
+		return forward;
+	}
+
+	/**
+	 * Gets the feedback points, including the gateways, to be visited after
+	 * {@link #getForward}.
+	 */
+	Component[] getForwardFeedback() {
+		getForward();
+		return forwardFeedback;
+	}
+
+	/**
+	 * Gets the components in reverse data flow order, excluding the feedback
+	 * points but including the gateways.
+	 */
+	Component[] getReverse() {
+		if (reverse == null) {
+			Set<Component> feedback = new LinkedHashSet<Component>(
+					feedbackPoints);
+			List<Component> order = new ArrayList<Component>();
+			orderReverse(module.getComponents(), new HashSet<Component>(
+					feedbackPoints), feedback, order, null);
+			reverse = order.toArray(new Component[order.size()]);
+			reverseFeedback = feedback.toArray(new Component[feedback.size()]);
+		}
+		return reverse;
+	}
+
+	/**
+	 * Gets the feedback points, including the gateways, to be visited after
+	 * {@link #getReverse}.
+	 */
+	Component[] getReverseFeedback() {
+		getReverse();
+		return reverseFeedback;
+	}
+
+	/**
+	 * Orders the given components so that each comes after the components it
+	 * depends on.
+	 * 
+	 * @param components
+	 *            the components to order, in their initial order
+	 * @param processed
+	 *            the components already ordered, updated by this method
+	 * @param feedback
+	 *            the feedback points, to which the gateways are added
+	 * @param order
+	 *            receives the ordered components if not null
+	 * @param visitor
+	 *            visits each component in order if not null
+	 */
+	static void orderForward(Collection<Component> components,
+			Set<Component> processed, Set<Component> feedback,
+			List<Component> order, Visitor visitor) {
+		Queue queue = new Queue(components);
+
+		while (!queue.isEmpty()) {
+			Component comp = queue.removeFirst();
+			if (processed.contains(comp)) {
+				continue;
+			}
+
+			// Gateways represent implicit feedback points if the
+			// accessed module has both read and write accesses to the
+			// given resource.
+			if (comp.isGateway()) {
+				processed.add(comp);
+				feedback.add(comp);
+				continue;
+			}
+
+			// Ensure that all inputs have been processed
+			Set<Component> depenComponentsSet = new HashSet<Component>();
+			for (Port port : comp.getPorts()) {
+				if (port.getBus() != null) {
+					Component depenComp = port.getBus().getOwner().getOwner();
+					if (!processed.contains(depenComp)) {
+						depenComponentsSet.add(depenComp);
+						queue.moveFirst(depenComp);
+					}
+					for (Entry entry : comp.getEntries()) {
+						for (Dependency dep : entry.getDependencies(port)) {
+							depenComp = dep.getLogicalBus().getOwner()
+									.getOwner();
+							if (dep instanceof ResourceDependency
+									&& !processed.contains(depenComp)) {
+								depenComponentsSet.add(depenComp);
+								queue.moveFirst(depenComp);
+							}
+						}
+					}
+				} else {
+					// Iterate through the dependencies...
+					for (Entry entry : comp.getEntries()) {
+						for (Dependency dep : entry.getDependencies(port)) {
+							Component depenComp = dep.getLogicalBus()
+									.getOwner().getOwner();
+							if (!processed.contains(depenComp)) {
+								depenComponentsSet.add(depenComp);
+								queue.moveFirst(depenComp);
+							}
+						}
+					}
+				}
+			}
+
+			if (depenComponentsSet.isEmpty()) {
+				processed.add(comp);
+				if (order != null) {
+					order.add(comp);
+				}
+				if (visitor != null) {
+					comp.accept(visitor);
+				}
+			} else {
+				// if the component is not ready, put it back in the queue at
+				// the appropriate position.
+				queue.add(depenComponentsSet.size(), comp);
+			}
+		}
+	}
+
+	/**
+	 * Orders the given components so that each comes after the components
+	 * which consume its buses. The parameters are those of
+	 * {@link #orderForward}, except that the gateways are ordered as well as
+	 * added to the feedback points.
+	 */
+	static void orderReverse(Collection<Component> components,
+			Set<Component> processed, Set<Component> feedback,
+			List<Component> order, Visitor visitor) {
+		Queue queue = new Queue(components);
+
+		while (!queue.isEmpty()) {
+			Component comp = queue.removeFirst();
+			if (processed.contains(comp)) {
+				continue;
+			}
+			// Gateways represent implicit feedback points if the
+			// accessed module has both read and write accesses to the
+			// given resource.
+			if (comp.isGateway()) {
+				processed.add(comp);
+				feedback.add(comp);
+				if (order != null) {
+					order.add(comp);
+				}
+				if (visitor != null) {
+					comp.accept(visitor);
+				}
+				continue;
+			}
+
+			// Ensure that all consumers have been processed.
+			boolean isReady = true;
+			for (Bus bus : comp.getBuses()) {
+				Collection<Port> ports;
+				if (bus.getPorts().size() > 0) {
+					ports = new HashSet<Port>(bus.getPorts());
+					// Pick up any resource dependencies as well to
+					// guarantee correct data flow ordering through
+					// global resources.
+					for (Dependency dep : bus.getLogicalDependents()) {
+						if (dep instanceof ResourceDependency) {
+							ports.add(dep.getPort());
+						}
+					}
+				} else {
+					ports = new LinkedList<Port>();
+					for (Dependency dependency : bus.getLogicalDependents()) {
+						ports.add(dependency.getPort());
+					}
+				}
+				for (Port port : ports) {
+					if (!processed.contains(port.getOwner())) {
+						isReady = false;
+						queue.moveFirst(port.getOwner());
+					}
+				}
+				if (!isReady) {
+					queue.add(comp); // Put it back on the list.
+					break;
+				}
+			}
+
+			if (isReady) {
+				processed.add(comp);
+				if (order != null) {
+					order.add(comp);
+				}
+				if (visitor != null) {
+					comp.accept(visitor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the cached order of the module which contains the given
+	 * component, if any.
+	 */
+	static void invalidate(Component component) {
+		if (component != null && component.getOwner() != null) {
+			component.getOwner().invalidateDataFlowOrder();
+		}
+	}
+
+	/**
+	 * Drops the cached order of the module which contains the owner of the
+	 * given bus, if any.
+	 */
+	static void invalidate(Bus bus) {
+		if (bus != null && bus.getOwner() != null) {
+			invalidate(bus.getOwner().getOwner());
+		}
+	}
+
+	/**
+	 * A queue of distinct components, indexed so that any component may be
+	 * moved to its front in constant time.
+	 */
+	private static class Queue {
+		private static class Node {
+			private final Component component;
+			private Node prev;
+			private Node next;
+
+			private Node(Component component) {
+				this.component = component;
+			}
+		}
+
+		private final Map<Component, Node> nodes = new HashMap<Component, Node>();
+		private Node head = null;
+		private Node tail = null;
+
+		private Queue(Collection<Component> components) {
+			for (Component component : components) {
+				add(component);
+			}
+		}
+
+		private boolean isEmpty() {
+			return head == null;
+		}
+
+		private Component removeFirst() {
+			Node node = head;
+			unlink(node);
+			return node.component;
+		}
+
+		/**
+		 * Adds the component at the end of the queue.
+		 */
+		private void add(Component component) {
+			Node node = new Node(component);
+			node.prev = tail;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			nodes.put(component, node);
+		}
+
+		/**
+		 * Inserts the component at the given position of the queue.
+		 */
+		private void add(int index, Component component) {
+			Node next = head;
+			for (int i = 0; i < index; i++) {
+				next = next.next;
+			}
+			if (next == null) {
+				add(component);
+				return;
+			}
+			Node node = new Node(component);
+			node.next = next;
+			node.prev = next.prev;
+			if (next.prev == null) {
+				head = node;
+			} else {
+				next.prev.next = node;
+			}
+			next.prev = node;
+			nodes.put(component, node);
+		}
+
+		/**
+		 * Moves the component to the front of the queue, adding it if it is
+		 * not in the queue.
+		 */
+		private void moveFirst(Component component) {
+			Node node = nodes.get(component);
+			if (node != null) {
+				unlink(node);
+			}
+			node = new Node(component);
+			node.next = head;
+			if (head == null) {
+				tail = node;
+			} else {
+				head.prev = node;
+			}
+			head = node;
+			nodes.put(component, node);
+		}
+
+		private void unlink(Node node) {
+			if (node.prev == null) {
+				head = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			nodes.remove(node.component);
+		}
+	}
+}
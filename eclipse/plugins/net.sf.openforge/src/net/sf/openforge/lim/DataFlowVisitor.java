@@ -21,10 +21,9 @@
 
 package net.sf.openforge.lim;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.Set;
 
 import net.sf.openforge.lim.io.FifoAccess;
@@ -335,75 +334,31 @@ public abstract class DataFlowVisitor implements Visitor {
 			_lim.ln(_lim.DFV, "NON-Component Traversal " + node);
 	}
 
+	/**
+	 * Visits the components of the module so that each is visited after the
+	 * components it depends on, then visits the feedback points. The order is
+	 * cached by the module; should the module be modified by the visit, the
+	 * remaining components are ordered against the modified module.
+	 */
 	protected void traverseModuleForward(Module module,
 			Set<Component> feedbackComps) {
-		Set<Component> processed = new HashSet<Component>();
-		Set<Component> feedback = new LinkedHashSet<Component>(feedbackComps);
-		processed.addAll(feedback);
-		LinkedList<Component> queue = new LinkedList<Component>(
-				module.getComponents());
-
-		while (!queue.isEmpty()) {
-			Component comp = queue.removeFirst();
-			if (processed.contains(comp)) {
-				continue;
-			}
-
-			// Gateways represent implicit feedback points if the
-			// accessed module has both read and write accesses to the
-			// given resource.
-			if (comp.isGateway()) {
-				processed.add(comp);
-				feedback.add(comp);
-				continue;
-			}
-
-			// Ensure that all inputs have been processed
-			Set<Component> depenComponentsSet = new HashSet<Component>();
-			for (Port port : comp.getPorts()) {
-				if (port.getBus() != null) {
-					Component depenComp = port.getBus().getOwner().getOwner();
-					if (!processed.contains(depenComp)) {
-						depenComponentsSet.add(depenComp);
-						queue.remove(depenComp);
-						queue.addFirst(depenComp);
-					}
-					for (Entry entry : comp.getEntries()) {
-						for (Dependency dep : entry.getDependencies(port)) {
-							depenComp = dep.getLogicalBus().getOwner()
-									.getOwner();
-							if (dep instanceof ResourceDependency
-									&& !processed.contains(depenComp)) {
-								depenComponentsSet.add(depenComp);
-								queue.remove(depenComp);
-								queue.addFirst(depenComp);
-							}
-						}
-					}
-				} else {
-					// Iterate through the dependencies...
-					for (Entry entry : comp.getEntries()) {
-						for (Dependency dep : entry.getDependencies(port)) {
-							Component depenComp = dep.getLogicalBus()
-									.getOwner().getOwner();
-							if (!processed.contains(depenComp)) {
-								depenComponentsSet.add(depenComp);
-								queue.remove(depenComp);
-								queue.addFirst(depenComp);
-							}
-						}
-					}
-				}
-			}
-
-			if (depenComponentsSet.isEmpty()) {
-				processed.add(comp);
-				comp.accept(this);
-			} else {
-				// if the component is not ready, put it back in the queue at
-				// the appropriate position.
-				queue.add(depenComponentsSet.size(), comp);
-			}
+		DataFlowOrder order = module.getDataFlowOrder(feedbackComps);
+		Component[] components = order.getForward();
+		Component[] feedback = order.getForwardFeedback();
+		int i = 0;
+		while (i < components.length && order.isValid()) {
+			components[i++].accept(this);
+		}
+		if (i < components.length) {
+			Set<Component> processed = new HashSet<Component>(
+					Arrays.asList(feedback));
+			processed.addAll(Arrays.asList(components).subList(0, i));
+			Set<Component> feedbackSet = new LinkedHashSet<Component>(
+					Arrays.asList(feedback));
+			DataFlowOrder.orderForward(
+					Arrays.asList(components).subList(i, components.length),
+					processed, feedbackSet, null, this);
+			feedback = feedbackSet.toArray(new Component[feedbackSet.size()]);
 		}
 
 		for (Component component : feedback) {
@@ -412,65 +367,34 @@ public abstract class DataFlowVisitor implements Visitor {
 		}
 	}
 
+	/**
+	 * Visits the components of the module so that each is visited after the
+	 * components which consume its buses, then visits the feedback points.
+	 * The order is cached as for {@link #traverseModuleForward}.
+	 */
 	protected void traverseModuleReverse(Module module,
 			Set<Component> feedbackComps) {
-		HashSet<Component> processed = new HashSet<Component>();
-		Set<Component> feedback = new LinkedHashSet<Component>(feedbackComps);
-		processed.addAll(feedback);
-		LinkedList<Component> queue = new LinkedList<Component>(
-				module.getComponents());
-		while (!queue.isEmpty()) {
-			Component comp = queue.removeFirst();
-			if (processed.contains(comp)) {
-				continue;
-			}
-			// Gateways represent implicit feedback points if the
-			// accessed module has both read and write accesses to the
-			// given resource.
-			if (comp.isGateway()) {
-				processed.add(comp);
-				feedback.add(comp);
-				comp.accept(this);
-				continue;
-			}
-
-			// Ensure that all consumers have been processed.
-			boolean isReady = true;
-			for (Bus bus : comp.getBuses()) {
-				Collection<Port> ports;
-				if (bus.getPorts().size() > 0) {
-					ports = new HashSet<Port>(bus.getPorts());
-					// Pick up any resource dependencies as well to
-					// guarantee correct data flow ordering through
-					// global resources.
-					for (Dependency dep : bus.getLogicalDependents()) {
-						if (dep instanceof ResourceDependency) {
-							ports.add(dep.getPort());
-						}
-					}
-				} else {
-					ports = new LinkedList<Port>();
-					for (Dependency dependency : bus.getLogicalDependents()) {
-						ports.add(dependency.getPort());
-					}
-				}
-				for (Port port : ports) {
-					if (!processed.contains(port.getOwner())) {
-						isReady = false;
-						queue.remove(port.getOwner());
-						queue.addFirst(port.getOwner());
-					}
-				}
-				if (!isReady) {
-					queue.add(comp); // Put it back on the list.
-					break;
+		DataFlowOrder order = module.getDataFlowOrder(feedbackComps);
+		Component[] components = order.getReverse();
+		Component[] feedback = order.getReverseFeedback();
+		int i = 0;
+		while (i < components.length && order.isValid()) {
+			components[i++].accept(this);
+		}
+		if (i < components.length) {
+			Set<Component> processed = new HashSet<Component>(feedbackComps);
+			processed.addAll(Arrays.asList(components).subList(0, i));
+			Set<Component> feedbackSet = new LinkedHashSet<Component>(
+					feedbackComps);
+			for (Component component : Arrays.asList(components).subList(0, i)) {
+				if (component.isGateway()) {
+					feedbackSet.add(component);
 				}
 			}
-
-			if (isReady) {
-				processed.add(comp);
-				comp.accept(this);
-			}
+			DataFlowOrder.orderReverse(
+					Arrays.asList(components).subList(i, components.length),
+					processed, feedbackSet, null, this);
+			feedback = feedbackSet.toArray(new Component[feedbackSet.size()]);
 		}
 		for (Component component : feedback) {
 			component.accept(this);
@@ -118,6 +118,7 @@ public abstract class Dependency implements Cloneable {
 
 		if (bus != null && getPort() != null) {
 			bus.logicalDependents.add(this);
+			invalidateDataFlowOrders();
 		}
 	}
 
@@ -214,6 +215,7 @@ public abstract class Dependency implements Cloneable {
 		Bus lbus = getLogicalBus();
 		if (lbus != null) {
 			lbus.logicalDependents.add(this);
+			invalidateDataFlowOrders();
 		}
 	}
 
@@ -224,6 +226,17 @@ public abstract class Dependency implements Cloneable {
 		Bus lbus = getLogicalBus();
 		if (lbus != null) {
 			lbus.logicalDependents.remove(this);
+			invalidateDataFlowOrders();
+		}
+	}
+
+	/**
+	 * Drops the cached data flow orders which depend on this Dependency.
+	 */
+	private void invalidateDataFlowOrders() {
+		DataFlowOrder.invalidate(getLogicalBus());
+		if (getPort() != null) {
+			DataFlowOrder.invalidate(getPort().getOwner());
 		}
 	}
 
@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -922,7 +921,7 @@ public class Design extends ID implements Visitable, Cloneable {
 		assert pinPortBusMap.isEmpty();
 
 		Module sourceMod = source.getDesignModule();
-		Set<Component> sourceComps = new HashSet<Component>(
+		Set<Component> sourceComps = new LinkedHashSet<Component>(
 				sourceMod.getComponents());
 		// We want the top level infrastructure, but NOT the entry
 		// methods
@@ -23,11 +23,11 @@ package net.sf.openforge.lim;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import net.sf.openforge.util.OrderedSet;
 import net.sf.openforge.util.naming.IDSourceInfo;
 
 /**
@@ -106,7 +106,7 @@ public class Entry {
 
 		Collection<Dependency> deps = portMap.get(port);
 		if (deps == null) {
-			deps = new HashSet<Dependency>(3);
+			deps = new OrderedSet<Dependency>(3);
 			portMap.put(port, deps);
 		}
 
@@ -24,12 +24,12 @@ package net.sf.openforge.lim;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import net.sf.openforge.util.OrderedSet;
 import net.sf.openforge.util.naming.ID;
 import net.sf.openforge.util.naming.IDSourceInfo;
 
@@ -448,7 +448,7 @@ public class Exit extends ID implements LatencyKey {
 		doneBus.setSize(1, false);
 		doneBus.setUsed(false);
 		dataBuses = new ArrayList<Bus>(dataCount);
-		drivenEntries = new HashSet<Entry>();
+		drivenEntries = new OrderedSet<Entry>();
 		for (int i = 0; i < dataCount; i++) {
 			Bus b = new Bus(this);
 			b.setUsed(true); // ABK - data buses should always be used
@@ -21,6 +21,7 @@
 
 package net.sf.openforge.lim;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.lim.primitive.And;
 import net.sf.openforge.lim.primitive.Not;
 import net.sf.openforge.lim.primitive.Or;
@@ -38,9 +39,6 @@ public class Kicker extends Module implements Composable {
 
 	private static final int GATE_DEPTH = 0;
 
-	/** Keep all instances of Kickers uniquely named */
-	private static int index = 0;
-
 	/**
 	 * Build the basic Kicker
 	 * 
@@ -48,7 +46,8 @@ public class Kicker extends Module implements Composable {
 	 *            the initial size in bits of the Latch.
 	 */
 	public Kicker() {
-		this.setIDLogical("Kicker_" + index++);
+		this.setIDLogical("Kicker_"
+				+ CompilationContext.current().nextKickerIndex());
 
 		// make an exit
 		Exit exit = makeExit(0);
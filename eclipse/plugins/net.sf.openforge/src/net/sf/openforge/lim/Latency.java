@@ -21,7 +21,7 @@
 package net.sf.openforge.lim;
 
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -184,7 +184,7 @@ public abstract class Latency implements Cloneable {
 		}
 
 		// latestMap is a latency->object map
-		Map<Latency, Object> latestMap = new HashMap<Latency, Object>(
+		Map<Latency, Object> latestMap = new LinkedHashMap<Latency, Object>(
 				inputMap.size());
 		for (Map.Entry<?, Latency> inputEntry : inputMap.entrySet()) {
 			Latency latency = inputEntry.getValue();
@@ -254,7 +254,7 @@ public abstract class Latency implements Cloneable {
 
 		// turn the latency->object latestMap into an object->latency
 		// map.
-		Map<Object, Latency> retMap = new HashMap<Object, Latency>(
+		Map<Object, Latency> retMap = new LinkedHashMap<Object, Latency>(
 				latestMap.size());
 		for (Map.Entry<Latency, Object> me : latestMap.entrySet()) {
 			retMap.put(me.getValue(), me.getKey());
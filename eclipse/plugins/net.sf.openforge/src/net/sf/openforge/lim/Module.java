@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import java.util.Set;
 
 import net.sf.openforge.app.project.SearchLabel;
 import net.sf.openforge.lim.Exit.Tag;
+import net.sf.openforge.util.OrderedSet;
 
 /**
  * A Module is a {@link Component} that can be a container for other
@@ -49,9 +51,8 @@ public abstract class Module extends Component implements Cloneable {
 	 */
 	private InBuf inBuf;
 
-	/** Collection of Component */
-	//private Collection<Component> components = new ArrayList<Component>();
-	 private Collection<Component> components = new HashSet<Component>();
+	/** Collection of Component, in the order in which they were added */
+	private Collection<Component> components = new OrderedSet<Component>();
 
 	/** True iff this module needs a go signal */
 	private boolean consumesGo = false;
@@ -71,6 +72,12 @@ public abstract class Module extends Component implements Cloneable {
 	/** A Set of components which can break feedback paths. */
 	private Set<Component> feedbackPoints = Collections.emptySet();
 
+	/** The cached data flow order of the components, or null */
+	private DataFlowOrder dataFlowOrder = null;
+
+	/** The number of modifications recorded for this module and its contents */
+	private int modificationCount = 0;
+
 	/**
 	 * The label used for OptionDB look-ups. May be null if no search scope has
 	 * been specifically set for this module
@@ -129,6 +136,7 @@ public abstract class Module extends Component implements Cloneable {
 	public void addComponent(Component component) {
 		components.add(component);
 		component.setOwner(this);
+		invalidateDataFlowOrder();
 	}
 
 	/**
@@ -157,6 +165,7 @@ public abstract class Module extends Component implements Cloneable {
 		component.disconnect();
 		if (components.remove(component)) {
 			component.setOwner(null);
+			invalidateDataFlowOrder();
 			return true;
 		} else {
 			return false;
@@ -241,9 +250,56 @@ public abstract class Module extends Component implements Cloneable {
 
 	public void addFeedbackPoint(Component comp) {
 		if (feedbackPoints == Collections.EMPTY_SET) {
-			feedbackPoints = new HashSet<Component>(3);
+			feedbackPoints = new OrderedSet<Component>(3);
 		}
 		feedbackPoints.add(comp);
+		invalidateDataFlowOrder();
+	}
+
+	/**
+	 * Gets the data flow order of the components of this module, computing it
+	 * if the module was modified since it was last computed.
+	 * 
+	 * @param feedbackPoints
+	 *            the components which break the feedback paths
+	 */
+	DataFlowOrder getDataFlowOrder(Set<Component> feedbackPoints) {
+		if (dataFlowOrder == null || !dataFlowOrder.isValid()
+				|| !dataFlowOrder.isFor(feedbackPoints)) {
+			if (dataFlowOrder != null) {
+				dataFlowOrder.invalidate();
+			}
+			dataFlowOrder = new DataFlowOrder(this, feedbackPoints);
+		}
+		return dataFlowOrder;
+	}
+
+	/**
+	 * Drops the cached data flow order of the components of this module.
+	 */
+	void invalidateDataFlowOrder() {
+		if (dataFlowOrder != null) {
+			dataFlowOrder.invalidate();
+			dataFlowOrder = null;
+		}
+		recordModification();
+	}
+
+	@Override
+	protected void recordModification() {
+		modificationCount++;
+		super.recordModification();
+	}
+
+	/**
+	 * Gets the number of modifications recorded for this module: components
+	 * added or removed, connections or dependencies changed, or values
+	 * modified by constant propagation, in this module or any module it
+	 * contains. Comparing two counts tells whether the module was modified
+	 * in between.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
 	}
 
 	/**
@@ -341,7 +397,7 @@ public abstract class Module extends Component implements Cloneable {
 	 */
 	@Override
 	public Collection<Resource> getAccessedResources() {
-		final Set<Resource> set = new HashSet<Resource>();
+		final Set<Resource> set = new LinkedHashSet<Resource>();
 		for (Component component : getComponents()) {
 			set.addAll(component.getAccessedResources());
 		}
@@ -604,7 +660,10 @@ public abstract class Module extends Component implements Cloneable {
 
 		assert !clone.isConstructed();
 
-		clone.components = new HashSet<Component>();
+		// The cached order belongs to this module, the clone computes its own
+		clone.dataFlowOrder = null;
+
+		clone.components = new OrderedSet<Component>();
 		if (odbLabel != null) {
 			clone.odbLabel = new BlockSearchLabel(odbLabel.localLabel);
 		}
@@ -439,12 +439,15 @@ public class Port extends ID {
 	public void setBus(Bus bus) {
 		if (this.bus != null) {
 			this.bus.ports.remove(this);
+			DataFlowOrder.invalidate(this.bus);
 		}
 
 		this.bus = bus;
 		if (bus != null) {
 			bus.ports.add(this);
+			DataFlowOrder.invalidate(bus);
 		}
+		DataFlowOrder.invalidate(getOwner());
 	}
 
 	/**
@@ -38,6 +38,11 @@ import net.sf.openforge.util.SizedInteger;
  * each Bit was queried for its attributes. Now the Value is queried for the
  * attributes of each bit.
  * 
+ * The care and constant state of the bits is held in bit planes of packed
+ * longs, so the mask queries are word operations, and the owner of the bits is
+ * held as runs of contiguous bits from the same bus, which for most values is
+ * a single run.
+ * 
  * 
  * @version $Id: Value.java 41 2005-10-17 15:10:57Z imiller $
  */
@@ -53,74 +58,49 @@ public class Value {
 	private int size;
 
 	/**
-	 * isCare is bit 0 of state
-	 * 
-	 * isCare is TRUE if all bits are care, FALSE if all bits are not care, and
-	 * ARRAY_VALID if isCareArray is valid. isCareArray (if valid) is an array
-	 * of 0..(size-1) where the index corresponds to bit position, and the value
-	 * is true if the bit is constant, else false.
+	 * The care, constant and one state of each bit, packed 64 bits to a long.
+	 * The first {@link #words} longs hold the care bits, the next hold the
+	 * constant bits (set if the bit is ZERO or ONE) and the last hold the ONE
+	 * bits, which are only set for constant bits. Bits at or above size are
+	 * always clear, so whole words can be compared and returned as masks.
 	 * 
 	 * current state next state setCare(i,careState) const[i]=any
 	 * const[i]=NOT_CONSTANT care[i]=any care[i]=careState owner[i]=any owner[i]
 	 * unchanged
-	 */
-
-	/**
-	 * bits 1-2 of state
-	 * 
-	 * similar to isCare, but describes constant bits. if
-	 * isConstant=NOT_CONSTANT there are no constant bits, if ONE then all
-	 * constant bits, if 2 then some constant bits. isConstantArray is defined
-	 * for isConstant > 0, isConstantArray contains ZERO or ONE or NOT_CONSTANT
-	 * for non-constant bits
 	 * 
 	 * current state next state setConstant(i,constState) care[i]=any
 	 * care[i]=true const[i]=any const[i]=constState owner[i]=any owner[i]=null
 	 */
+	private long[] bits;
 
-	/**
-	 * bit 3 of state
-	 * 
-	 * similar to isCare, but describes global bits - derived from
-	 * owner/ownerArray
-	 */
+	/** The number of longs needed to hold one bit of each position */
+	private int words;
 
 	/**
-	 * holds the bus that "owns" this value, if null then consult ownerArray. if
-	 * ownerArray is null then there is no owner for any bit; if owner array is
-	 * not null, then each element corresponds to the owner of a particular
-	 * position. ownerArray is only defined if owner==null
+	 * The bus that owns each bit and the position of the bit in that bus, run
+	 * length encoded. Run r covers the bits from runs[2r] up to the start of
+	 * the next run (or size); those bits are owned by runOwners[r], or are
+	 * global if it is null, and bit i is bit runs[2r+1] + (i - runs[2r]) of
+	 * the owner. Adjacent runs are never a continuation of one another, so a
+	 * value whose bits all come from one bus in order is a single run.
 	 * 
 	 * current state next state setOwner(i,bus) const[i]=any
 	 * const[i]=NOT_CONSTANT care[i]=any care[i] unchanged owner[i]=any
 	 * owner[i]=bus
-	 * 
-	 * ownerOffset, if set, is the offset of the bit in the driving bus.if not
-	 * set, the offset is the same this value
-	 * 
-	 * ownerOffset is bits 4-9 of state
 	 */
-
-	private int[] state;
-
-	private Bus owner = null;
-	private Bus[] ownerArray = null;
+	private int[] runs;
+	private Bus[] runOwners;
+	private int runCount;
 
 	/**
-	 * holds the bus that "owns" the inverse of this value, if null then consult
-	 * ownerInvArray. if ownerInvArray is null then there is no inverted owner
-	 * for any bit; if owner invert array is not null, then each element
-	 * corresponds to the owner of a particular position
-	 * 
-	 * ownerInvOffset is bits 10-15 of state
+	 * holds the bus that "owns" the inverse of each bit and the position of
+	 * the bit in that bus. Both are null until an inverted owner is set.
 	 */
-	private Bus ownerInv = null;
-	private Bus[] ownerInvArray = null;
+	private Bus[] invertedOwners = null;
+	private int[] invertedOffsets = null;
 
-	/**
-	 * The array of bits that comprise this value - used only if bits need to be
-	 * generated - it is expected that this will be deprecated
-	 */
+	/** Incremented each time a bit of this value is modified */
+	private int version = 0;
 
 	/** constant symbols */
 	public static final int ONE = 1;
@@ -132,14 +112,10 @@ public class Value {
 	public static final int TRUE = 1;
 	public static final int FALSE = 0;
 
-	private static final int CARE_MASK = 0x1; // bit 0
-	private static final int CONSTANT_MASK = 0x6; // bits 1-2
-	private static final int CONSTANT_NOT = 0x6;
-	private static final int CONSTANT_ONE = 0x2;
-
-	private static final int GLOBAL_MASK = 0x8; // bit 3
-	private static final int OWNER_MASK = 0x3f0; // bits 4-9
-	private static final int INV_OWNER_MASK = 0xfc00; // bits 10-15
+	/** indices of the bit planes in bits */
+	private static final int CARE_PLANE = 0;
+	private static final int CONSTANT_PLANE = 1;
+	private static final int ONE_PLANE = 2;
 
 	/**
 	 * Constructs a new Value of a specified size, all bits care and global.
@@ -150,13 +126,7 @@ public class Value {
 	 *            true if this is a signed value, false if unsigned
 	 */
 	public Value(int size, boolean isSigned) {
-		state = new int[size];
-		for (int i = 0; i < size; i++) {
-			state[i] = CARE_MASK | GLOBAL_MASK | CONSTANT_NOT | (i << 4)
-					| (i << 10);
-		}
-		this.size = size;
-		this.isSigned = isSigned;
+		this(null, size, isSigned);
 	}
 
 	/**
@@ -171,11 +141,14 @@ public class Value {
 	 */
 	public Value(Bus bus, int size, boolean isSigned) {
 		this.size = size;
-		state = new int[size];
-		for (int i = 0; i < size; i++) {
-			state[i] = CARE_MASK | CONSTANT_NOT | (i << 4) | (i << 10);
+		words = (size + 63) >>> 6;
+		bits = new long[3 * words];
+		for (int i = 0; i < words; i++) {
+			bits[CARE_PLANE * words + i] = wordMask(i);
 		}
-		owner = bus;
+		runs = new int[] { 0, 0 };
+		runOwners = new Bus[] { bus };
+		runCount = 1;
 		this.isSigned = isSigned;
 	}
 
@@ -188,24 +161,17 @@ public class Value {
 	 *            true if this is a signed value, false if unsigned
 	 */
 	public Value(Value value, boolean isSigned) {
-
 		size = value.size;
-		state = new int[size];
-		System.arraycopy(value.state, 0, state, 0, size);
+		words = value.words;
+		bits = value.bits.clone();
 
-		owner = value.owner;
-		if (value.ownerArray != null) {
-			assert size == value.ownerArray.length;
+		runCount = value.runCount;
+		runs = Arrays.copyOf(value.runs, 2 * runCount);
+		runOwners = Arrays.copyOf(value.runOwners, runCount);
 
-			ownerArray = new Bus[size];
-			System.arraycopy(value.ownerArray, 0, ownerArray, 0, size);
-		}
-
-		ownerInv = value.ownerInv;
-		if (value.ownerInvArray != null) {
-			assert size == value.ownerInvArray.length;
-			ownerInvArray = new Bus[size];
-			System.arraycopy(value.ownerInvArray, 0, ownerInvArray, 0, size);
+		if (value.invertedOwners != null) {
+			invertedOwners = value.invertedOwners.clone();
+			invertedOffsets = value.invertedOffsets.clone();
 		}
 		this.isSigned = isSigned;
 	}
@@ -228,6 +194,17 @@ public class Value {
 		return isSigned;
 	}
 
+	/**
+	 * Gets the version of this value, which changes each time one of its bits
+	 * is modified. Used to tell whether a value was modified since it was
+	 * last looked at.
+	 * 
+	 * @return the number of modifications made to this value
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * Sets the bit at a specific position to be a care bit.
 	 * 
@@ -244,17 +221,12 @@ public class Value {
 		 * RT-72 setConstant(position, NOT_CONSTANT);//so a constant to care
 		 * works
 		 */
+		version++;
 
-		if (care) {
-			state[position] |= CARE_MASK;
-		} else {
-			state[position] &= (~CARE_MASK);
+		setPlane(CARE_PLANE, position, care);
+		if (!care) {
 			setOwner(position, null);
 		}
-
-		/*
-		 * RT-72 state[position] |= CONSTANT_NOT;
-		 */
 	}
 
 	/**
@@ -272,37 +244,13 @@ public class Value {
 		assert constant >= ZERO && constant <= NOT_CONSTANT : "Illegal argument "
 				+ constant + " to setConstant";
 
-		state[position] |= CARE_MASK;
-
-		// first reset the constant state to 0, then or in the correct state
-		state[position] &= (~CONSTANT_MASK);
-
-		switch (constant) {
-		case ONE:
-			state[position] |= CONSTANT_ONE;
-			break;
-		case NOT_CONSTANT:
-			state[position] |= CONSTANT_NOT;
-			break;
-		}
+		version++;
+		setPlane(CARE_PLANE, position, true);
+		setPlane(CONSTANT_PLANE, position, constant != NOT_CONSTANT);
+		setPlane(ONE_PLANE, position, constant == ONE);
 
 		// owner to be set to null
-		state[position] |= GLOBAL_MASK;
-		if (owner != null) // if owner not null then all bits owned by the same
-							// bus
-		{
-			ownerArray = new Bus[size];
-
-			for (int i = 0; i < size; i++) {
-				ownerArray[i] = owner;
-			}
-			ownerArray[position] = null;
-			owner = null;
-		} else if (ownerArray != null) {
-			ownerArray[position] = null;
-			updateOwner();
-		} // else both owner and ownerArray are null and the bit was already
-			// global
+		setSource(position, null, getPosition(position));
 	}
 
 	/**
@@ -322,47 +270,8 @@ public class Value {
 		 * RT-72 // set constant to NOT_CONSTANT if owner != null if (owner !=
 		 * null) { state[position] |= NOT_CONSTANT; }
 		 */
-
-		// update owner
-		if (this.owner != null) {
-			ownerArray = new Bus[size];
-			for (int i = 0; i < size; i++) {
-				ownerArray[i] = this.owner;
-				if (this.owner == null) {
-					state[i] |= GLOBAL_MASK;
-				} else {
-					state[i] &= (~GLOBAL_MASK);
-				}
-			}
-			ownerArray[position] = owner;
-			if (owner == null) {
-				state[position] |= GLOBAL_MASK;
-			} else {
-				state[position] &= (~GLOBAL_MASK);
-			}
-			this.owner = null;
-		} else if (ownerArray != null) {
-			ownerArray[position] = owner;
-			if (owner == null) {
-				state[position] |= GLOBAL_MASK;
-			} else {
-				state[position] &= (~GLOBAL_MASK);
-			}
-			updateOwner();
-		} else // create an ownerArray if both owner and ownerArray were null
-		{
-			ownerArray = new Bus[size];
-			for (int i = 0; i < size; i++) {
-				ownerArray[i] = null;
-				state[i] |= GLOBAL_MASK;
-			}
-			ownerArray[position] = owner;
-			if (owner == null) {
-				state[position] |= GLOBAL_MASK;
-			} else {
-				state[position] &= (~GLOBAL_MASK);
-			}
-		}
+		version++;
+		setSource(position, owner, getPosition(position));
 	}
 
 	/**
@@ -377,10 +286,8 @@ public class Value {
 	 *            offset in the owner
 	 */
 	public void setOwner(int position, Bus owner, int ownerPosition) {
-		setOwner(position, owner);
-		// zero the owner offset bits, then mask in the correct value
-		state[position] &= ~OWNER_MASK;
-		state[position] |= (ownerPosition << 4);
+		version++;
+		setSource(position, owner, ownerPosition);
 	}
 
 	/**
@@ -390,7 +297,8 @@ public class Value {
 	 *            index of the bit in this Value
 	 */
 	public int getPosition(int i) {
-		return (state[i] & OWNER_MASK) >> 4;
+		final int run = findRun(i);
+		return runs[2 * run + 1] + i - runs[2 * run];
 	}
 
 	/**
@@ -409,72 +317,157 @@ public class Value {
 				&& getInvertedOffset(position) == ownerPosition) {
 			return;
 		}
+		version++;
 
 		// TBD: do we need to maintain care/constant/global status for inverted
 		// bits?
 
-		// update owner
-		if (ownerInv != null) {
-			ownerInvArray = new Bus[size];
+		if (invertedOwners == null) {
+			invertedOwners = new Bus[size];
+			invertedOffsets = new int[size];
 			for (int i = 0; i < size; i++) {
-				ownerInvArray[i] = ownerInv;
+				invertedOffsets[i] = i;
 			}
-			ownerInvArray[position] = owner;
-
-			ownerInv = null;
-		} else if (ownerInvArray != null) {
-			ownerInvArray[position] = owner;
-			updateOwnerInv();
-		} else // create an ownerArray if both owner and ownerArray were null
-		{
-			ownerInvArray = new Bus[size];
-			for (int i = 0; i < size; i++) {
-				ownerInvArray[i] = null;
+		}
+		invertedOwners[position] = owner;
+		invertedOffsets[position] = ownerPosition;
+	}
+
+	/**
+	 * Finds the run of bits from the same owner which holds a bit.
+	 * 
+	 * @param position
+	 *            the index of the bit, 0 <= position < {@link #getSize()}
+	 * @return the index of the run
+	 */
+	private int findRun(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("bit " + position
+					+ " of a value of size " + size);
+		}
+
+		int low = 0;
+		int high = runCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (runs[2 * mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
 			}
-			ownerInvArray[position] = owner;
+		}
+		return low;
+	}
+
+	/**
+	 * Sets the owner of a bit and its position in the owner, splitting the run
+	 * which holds the bit and merging the bit into its neighbouring runs as
+	 * needed.
+	 */
+	private void setSource(int position, Bus owner, int ownerPosition) {
+		int run = findRun(position);
+		final int start = runs[2 * run];
+		final int offset = runs[2 * run + 1] - start;
+		final Bus current = runOwners[run];
+
+		if (current == owner && position + offset == ownerPosition) {
+			return;
 		}
 
-		// and update the ownerInvOffset
-		state[position] &= ~INV_OWNER_MASK;
-		state[position] |= ownerPosition;
+		final int end = (run + 1 < runCount) ? runs[2 * (run + 1)] : size;
+		if (position + 1 < end) {
+			insertRun(run + 1, position + 1, position + 1 + offset, current);
+		}
+		if (position > start) {
+			run++;
+			insertRun(run, position, ownerPosition, owner);
+		} else {
+			runs[2 * run + 1] = ownerPosition;
+			runOwners[run] = owner;
+		}
+
+		if (run + 1 < runCount && continues(run, run + 1)) {
+			removeRun(run + 1);
+		}
+		if (run > 0 && continues(run - 1, run)) {
+			removeRun(run);
+		}
 	}
 
 	/**
-	 * assumes ownerArray != null, are all entries the same? also updates
-	 * isGlobal/isGlobalArray
+	 * Returns true if the (adjacent) run next holds the bits of the same owner
+	 * that follow those of the run first.
 	 */
-	private void updateOwner() {
-		boolean allSame = true;
-		Bus first = ownerArray[0];
+	private boolean continues(int first, int next) {
+		return runOwners[first] == runOwners[next]
+				&& runs[2 * first + 1] + runs[2 * next] - runs[2 * first] == runs[2 * next + 1];
+	}
 
-		for (int i = 1; i < size && allSame; i++) {
-			if (first != ownerArray[i]) {
-				allSame = false;
-			}
+	private void insertRun(int run, int start, int ownerPosition, Bus owner) {
+		if (runCount == runOwners.length) {
+			runOwners = Arrays.copyOf(runOwners, 2 * runCount);
+			runs = Arrays.copyOf(runs, 4 * runCount);
+		}
+		System.arraycopy(runOwners, run, runOwners, run + 1, runCount - run);
+		System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (runCount - run));
+		runOwners[run] = owner;
+		runs[2 * run] = start;
+		runs[2 * run + 1] = ownerPosition;
+		runCount++;
+	}
+
+	private void removeRun(int run) {
+		runCount--;
+		System.arraycopy(runOwners, run + 1, runOwners, run, runCount - run);
+		System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (runCount - run));
+		runOwners[runCount] = null;
+	}
+
+	/**
+	 * Gets one bit of a bit plane.
+	 */
+	private boolean getPlane(int plane, int position) {
+		return (bits[plane * words + wordIndex(position)] & (1L << position)) != 0;
+	}
+
+	/**
+	 * Sets or clears one bit of a bit plane.
+	 */
+	private void setPlane(int plane, int position, boolean set) {
+		final int index = plane * words + wordIndex(position);
+		if (set) {
+			bits[index] |= (1L << position);
+		} else {
+			bits[index] &= ~(1L << position);
 		}
+	}
 
-		if (allSame) {
-			owner = first;
-			ownerArray = null;
+	private int wordIndex(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("bit " + position
+					+ " of a value of size " + size);
 		}
+		return position >>> 6;
 	}
 
 	/**
-	 * assumes ownerInvArray != null, are all entries the same?
+	 * Gets the mask of the bits of a word which are within this value.
 	 */
-	private void updateOwnerInv() {
-		boolean allSame = true;
-		Bus first = ownerInvArray[0];
+	private long wordMask(int word) {
+		final int remaining = size - (word << 6);
+		return remaining >= 64 ? -1L : (1L << remaining) - 1;
+	}
 
-		for (int i = 1; i < size && allSame; i++) {
-			if (first != ownerInvArray[i]) {
-				allSame = false;
+	/**
+	 * Returns true if any bit of a bit plane is set.
+	 */
+	private boolean isAnySet(int plane) {
+		for (int i = 0; i < words; i++) {
+			if (bits[plane * words + i] != 0) {
+				return true;
 			}
 		}
-		if (allSame) {
-			ownerInv = first;
-			ownerInvArray = null;
-		}
+		return false;
 	}
 
 	/**
@@ -552,9 +545,13 @@ public class Value {
 	public void setBit(int position, Value value, int valuePosition) {
 		assert position < size : "Attempting to set a bit which is too large for this value";
 
-		state[position] = value.state[valuePosition];
-		setOwner(position, value.getOwner(valuePosition));// ,
-															// value.getPosition(valuePosition));
+		version++;
+		setPlane(CARE_PLANE, position, value.isCare(valuePosition));
+		setPlane(CONSTANT_PLANE, position,
+				value.getPlane(CONSTANT_PLANE, valuePosition));
+		setPlane(ONE_PLANE, position, value.getPlane(ONE_PLANE, valuePosition));
+		setSource(position, value.getOwner(valuePosition),
+				value.getPosition(valuePosition));
 	}
 
 	/**
@@ -580,7 +577,7 @@ public class Value {
 	 * return true or false for care status of bit position
 	 */
 	public boolean isCare(int position) {
-		return (state[position] & CARE_MASK) == CARE_MASK;
+		return getPlane(CARE_PLANE, position);
 	}
 
 	/**
@@ -596,7 +593,10 @@ public class Value {
 	 * @return ZERO, ONE or NOT_CONSTANT
 	 */
 	public int getConstant(int position) {
-		return (state[position] & CONSTANT_MASK) >> 1;
+		if (!getPlane(CONSTANT_PLANE, position)) {
+			return NOT_CONSTANT;
+		}
+		return getPlane(ONE_PLANE, position) ? ONE : ZERO;
 	}
 
 	/**
@@ -617,13 +617,7 @@ public class Value {
 	 * return the owner of the given bit, or null if no owner (global)
 	 */
 	public Bus getOwner(int position) {
-		if (owner != null) {
-			return owner;
-		}
-		if (ownerArray != null) {
-			return ownerArray[position];
-		}
-		return null;
+		return runOwners[findRun(position)];
 	}
 
 	/**
@@ -633,12 +627,8 @@ public class Value {
 	 * @return Bus or null if not defined
 	 */
 	public Bus getInvertedOwner(int position) {
-		if (ownerInv != null) {
-			return ownerInv;
-		} else if (ownerInvArray != null) {
-			return ownerInvArray[position];
-		}
-		return null;
+		wordIndex(position);
+		return (invertedOwners == null) ? null : invertedOwners[position];
 	}
 
 	/**
@@ -646,34 +636,27 @@ public class Value {
 	 * getInvertedOwner() does not return null
 	 */
 	public int getInvertedOffset(int position) {
-		return (state[position] & INV_OWNER_MASK) >> 10;
+		wordIndex(position);
+		return (invertedOffsets == null) ? position : invertedOffsets[position];
 	}
 
 	/**
 	 * return global status of the given bit
 	 */
 	public boolean isGlobal(int position) {
-		return ((state[position] & GLOBAL_MASK) == GLOBAL_MASK);
+		return getOwner(position) == null;
 	}
 
 	/**
 	 * Gets the current vector of on/off states as a mask.
 	 */
 	public long getValueMask() {
-		long value = 0L;
-		int msb = getConstant(size - 1);
-		for (int i = 0; i < 64; i++) {
-			if (i < size) {
-				int constant = getConstant(i);
-
-				if (constant == ONE) {
-					value |= (1L << i);
-				}
-			} else {
-				if (isSigned && msb == ONE) {
-					value |= (1L << i);
-				}
-			}
+		if (size == 0) {
+			return 0L;
+		}
+		long value = bits[ONE_PLANE * words];
+		if (size < 64 && isSigned && getConstant(size - 1) == ONE) {
+			value |= (-1L << size);
 		}
 		return value;
 	}
@@ -682,26 +665,14 @@ public class Value {
 	 * Gets the current vector of care/don't-care states as a mask.
 	 */
 	public long getCareMask() {
-		long mask = 0L;
-		for (int i = 0; i < size; i++) {
-			if (isCare(i)) {
-				mask |= (1L << i);
-			}
-		}
-		return mask;
+		return (size == 0) ? 0L : bits[CARE_PLANE * words];
 	}
 
 	/**
 	 * Gets the current vector of constant/non-constant states as a mask.
 	 */
 	public long getConstantMask() {
-		long mask = 0L;
-		for (int i = 0; i < size; i++) {
-			if (getConstant(i) < NOT_CONSTANT) {
-				mask |= (1L << i);
-			}
-		}
-		return mask;
+		return (size == 0) ? 0L : bits[CONSTANT_PLANE * words];
 	}
 
 	/**
@@ -710,10 +681,9 @@ public class Value {
 	 * @return true if this Value represents a constant value.
 	 */
 	public boolean isConstant() {
-		for (int i = 0; i < getSize(); i++) {
-			int constant = getConstant(i);
-
-			if (constant == NOT_CONSTANT && isCare(i)) {
+		for (int i = 0; i < words; i++) {
+			if ((bits[CARE_PLANE * words + i] & ~bits[CONSTANT_PLANE * words
+					+ i]) != 0) {
 				return false;
 			}
 		}
@@ -726,14 +696,7 @@ public class Value {
 	 * @return true if the whole value is dont care.
 	 */
 	public boolean isDontCare() {
-		for (int i = 0; i < getSize(); i++) {
-
-			if (isCare(i)) {
-				return false;
-			}
-
-		}
-		return true;
+		return !isAnySet(CARE_PLANE);
 	}
 
 	/**
@@ -751,8 +714,8 @@ public class Value {
 	public boolean isMixed() {
 		if (isConstant()) {
 			// but - if there are any d/c's in the constant, then its mixed
-			for (int i = 0; i < size; i++) {
-				if (!isCare(i)) {
+			for (int i = 0; i < words; i++) {
+				if (bits[CARE_PLANE * words + i] != wordMask(i)) {
 					return true;
 				}
 			}
@@ -763,17 +726,12 @@ public class Value {
 			 * It's mixed if we find any constant bits, or if there are Bits
 			 * from more than one owner Bus.
 			 */
+			if (isAnySet(CONSTANT_PLANE)) {
+				return true;
+			}
 			Bus bitOwner = null;
-			// for (Iterator iter = bits.iterator(); iter.hasNext();)
-			for (int i = 0; i < size; i++) {
-				Bus iOwner = getOwner(i);
-
-				if (iOwner != null && bitOwner == null) {
-					bitOwner = iOwner;
-				}
-				if (getConstant(i) < NOT_CONSTANT) {
-					return true;
-				}
+			for (int run = 0; run < runCount && bitOwner == null; run++) {
+				bitOwner = runOwners[run];
 			}
 
 			assert bitOwner != null : "care Bits with no owner";
@@ -785,8 +743,8 @@ public class Value {
 				return true;
 			}
 
-			for (int i = 0; i < size; i++) {
-				if (getPosition(i) != i) {
+			for (int run = 0; run < runCount; run++) {
+				if (runs[2 * run + 1] != runs[2 * run]) {
 					return true;
 				}
 			}
@@ -798,8 +756,7 @@ public class Value {
 		String result = size + " bits: \n";
 
 		for (int i = 0; i < size; i++) {
-			result += "\t" + Integer.toHexString(state[i]) + " "
-					+ getInvertedOffset(i) + " " + getPosition(i) + " "
+			result += "\t" + getInvertedOffset(i) + " " + getPosition(i) + " "
 					+ isGlobal(i) + " " + getConstant(i) + " " + isCare(i)
 					+ "\n";
 		}
@@ -841,7 +798,7 @@ public class Value {
 	public String debugIsGlobal() {
 		String result = "";
 		for (int i = 0; i < size; i++) {
-			result = ((state[i] & GLOBAL_MASK) == GLOBAL_MASK ? 1 : 0) + result;
+			result = (isGlobal(i) ? 1 : 0) + result;
 		}
 		return result;
 	}
@@ -1072,6 +1029,11 @@ public class Value {
 		assert value.isSigned() == isSigned : "sign mismatch: "
 				+ value.isSigned() + ", " + isSigned;
 
+		if (invertedOwners == null && value.invertedOwners == null
+				&& isSameState(value)) {
+			return new Value(this, isSigned);
+		}
+
 		final Value newValue = new Value(size, isSigned);
 		for (int i = 0; i < size; i++) {
 			if (bitEquals(i, value, i)) {
@@ -1083,6 +1045,25 @@ public class Value {
 		return newValue;
 	}
 
+	/**
+	 * Returns true if the bit planes and owner runs of this value are the same
+	 * as those of another value of the same size, in which case every bit of
+	 * each is {@link #bitEquals(int, Value, int) equal} to the other.
+	 */
+	private boolean isSameState(Value value) {
+		if (runCount != value.runCount || !Arrays.equals(bits, value.bits)) {
+			return false;
+		}
+		for (int i = 0; i < runCount; i++) {
+			if (runOwners[i] != value.runOwners[i]
+					|| runs[2 * i] != value.runs[2 * i]
+					|| runs[2 * i + 1] != value.runs[2 * i + 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the minimum number of care bits of which is significant for
 	 * constant propagation.
@@ -133,7 +133,7 @@ public class LogicalMemory extends net.sf.openforge.util.naming.ID implements
 	 */
 	public LogicalMemory(int maxAddressWidth) {
 		setIDLogical("Logical Memory (bits: " + maxAddressWidth + ") ["
-				+ Integer.toHexString(hashCode()) + "]");
+				+ Integer.toHexString(getIDNumber()) + "]");
 		allocations = new LinkedHashSet<Allocation>();
 		logicalMemoryPorts = new HashSet<LogicalMemoryPort>();
 
@@ -250,7 +250,7 @@ public class MemoryBuilder {
 				}
 			}
 
-			String name = "logicalMem_" + Integer.toHexString(mem.hashCode());
+			String name = "logicalMem_" + Integer.toHexString(mem.getIDNumber());
 
 			// The call to this method also causes the memory to
 			// verify that it has a consistent stride policy across
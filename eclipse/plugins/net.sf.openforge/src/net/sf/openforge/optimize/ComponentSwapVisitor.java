@@ -22,6 +22,7 @@
 package net.sf.openforge.optimize;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +41,7 @@ import net.sf.openforge.lim.Module;
 import net.sf.openforge.lim.Operation;
 import net.sf.openforge.lim.Port;
 import net.sf.openforge.lim.SafeFilteredVisitor;
+import net.sf.openforge.lim.Task;
 import net.sf.openforge.lim.Value;
 import net.sf.openforge.lim.op.Constant;
 import net.sf.openforge.util.naming.ID;
@@ -67,6 +69,26 @@ public class ComponentSwapVisitor extends SafeFilteredVisitor {
 	protected int replacedNodeCountTotal = 0;
 	protected int removedNodeCountTotal = 0;
 
+	/** The tasks visited, or null to visit every task */
+	private Collection<Task> tasks = null;
+
+	/**
+	 * Restricts the visits of a design to the given tasks.
+	 * 
+	 * @param tasks
+	 *            the tasks to visit, or null to visit every task
+	 */
+	public void setTasks(Collection<Task> tasks) {
+		this.tasks = tasks;
+	}
+
+	@Override
+	public void visit(Task task) {
+		if (tasks == null || tasks.contains(task)) {
+			super.visit(task);
+		}
+	}
+
 	/**
 	 * Implemented solely to provide debug output of which components are being
 	 * traversed.
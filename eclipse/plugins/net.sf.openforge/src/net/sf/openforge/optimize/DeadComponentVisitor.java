@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -1077,7 +1078,7 @@ public class DeadComponentVisitor extends ComponentSwapVisitor implements
 		// reported information is non-usefull
 		// (often just obfuscated class names)
 		// EngineThread.getGenericJob().verbose("Removing: "+ID.showGlobal(c));
-		Set<Component> drivers = new HashSet<Component>();
+		Set<Component> drivers = new LinkedHashSet<Component>();
 		for (Port port : c.getDataPorts()) {
 			drivers.addAll(getDrivers(port));
 		}
@@ -1092,9 +1093,12 @@ public class DeadComponentVisitor extends ComponentSwapVisitor implements
 		}
 
 		// Visit everything that drove what was removed. This will
-		// help us to remove the chain much faster.
+		// help us to remove the chain much faster. A driver may already
+		// have been removed while visiting a previous one.
 		for (Component comp : drivers) {
-			((Visitable) comp).accept(this);
+			if (comp.getOwner() != null) {
+				((Visitable) comp).accept(this);
+			}
 		}
 	}
 
@@ -1111,7 +1115,7 @@ public class DeadComponentVisitor extends ComponentSwapVisitor implements
 		if (port.getBus() != null) {
 			return Collections.singleton(port.getBus().getOwner().getOwner());
 		}
-		Set<Component> drivers = new HashSet<Component>();
+		Set<Component> drivers = new LinkedHashSet<Component>();
 		for (Entry entry : port.getOwner().getEntries()) {
 			for (Dependency dep : entry.getDependencies(port)) {
 				drivers.add(dep.getLogicalBus().getOwner().getOwner());
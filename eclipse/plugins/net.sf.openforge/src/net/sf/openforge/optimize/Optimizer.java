@@ -25,12 +25,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import net.sf.openforge.app.CompilationContext;
+import net.sf.openforge.app.CompileProfiler;
 import net.sf.openforge.app.EngineThread;
 import net.sf.openforge.app.GenericJob;
+import net.sf.openforge.app.OptionRegistry;
+import net.sf.openforge.app.project.OptionInt;
+import net.sf.openforge.lim.CodeLabel;
 import net.sf.openforge.lim.Design;
 import net.sf.openforge.lim.Visitable;
+import net.sf.openforge.optimize.constant.ConstantRewriteVisitor;
 import net.sf.openforge.optimize.constant.FullConstantVisitor;
-import net.sf.openforge.optimize.constant.HalfConstantVisitor;
 import net.sf.openforge.optimize.constant.TwoPassPartialConstant;
 import net.sf.openforge.optimize.io.BlockElementRemover;
 import net.sf.openforge.optimize.loop.LoopUnrollingVisitor;
@@ -75,7 +80,7 @@ public class Optimizer {
 
 		GenericJob gj = EngineThread.getGenericJob();
 		FullConstantVisitor fullConstVisitor = new FullConstantVisitor();
-		HalfConstantVisitor halfConstantVisitor = new HalfConstantVisitor();
+		ConstantRewriteVisitor constantRewriter = new ConstantRewriteVisitor();
 		LoopUnrollingVisitor loopUnrollingVisitor = new LoopUnrollingVisitor();
 		DeadComponentVisitor deadComponentVisitor = new DeadComponentVisitor();
 		BaseAddressUniquifier baseAddrUniquifier = new BaseAddressUniquifier();
@@ -123,8 +128,7 @@ public class Optimizer {
 		 * Use partial constant propagation to ensure that every Port and Bus
 		 * has a Value.
 		 */
-		TwoPassPartialConstant.propagate(target,
-				Collections.<ComponentSwapVisitor> emptyList());
+		propagate(target, Collections.<ComponentSwapVisitor> emptyList());
 
 		List<Optimization> memOpts = new ArrayList<Optimization>();
 		memOpts.add(baseAddrUniquifier);
@@ -134,85 +138,186 @@ public class Optimizer {
 		memOpts.add(memReducer);
 		// memOpts.add(dualPortAlloc);
 
-		boolean isModified = true;
-		while (isModified) {
-			isModified = false;
-
-			fullConstVisitor.clear();
-			halfConstantVisitor.clear();
-			loopUnrollingVisitor.clear();
-			deadComponentVisitor.clear();
-
-			gj.info("replacing constant expressions...");
-			gj.inc();
-			isModified = isModified | runOpt(target, fullConstVisitor);
-			// target.accept(fullConstVisitor);
-			// isModified |= fullConstVisitor.didModify();
-			gj.verbose("replaced " + fullConstVisitor.getReplacedNodeCount()
-					+ " expressions");
-			gj.dec();
-
-			gj.info("pruning dead code...");
-			gj.inc();
-			isModified = isModified | runOpt(target, deadComponentVisitor);
-			// target.accept(deadComponentVisitor);
-			// isModified |= deadComponentVisitor.didModify();
-			gj.verbose("pruned " + deadComponentVisitor.getRemovedNodeCount()
-					+ " expressions");
-			gj.dec();
-			deadComponentVisitor.clearCount();
-
-			isModified |= runOpts(target, memOpts);
-
-			// XXX Run Loop unrolling before half constant prop so that we
-			// can recognize divide by power of 2 as a index variable
-			// increment. Same for multiplies that get replaced.
-			// Loop unrolling can only detect single operations
-			// modifying the loop index and these replacements are
-			// multiple nodes. But, doing so causes Value problems
-			// (something in the unrolled loop has no value?)
-			isModified = isModified | runOpt(target, loopUnrollingVisitor);
-
-			// block unnesting
-			isModified = isModified | runOpt(target, nestedBlock);
-
-			gj.info("reducing expressions with constants...");
-			isModified = isModified | runOpt(target, halfConstantVisitor);
-			// target.accept(halfConstantVisitor);
-			// isModified |= halfConstantVisitor.didModify();
-			gj.verbose("   reduced - removed "
-					+ halfConstantVisitor.getRemovedNodeCount()
-					+ " expressions");
-			gj.verbose("   reduced - replaced "
-					+ halfConstantVisitor.getReplacedNodeCount()
-					+ " expressions");
-			gj.dec();
-
-			gj.info("pruning dead code...");
-			gj.inc();
-			isModified = isModified | runOpt(target, deadComponentVisitor);
-			// target.accept(deadComponentVisitor);
-			// isModified |= deadComponentVisitor.didModify();
-			gj.verbose("pruned " + deadComponentVisitor.getRemovedNodeCount()
-					+ " expressions");
-			gj.dec();
-
-			//
-			// Convert single element memories to registers. This
-			// needs to have partial constant prop run after it but
-			// before half or full constant runs again. That is
-			// because the optimization creates RegisterAccessBlock
-			// modules which need the partial constant prop rules run
-			// in order to initialize the inbuf/outbufs before
-			// half/full run.
-			//
-
-			isModified = isModified | runOpt(target, memToReg);
-
-			gj.info("propagating constant bits...");
-			TwoPassPartialConstant.propagate(target,
-					Collections.<ComponentSwapVisitor> emptyList());
+		// The task local optimizations of the loop may be run on all tasks
+		// at once, the others are always run on the whole design. The dead
+		// code pruning removes the unaccessed memories and registers of the
+		// design, and the loop unrolling adds the copied accesses to the
+		// shared memory ports, so neither is task local.
+		TaskParallelRunner runner = null;
+		if (gj.getUnscopedBooleanOptionValue(OptionRegistry.XOPTIMIZE_PARALLEL)
+				&& target.getTasks().size() > 1) {
+			int threads = ((OptionInt) gj
+					.getOption(OptionRegistry.XOPTIMIZE_THREADS))
+					.getValueAsInt(CodeLabel.UNSCOPED);
+			if (threads <= 0) {
+				threads = Runtime.getRuntime().availableProcessors();
+			}
+			runner = new TaskParallelRunner(threads);
+		}
+		int replacedPerTask = 0;
+
+		// The task local optimizations are only run on the tasks which
+		// were modified since they last ran.
+		TaskJournal fullConstJournal = new TaskJournal();
+		TaskJournal nestedBlockJournal = new TaskJournal();
+		TaskJournal rewriteJournal = new TaskJournal();
+
+		try {
+			boolean isModified = true;
+			while (isModified) {
+				isModified = false;
+
+				fullConstVisitor.clear();
+				constantRewriter.clear();
+				loopUnrollingVisitor.clear();
+				deadComponentVisitor.clear();
+
+				gj.info("replacing constant expressions...");
+				gj.inc();
+				if (runner != null) {
+					List<FullConstantVisitor> visitors = new ArrayList<FullConstantVisitor>();
+					isModified = isModified
+							| runner.run(fullConstJournal.getModifiedTasks(target),
+									new TaskParallelRunner.Factory<FullConstantVisitor>() {
+										@Override
+										public FullConstantVisitor create() {
+											return new FullConstantVisitor();
+										}
+									}, true, visitors);
+					int replaced = 0;
+					for (FullConstantVisitor visitor : visitors) {
+						replaced += visitor.getReplacedNodeCountTotal();
+					}
+					replacedPerTask += replaced;
+					gj.verbose("replaced " + replaced + " expressions");
+				} else {
+					fullConstVisitor.setTasks(fullConstJournal
+							.getModifiedTasks(target));
+					isModified = isModified | runOpt(target, fullConstVisitor);
+					// target.accept(fullConstVisitor);
+					// isModified |= fullConstVisitor.didModify();
+					gj.verbose("replaced "
+							+ fullConstVisitor.getReplacedNodeCount()
+							+ " expressions");
+				}
+				fullConstJournal.update(target);
+				gj.dec();
+
+				gj.info("pruning dead code...");
+				gj.inc();
+				isModified = isModified | runOpt(target, deadComponentVisitor);
+				// target.accept(deadComponentVisitor);
+				// isModified |= deadComponentVisitor.didModify();
+				gj.verbose("pruned " + deadComponentVisitor.getRemovedNodeCount()
+						+ " expressions");
+				gj.dec();
+				deadComponentVisitor.clearCount();
+
+				isModified |= runOpts(target, memOpts);
+
+				// XXX Run Loop unrolling before half constant prop so that we
+				// can recognize divide by power of 2 as a index variable
+				// increment. Same for multiplies that get replaced.
+				// Loop unrolling can only detect single operations
+				// modifying the loop index and these replacements are
+				// multiple nodes. But, doing so causes Value problems
+				// (something in the unrolled loop has no value?)
+				isModified = isModified | runOpt(target, loopUnrollingVisitor);
+
+				// block unnesting
+				if (runner != null) {
+					List<NestedBlockOptimization> unnesters = new ArrayList<NestedBlockOptimization>();
+					isModified = isModified
+							| runner.run(nestedBlockJournal.getModifiedTasks(target),
+									new TaskParallelRunner.Factory<NestedBlockOptimization>() {
+										@Override
+										public NestedBlockOptimization create() {
+											return new NestedBlockOptimization();
+										}
+									}, false, unnesters);
+					int unnested = 0;
+					for (NestedBlockOptimization unnester : unnesters) {
+						unnested += unnester.getCount();
+					}
+					gj.info("block unnesting...");
+					gj.inc();
+					gj.info(unnested + " block" + ((unnested != 1) ? "s" : "")
+							+ " unnested...");
+					gj.dec();
+				} else {
+					nestedBlock.setTasks(nestedBlockJournal.getModifiedTasks(target));
+					isModified = isModified | runOpt(target, nestedBlock);
+				}
+				nestedBlockJournal.update(target);
+
+				// The half constant rules are applied together with the full
+				// constant ones, so that the constants they expose are folded
+				// in the same traversal.
+				gj.info("reducing expressions with constants...");
+				if (runner != null) {
+					// The accesses to memories are rewritten once the tasks
+					// are joined.
+					List<ConstantRewriteVisitor> rewriters = new ArrayList<ConstantRewriteVisitor>();
+					isModified = isModified
+							| runner.run(rewriteJournal.getModifiedTasks(target),
+									new TaskParallelRunner.Factory<ConstantRewriteVisitor>() {
+										@Override
+										public ConstantRewriteVisitor create() {
+											return new ConstantRewriteVisitor(true);
+										}
+									}, true, rewriters);
+					int removed = 0;
+					int replaced = 0;
+					for (ConstantRewriteVisitor rewriter : rewriters) {
+						isModified = isModified | rewriter.rewriteDeferred();
+						removed += rewriter.getRemovedNodeCountTotal();
+						replaced += rewriter.getReplacedNodeCountTotal();
+						replacedPerTask += rewriter.getFoldedNodeCountTotal();
+					}
+					gj.verbose("   reduced - removed " + removed + " expressions");
+					gj.verbose("   reduced - replaced " + replaced + " expressions");
+				} else {
+					constantRewriter.setTasks(rewriteJournal.getModifiedTasks(target));
+					isModified = isModified | runOpt(target, constantRewriter);
+					gj.verbose("   reduced - removed "
+							+ constantRewriter.getRemovedNodeCount()
+							+ " expressions");
+					gj.verbose("   reduced - replaced "
+							+ constantRewriter.getReplacedNodeCount()
+							+ " expressions");
+				}
+				rewriteJournal.update(target);
+				gj.dec();
+
+				gj.info("pruning dead code...");
+				gj.inc();
+				isModified = isModified | runOpt(target, deadComponentVisitor);
+				// target.accept(deadComponentVisitor);
+				// isModified |= deadComponentVisitor.didModify();
+				gj.verbose("pruned " + deadComponentVisitor.getRemovedNodeCount()
+						+ " expressions");
+				gj.dec();
+
+				//
+				// Convert single element memories to registers. This
+				// needs to have partial constant prop run after it but
+				// before half or full constant runs again. That is
+				// because the optimization creates RegisterAccessBlock
+				// modules which need the partial constant prop rules run
+				// in order to initialize the inbuf/outbufs before
+				// half/full run.
+				//
+
+				isModified = isModified | runOpt(target, memToReg);
+
+				gj.info("propagating constant bits...");
+				propagate(target, Collections.<ComponentSwapVisitor> emptyList());
 
+			}
+		} finally {
+			if (runner != null) {
+				runner.shutdown();
+			}
 		}
 
 		/* resize loop variables before operation substitution */
@@ -227,7 +332,8 @@ public class Optimizer {
 		gj.dec();
 
 		gj.verbose("Total expressions replaced with constants: "
-				+ fullConstVisitor.getReplacedNodeCountTotal());
+				+ (fullConstVisitor.getReplacedNodeCountTotal()
+						+ constantRewriter.getFoldedNodeCountTotal() + replacedPerTask));
 		gj.verbose("Total pruned expressions: "
 				+ deadComponentVisitor.getRemovedNodeCountTotal());
 		gj.dec();
@@ -235,15 +341,15 @@ public class Optimizer {
 		// Run these constant prop again after each iteration so that
 		// we remove left/unsignedright shifts by magnitude larger
 		// than value size.
+		constantRewriter.setTasks(null);
 		List<ComponentSwapVisitor> additionalPasses = new ArrayList<ComponentSwapVisitor>();
-		additionalPasses.add(halfConstantVisitor);
-		additionalPasses.add(fullConstVisitor);
+		additionalPasses.add(constantRewriter);
 		additionalPasses.add(deadComponentVisitor);
 
 		// Always run partial constant propagation.
 		gj.info("propagating constant bits...");
 		// target.accept(new PartialConstant(additionalPasses));
-		TwoPassPartialConstant.propagate(target, additionalPasses);
+		propagate(target, additionalPasses);
 
 		// Rom replication must run after partial constant prop to
 		// accurately determine the number of bits allocated.
@@ -277,13 +383,28 @@ public class Optimizer {
 		return modifiedAtAll;
 	}
 
+	/**
+	 * Runs partial constant propagation, charging its time to the profiler.
+	 */
+	private static void propagate(Visitable target,
+			List<ComponentSwapVisitor> additionalPasses) {
+		CompileProfiler profiler = CompilationContext.current().getProfiler();
+		CompileProfiler.Sample start = profiler.begin();
+		TwoPassPartialConstant.propagate(target, additionalPasses);
+		profiler.endOptimization(TwoPassPartialConstant.class.getSimpleName(),
+				start, false);
+	}
+
 	public static boolean runOpt(Visitable target, Optimization opt) {
 		// System.out.println("******************");
 		// System.out.println("Started " + opt);
+		CompileProfiler profiler = CompilationContext.current().getProfiler();
+		CompileProfiler.Sample start = profiler.begin();
 		opt.clear(); // Clear out prior
 		opt.preStatus();
 		opt.run(target);
 		boolean modify = opt.didModify();
+		profiler.endOptimization(opt.getClass().getSimpleName(), start, modify);
 		EngineThread.getGenericJob().inc();
 		opt.postStatus();
 		EngineThread.getGenericJob().dec();
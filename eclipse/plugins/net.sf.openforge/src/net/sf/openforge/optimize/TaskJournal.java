@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.optimize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openforge.lim.Design;
+import net.sf.openforge.lim.Module;
+import net.sf.openforge.lim.Task;
+
+/**
+ * TaskJournal remembers, for one task local optimization, the modification
+ * count (see {@link Module#getModificationCount()}) of the procedure body of
+ * each {@link Task} when the optimization was last run, so that it is only
+ * run again on the tasks which were modified since.
+ */
+class TaskJournal {
+
+	private final Map<Task, Integer> counts = new HashMap<Task, Integer>();
+
+	/**
+	 * Gets the tasks of the design modified since the last call to
+	 * {@link #update}, in the order of the design.
+	 */
+	List<Task> getModifiedTasks(Design design) {
+		final List<Task> modified = new ArrayList<Task>();
+		for (Task task : design.getTasks()) {
+			final Integer count = counts.get(task);
+			if (count == null || count.intValue() != getCount(task)) {
+				modified.add(task);
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Records the current state of each task of the design. Must be called
+	 * once the optimization has been run on the modified tasks.
+	 */
+	void update(Design design) {
+		for (Task task : design.getTasks()) {
+			counts.put(task, getCount(task));
+		}
+	}
+
+	private static int getCount(Task task) {
+		return task.getCall().getProcedure().getBody().getModificationCount();
+	}
+
+}
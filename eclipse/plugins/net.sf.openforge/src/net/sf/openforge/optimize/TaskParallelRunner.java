@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.optimize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.openforge.app.CompilationContext;
+import net.sf.openforge.app.CompileProfiler;
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.lim.Design;
+import net.sf.openforge.lim.Task;
+import net.sf.openforge.util.naming.ID;
+import net.sf.openforge.util.naming.IDDb;
+
+/**
+ * TaskParallelRunner runs an {@link Optimization} on each {@link Task} of a
+ * {@link Design} concurrently, with a new instance of the optimization for
+ * each task. Only the optimizations which modify nothing but the LIM of the
+ * task they are run on may be run this way; the ones which also modify global
+ * resources (memories, registers, pins) must be run on the whole design once
+ * the tasks are joined.
+ * <p>
+ * The worker threads run with the {@link EngineThread Engine} of the thread
+ * which created the runner, and are released by {@link #shutdown}. The IDs
+ * created by the workers are renumbered task after task once they are all
+ * joined, so that the serial numbers do not depend on the thread timing.
+ */
+class TaskParallelRunner {
+
+	/**
+	 * Creates the instance of the optimization run on one task.
+	 */
+	interface Factory<T extends Optimization> {
+		T create();
+	}
+
+	private final ExecutorService executor;
+
+	/**
+	 * @param threads
+	 *            the number of worker threads
+	 */
+	TaskParallelRunner(int threads) {
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "forge-optimize");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs a new instance of an optimization on each of the given tasks and
+	 * waits for all of them to complete.
+	 * 
+	 * @param tasks
+	 *            the tasks to optimize
+	 * @param factory
+	 *            creates the instance of the optimization of each task
+	 * @param iterate
+	 *            true to run the optimization of each task again until it
+	 *            does not modify the task anymore
+	 * @param instances
+	 *            receives the instances which were run, in the order of the
+	 *            tasks
+	 * @return true if any task was modified
+	 */
+	<T extends Optimization> boolean run(Collection<Task> tasks,
+			Factory<T> factory, final boolean iterate, List<T> instances) {
+		final CompileProfiler profiler = CompilationContext.current()
+				.getProfiler();
+		final CompileProfiler.Sample start = profiler.begin();
+
+		final IDDb idDb = CompilationContext.current().getIDDb();
+		final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		final List<List<ID>> created = new ArrayList<List<ID>>();
+		String name = null;
+		for (final Task task : tasks) {
+			final T opt = factory.create();
+			name = opt.getClass().getSimpleName();
+			instances.add(opt);
+			final List<ID> taskCreated = new ArrayList<ID>();
+			created.add(taskCreated);
+			results.add(executor.submit(EngineThread
+					.bind(new Callable<Boolean>() {
+						@Override
+						public Boolean call() {
+							CompileProfiler.Sample workerStart = profiler
+									.begin();
+							idDb.beginRecording(taskCreated);
+							try {
+								boolean modified = false;
+								boolean again;
+								do {
+									opt.clear();
+									opt.run(task);
+									again = opt.didModify();
+									modified |= again;
+								} while (iterate && again);
+								return modified;
+							} finally {
+								idDb.endRecording();
+								profiler.endWorker(workerStart);
+							}
+						}
+					})));
+		}
+
+		boolean modified = false;
+		for (Future<Boolean> result : results) {
+			modified |= join(result);
+		}
+		for (List<ID> taskCreated : created) {
+			idDb.renumber(taskCreated);
+		}
+		if (name != null) {
+			profiler.endOptimization(name, start, modified);
+		}
+		return modified;
+	}
+
+	private static boolean join(Future<Boolean> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while optimizing tasks", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Releases the worker threads.
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+
+}
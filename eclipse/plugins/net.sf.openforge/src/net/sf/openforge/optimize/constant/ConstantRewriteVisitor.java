@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.optimize.constant;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.lim.ArrayRead;
+import net.sf.openforge.lim.ArrayWrite;
+import net.sf.openforge.lim.Bus;
+import net.sf.openforge.lim.Call;
+import net.sf.openforge.lim.Component;
+import net.sf.openforge.lim.Dependency;
+import net.sf.openforge.lim.Design;
+import net.sf.openforge.lim.IPCoreCall;
+import net.sf.openforge.lim.InBuf;
+import net.sf.openforge.lim.Module;
+import net.sf.openforge.lim.OutBuf;
+import net.sf.openforge.lim.Port;
+import net.sf.openforge.lim.Visitable;
+import net.sf.openforge.optimize.ComponentSwapVisitor;
+import net.sf.openforge.optimize.Optimization;
+import net.sf.openforge.optimize._optimize;
+
+/**
+ * ConstantRewriteVisitor applies the rules of the {@link FullConstantVisitor}
+ * and of the {@link HalfConstantVisitor} in a single traversal of the design:
+ * each component is first checked for full constant replacement and, if it
+ * survives, reduced with the half constant rules. Constant values are pushed
+ * across module boundaries by the {@link InBuf InBufs} and {@link OutBuf
+ * OutBufs} in the same traversal.
+ * <p>
+ * Whenever a component is rewritten, the components consuming its buses are
+ * queued and rewritten again right away, so that a constant propagates
+ * through the whole chain of its consumers without waiting for the next
+ * iteration over the design. Iterations over the whole design are still
+ * repeated until one of them makes no modification, which catches the
+ * rewrites enabled by components created by the rules themselves.
+ * <p>
+ * A visitor created for a single {@link net.sf.openforge.lim.Task Task} may
+ * leave the accesses to global resources ({@link ArrayRead} and
+ * {@link ArrayWrite}) alone, so that it only modifies the LIM of its own task
+ * and may run concurrently with the visitors of the other tasks. These
+ * accesses are then rewritten by {@link #rewriteDeferred}, once no other
+ * visitor is running.
+ */
+public class ConstantRewriteVisitor extends ComponentSwapVisitor implements
+		Optimization {
+
+	/** Applies the full constant rules */
+	private final Folder folder = new Folder();
+
+	/** Applies the half constant rules */
+	private final Reducer reducer = new Reducer();
+
+	/** The components to be rewritten again, in the order they were queued */
+	private final Set<Component> worklist = new LinkedHashSet<Component>();
+
+	/** The consumers of the component being rewritten */
+	private final List<Component> consumers = new ArrayList<Component>();
+
+	/** Set when a rule modifies the LIM */
+	private boolean rewritten;
+
+	/** True if the resource accesses are left for rewriteDeferred */
+	private boolean deferring;
+
+	/** The resource accesses left for rewriteDeferred */
+	private final Set<Component> deferred = new LinkedHashSet<Component>();
+
+	public ConstantRewriteVisitor() {
+		this(false);
+	}
+
+	/**
+	 * @param deferResourceAccesses
+	 *            true if the accesses to global resources must be left for
+	 *            {@link #rewriteDeferred}
+	 */
+	public ConstantRewriteVisitor(boolean deferResourceAccesses) {
+		deferring = deferResourceAccesses;
+	}
+
+	private class Folder extends FullConstantVisitor {
+		@Override
+		protected void setModified(boolean value) {
+			super.setModified(value);
+			rewritten |= value;
+		}
+	}
+
+	private class Reducer extends HalfConstantVisitor {
+		@Override
+		protected void setModified(boolean value) {
+			super.setModified(value);
+			rewritten |= value;
+		}
+	}
+
+	/**
+	 * Applies this optimization to a given target.
+	 * 
+	 * @param target
+	 *            the target on which to run this optimization
+	 */
+	@Override
+	public void run(Visitable target) {
+		target.accept(this);
+	}
+
+	@Override
+	public void visit(Design design) {
+		int i = 0;
+		do {
+			if (_optimize.db) {
+				_optimize.ln("======================================");
+			}
+			if (_optimize.db) {
+				_optimize.ln("# Starting Constant Rewrite iteration " + (i++));
+			}
+			if (_optimize.db) {
+				_optimize.ln("======================================");
+			}
+			reset();
+			super.visit(design);
+		} while (isModified());
+	}
+
+	/**
+	 * Rewrites each component once its contents, if any, have been visited,
+	 * then rewrites the consumers of whatever was modified.
+	 */
+	@Override
+	public void filterAny(Component c) {
+		super.filterAny(c);
+		rewrite(c);
+		while (!worklist.isEmpty()) {
+			Iterator<Component> iter = worklist.iterator();
+			Component next = iter.next();
+			iter.remove();
+			rewrite(next);
+		}
+	}
+
+	/**
+	 * Applies the constant rules to the given component and queues its
+	 * consumers if anything was modified.
+	 * 
+	 * @param c
+	 *            a component, possibly removed from the LIM since it was queued
+	 */
+	private void rewrite(Component c) {
+		if (c.getOwner() == null) {
+			return;
+		}
+
+		consumers.clear();
+		rewritten = false;
+		if (c instanceof InBuf) {
+			addConsumers(c);
+			rewritten = ((InBuf) c).propagateValuesForward();
+		} else if (c instanceof OutBuf) {
+			addConsumers(c.getOwner());
+			rewritten = ((OutBuf) c).propagateValuesForward();
+		} else if (c instanceof ArrayRead || c instanceof ArrayWrite) {
+			if (deferring) {
+				deferred.add(c);
+				return;
+			}
+			addConsumers(c);
+			c.accept(reducer);
+		} else if (c instanceof Module || c instanceof IPCoreCall) {
+			// Only the contents of other modules are rewritten.
+			return;
+		} else if (c instanceof Call) {
+			folder.replaceConstantOutputs((Call) c);
+			return;
+		} else {
+			addConsumers(c);
+			c.accept(folder);
+			if (c.getOwner() != null) {
+				c.accept(reducer);
+			}
+		}
+
+		if (rewritten) {
+			setModified(true);
+			worklist.addAll(consumers);
+		}
+	}
+
+	/**
+	 * Rewrites the resource accesses left alone so far, along with the
+	 * consumers of whatever they modify.
+	 * 
+	 * @return true if the LIM was modified
+	 */
+	public boolean rewriteDeferred() {
+		final List<Component> accesses = new ArrayList<Component>(deferred);
+		deferred.clear();
+		final boolean wasDeferring = deferring;
+		deferring = false;
+		reset();
+		try {
+			for (Component c : accesses) {
+				filterAny(c);
+			}
+		} finally {
+			deferring = wasDeferring;
+		}
+		return isModified();
+	}
+
+	/**
+	 * Records the components which read the buses of the given component. A
+	 * module is represented by its {@link InBuf}, which carries the values of
+	 * its ports into the module.
+	 */
+	private void addConsumers(Component c) {
+		for (Bus bus : c.getBuses()) {
+			for (Port port : bus.getPorts()) {
+				addConsumer(port.getOwner());
+			}
+			for (Dependency dep : bus.getLogicalDependents()) {
+				addConsumer(dep.getPort().getOwner());
+			}
+		}
+	}
+
+	private void addConsumer(Component c) {
+		if (c instanceof Module) {
+			consumers.add(((Module) c).getInBuf());
+			if (c instanceof ArrayRead || c instanceof ArrayWrite) {
+				consumers.add(c);
+			}
+		} else if (c != null) {
+			consumers.add(c);
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		folder.clear();
+		reducer.clear();
+	}
+
+	@Override
+	public int getReplacedNodeCount() {
+		return folder.getReplacedNodeCount() + reducer.getReplacedNodeCount();
+	}
+
+	@Override
+	public int getRemovedNodeCount() {
+		return folder.getRemovedNodeCount() + reducer.getRemovedNodeCount();
+	}
+
+	@Override
+	public int getReplacedNodeCountTotal() {
+		return folder.getReplacedNodeCountTotal()
+				+ reducer.getReplacedNodeCountTotal();
+	}
+
+	@Override
+	public int getRemovedNodeCountTotal() {
+		return folder.getRemovedNodeCountTotal()
+				+ reducer.getRemovedNodeCountTotal();
+	}
+
+	/**
+	 * Returns the number of components replaced with a constant by the full
+	 * constant rules since this visitor was created.
+	 */
+	public int getFoldedNodeCountTotal() {
+		return folder.getReplacedNodeCountTotal();
+	}
+
+	/**
+	 * Reports what optimization is being performed
+	 */
+	@Override
+	public void preStatus() {
+		EngineThread.getGenericJob().info(
+				"rewriting expressions with constants...");
+	}
+
+	/**
+	 * Reports the results of <b>this</b> pass of the
+	 * optimization.
+	 */
+	@Override
+	public void postStatus() {
+		EngineThread.getGenericJob().verbose(
+				"rewrote " + getReplacedNodeCount() + " expressions");
+	}
+
+}
@@ -161,7 +161,17 @@ public class FullConstantVisitor extends ComponentSwapVisitor implements
 		preFilter(call);
 		traverse(call);
 		filter(call);
+		replaceConstantOutputs(call);
+	}
 
+	/**
+	 * Replaces each constant valued data bus of the given call with a
+	 * {@link Constant} inserted at the same level as the call.
+	 * 
+	 * @param call
+	 *            a method call whose body has already been visited
+	 */
+	protected void replaceConstantOutputs(Call call) {
 		// Do not replace the Entry level method call
 		// if (call.getOwner() == null)
 		// IDM. Ugly hack, but there is no way to be sure we will have
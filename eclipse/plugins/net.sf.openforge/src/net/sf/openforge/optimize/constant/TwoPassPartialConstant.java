@@ -70,6 +70,14 @@ public class TwoPassPartialConstant extends DataFlowVisitor {
 	/** True if global components should be visited, false otherwise */
 	private boolean shouldVisitGlobals;
 
+	/**
+	 * The values each component used when it was last propagated in each
+	 * direction, so that components whose inputs did not change since are
+	 * not propagated again.
+	 */
+	private final ValueStamps forwardStamps = new ValueStamps(true);
+	private final ValueStamps reverseStamps = new ValueStamps(false);
+
 	/**
 	 * Creates a new <code>TwoPassPartialConstant</code> instance.
 	 * 
@@ -214,7 +222,12 @@ public class TwoPassPartialConstant extends DataFlowVisitor {
 			// Other optimizations to run
 			for (ComponentSwapVisitor csv : additionalOpts) {
 				target.accept(csv);
-				changed |= csv.didModify();
+				if (csv.didModify()) {
+					// The connections changed, the stamps no longer apply
+					changed = true;
+					visitor.forwardStamps.clear();
+					visitor.reverseStamps.clear();
+				}
 				csv.clear();
 			}
 		}
@@ -283,14 +296,24 @@ public class TwoPassPartialConstant extends DataFlowVisitor {
 		}
 
 		if (isForward()) {
+			if (forwardStamps.isCurrent(c)) {
+				super.preFilterAny(c);
+				return;
+			}
 			boolean forwardMod = c.propagateValuesForward();
+			forwardStamps.record(c);
 			modified |= forwardMod;
 			if (_optimize.db) {
 				_optimize.ln(_optimize.PARTIAL, "\tfwd: " + c.cpDebug(true)
 						+ " \tmodified " + forwardMod);
 			}
 		} else {
+			if (reverseStamps.isCurrent(c)) {
+				super.preFilterAny(c);
+				return;
+			}
 			boolean reverseMod = c.propagateValuesBackward();
+			reverseStamps.record(c);
 			modified |= reverseMod;
 			if (_optimize.db) {
 				_optimize.ln(_optimize.PARTIAL, "\trev: " + c.cpDebug(true)
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.optimize.constant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openforge.lim.Bus;
+import net.sf.openforge.lim.Component;
+import net.sf.openforge.lim.Dependency;
+import net.sf.openforge.lim.Entry;
+import net.sf.openforge.lim.InBuf;
+import net.sf.openforge.lim.OutBuf;
+import net.sf.openforge.lim.Port;
+import net.sf.openforge.lim.Value;
+import net.sf.openforge.lim.op.BinaryOp;
+import net.sf.openforge.lim.op.NoOp;
+import net.sf.openforge.lim.op.TernaryOp;
+import net.sf.openforge.lim.op.TimingOp;
+import net.sf.openforge.lim.op.UnaryOp;
+import net.sf.openforge.lim.primitive.Primitive;
+
+/**
+ * ValueStamps records, for each component whose propagation in one direction
+ * only reads and writes the {@link Value Values} of its own ports and buses
+ * and of those they are connected to, the versions of these values right
+ * after the component was last propagated. Propagating such a component again
+ * while none of these values changed cannot modify anything, so
+ * {@link TwoPassPartialConstant} only propagates the components whose stamp
+ * is out of date: after the first pass, only the consumers (forward) or the
+ * producers (reverse) of the values modified by the previous pass.
+ * <p>
+ * The stamps are only valid as long as the connections of the design do not
+ * change, and must be cleared by {@link #clear} when they do.
+ */
+class ValueStamps {
+
+	/** True for the forward stamps, false for the reverse ones */
+	private final boolean forward;
+
+	private final Map<Component, Stamp> stamps = new HashMap<Component, Stamp>();
+
+	private static class Stamp {
+		private final Value[] values;
+		private final int[] versions;
+
+		private Stamp(List<Value> values) {
+			this.values = values.toArray(new Value[values.size()]);
+			versions = new int[this.values.length];
+			for (int i = 0; i < versions.length; i++) {
+				versions[i] = this.values[i] == null ? 0 : this.values[i]
+						.getVersion();
+			}
+		}
+
+		private boolean isCurrent(List<Value> current) {
+			if (current.size() != values.length) {
+				return false;
+			}
+			for (int i = 0; i < values.length; i++) {
+				final Value value = current.get(i);
+				if (value != values[i]
+						|| (value != null && value.getVersion() != versions[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * @param forward
+	 *            true to stamp the values used by forward propagation, false
+	 *            for reverse propagation
+	 */
+	ValueStamps(boolean forward) {
+		this.forward = forward;
+	}
+
+	/**
+	 * Tests whether none of the values used to propagate the given component
+	 * was modified since it was last recorded.
+	 */
+	boolean isCurrent(Component component) {
+		final Stamp stamp = stamps.get(component);
+		return stamp != null && stamp.isCurrent(collect(component));
+	}
+
+	/**
+	 * Records the versions of the values used to propagate the given
+	 * component, if it is one whose propagation is local.
+	 */
+	void record(Component component) {
+		if (isLocal(component)) {
+			stamps.put(component, new Stamp(collect(component)));
+		}
+	}
+
+	/**
+	 * Forgets all the stamps.
+	 */
+	void clear() {
+		stamps.clear();
+	}
+
+	/**
+	 * Tests whether the propagation of the given component only uses the
+	 * values collected by {@link #collect}.
+	 */
+	private static boolean isLocal(Component component) {
+		return component instanceof UnaryOp || component instanceof BinaryOp
+				|| component instanceof TernaryOp || component instanceof NoOp
+				|| component instanceof TimingOp
+				|| component instanceof Primitive
+				|| component instanceof InBuf || component instanceof OutBuf;
+	}
+
+	/**
+	 * Collects, in a fixed order, the values read or written when the given
+	 * component is propagated in the direction of these stamps.
+	 */
+	private List<Value> collect(Component component) {
+		final List<Value> values = new ArrayList<Value>();
+		for (Port port : component.getPorts()) {
+			values.add(port.getValue());
+			if (port.getPeer() != null) {
+				values.add(port.getPeer().getValue());
+			}
+			if (forward) {
+				if (port.getBus() != null) {
+					values.add(port.getBus().getValue());
+				}
+				for (Entry entry : component.getEntries()) {
+					for (Dependency dep : entry.getDependencies(port)) {
+						values.add(dep.getLogicalBus().getValue());
+					}
+				}
+			}
+		}
+		for (Bus bus : component.getBuses()) {
+			values.add(bus.getValue());
+			if (bus.getPeer() != null) {
+				values.add(bus.getPeer().getValue());
+			}
+			if (!forward) {
+				for (Port port : bus.getPorts()) {
+					values.add(port.getValue());
+				}
+				for (Dependency dep : bus.getLogicalDependents()) {
+					values.add(dep.getPort().getValue());
+				}
+			}
+		}
+		return values;
+	}
+}
@@ -21,11 +21,15 @@
 
 package net.sf.openforge.optimize.nesting;
 
+import java.util.Collection;
+
 import net.sf.openforge.app.EngineThread;
 import net.sf.openforge.app.OptionRegistry;
 import net.sf.openforge.lim.Block;
+import net.sf.openforge.lim.Design;
 import net.sf.openforge.lim.MatchingVisitor;
 import net.sf.openforge.lim.OutBuf;
+import net.sf.openforge.lim.Task;
 import net.sf.openforge.lim.Visitable;
 import net.sf.openforge.optimize.Optimization;
 import net.sf.openforge.optimize._optimize;
@@ -46,6 +50,17 @@ public class NestedBlockOptimization implements Optimization {
 	private UnNestingEngine engine = new UnNestingEngine();
 	private int nestedCount = 0;
 	private int passCount = 0;
+	private Collection<Task> tasks = null;
+
+	/**
+	 * Restricts the runs on a design to the given tasks.
+	 * 
+	 * @param tasks
+	 *            the tasks to optimize, or null to optimize every task
+	 */
+	public void setTasks(Collection<Task> tasks) {
+		this.tasks = tasks;
+	}
 
 	/**
 	 * Applies this optimization to a given target.
@@ -60,7 +75,13 @@ public class NestedBlockOptimization implements Optimization {
 				Debug.depGraphTo(target, "Block Unnesting", "bu-before"
 						+ passCount + ".dot", Debug.GR_DEFAULT);
 			}
-			target.accept(vis);
+			if (tasks != null && target instanceof Design) {
+				for (Task task : tasks) {
+					task.accept(vis);
+				}
+			} else {
+				target.accept(vis);
+			}
 			nestedCount = vis.getMatchingNodes().size();
 			engine.unnest(vis.getMatchingNodes());
 			if (_optimize.db) {
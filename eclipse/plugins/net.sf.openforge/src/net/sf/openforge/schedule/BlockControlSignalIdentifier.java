@@ -21,7 +21,7 @@
 
 package net.sf.openforge.schedule;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.ArrayRead;
@@ -208,7 +208,7 @@ public class BlockControlSignalIdentifier implements Visitor {
 	 *            a non-null Component
 	 */
 	private void captureDONESignal(Component comp) {
-		final Set<Bus> doneBuses = new HashSet<Bus>();
+		final Set<Bus> doneBuses = new LinkedHashSet<Bus>();
 		for (Exit exit : comp.getExits()) {
 			if (exit.getTag().getType() == Exit.SIDEBAND)
 				continue;
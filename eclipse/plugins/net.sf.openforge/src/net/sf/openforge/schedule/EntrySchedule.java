@@ -41,6 +41,7 @@ import net.sf.openforge.lim.op.Constant;
 import net.sf.openforge.lim.op.SimpleConstant;
 import net.sf.openforge.lim.primitive.Mux;
 import net.sf.openforge.lim.primitive.Or;
+import net.sf.openforge.util.naming.IDMap;
 
 /**
  * EntrySchedule derives the scheduled {@link Bus} for each {@link Port}
@@ -60,7 +61,7 @@ class EntrySchedule {
 	protected Bus controlBus = null;
 
 	/** Map of Port to the Bus that was scheduled for it, if any */
-	private Map<Port, Bus> busMap;
+	private IDMap<Port, Bus> busMap;
 
 	/** True if a balanced schedule is being produced */
 	private boolean isBalancing;
@@ -76,7 +77,7 @@ class EntrySchedule {
 	EntrySchedule(Entry entry, LatencyTracker tracker, boolean isBalancing) {
 		this.entry = entry;
 		this.tracker = tracker;
-		busMap = new HashMap<Port, Bus>(entry.getOwner().getPorts().size());
+		busMap = new IDMap<Port, Bus>(entry.getOwner().getPorts().size());
 		this.isBalancing = isBalancing;
 	}
 
@@ -85,7 +86,7 @@ class EntrySchedule {
 	 */
 	EntrySchedule() {
 		tracker = new LatencyTracker();
-		busMap = new LinkedHashMap<Port, Bus>();
+		busMap = new IDMap<Port, Bus>();
 		isBalancing = false;
 	}
 
@@ -190,7 +191,7 @@ class EntrySchedule {
 			 * the goBuses to themselves.
 			 */
 			if (newBusToOldBus == null) {
-				newBusToOldBus = new HashMap<Bus, Bus>(goBuses.size());
+				newBusToOldBus = new LinkedHashMap<Bus, Bus>(goBuses.size());
 				for (Bus goBus : goBuses) {
 					newBusToOldBus.put(goBus, goBus);
 				}
@@ -293,7 +294,7 @@ class EntrySchedule {
 
 	private static Map<Bus, Bus> synchronizeControlBuses(Collection<Bus> buses,
 			Module module, LatencyTracker tracker) {
-		final Map<Bus, Latency> busLatencies = new HashMap<Bus, Latency>();
+		final Map<Bus, Latency> busLatencies = new LinkedHashMap<Bus, Latency>();
 		for (Bus bus : buses) {
 			busLatencies.put(bus, tracker.getLatency(bus));
 		}
@@ -305,7 +306,7 @@ class EntrySchedule {
 		assert maxLatency.isFixed() : "unable to balance control Bus with unfixed Latency";
 		final int maxClocks = maxLatency.getMaxClocks();
 
-		Map<Bus, Bus> syncedBuses = new HashMap<Bus, Bus>(buses.size());
+		Map<Bus, Bus> syncedBuses = new LinkedHashMap<Bus, Bus>(buses.size());
 		for (Bus bus : buses) {
 			final Latency latency = busLatencies.get(bus);
 			syncedBuses.put(
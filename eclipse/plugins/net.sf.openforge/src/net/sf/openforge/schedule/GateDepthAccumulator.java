@@ -21,9 +21,7 @@
 
 package net.sf.openforge.schedule;
 
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Stack;
 
 import net.sf.openforge.lim.ArrayRead;
@@ -117,6 +115,7 @@ import net.sf.openforge.lim.primitive.Not;
 import net.sf.openforge.lim.primitive.Or;
 import net.sf.openforge.lim.primitive.Reg;
 import net.sf.openforge.lim.primitive.SRL16;
+import net.sf.openforge.util.naming.IDMap;
 
 /**
  * GateDepthAccumulator calculates the maximum gate depth for each task in a
@@ -132,7 +131,7 @@ import net.sf.openforge.lim.primitive.SRL16;
 class GateDepthAccumulator extends DataFlowVisitor {
 
 	/** Map of Exit to Integer object of cumulative gate depth */
-	private Map<Exit, Integer> exitToGateDepthMap;
+	private IDMap<Exit, Integer> exitToGateDepthMap;
 
 	private Stack<Component> unresolvedGateDepthComponents;
 
@@ -410,7 +409,7 @@ class GateDepthAccumulator extends DataFlowVisitor {
 		preFilter(task);
 		// clear the field variables which store information within a task
 		// scope.
-		exitToGateDepthMap = new HashMap<Exit, Integer>();
+		exitToGateDepthMap = new IDMap<Exit, Integer>();
 		unresolvedGateDepthComponents = new Stack<Component>();
 		taskMaxGateDepth = 0;
 		traverse(task);
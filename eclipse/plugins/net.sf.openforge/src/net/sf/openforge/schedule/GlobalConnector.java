@@ -24,7 +24,6 @@ package net.sf.openforge.schedule;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -182,7 +181,7 @@ public class GlobalConnector extends FilteredVisitor {
 		// record duplicates of the procedure's connections
 		// Some connections contain the same buses (done & address)
 		// which we only want 1 new port for not multiples...
-		Map<ID, ID> duplicatedMap = new HashMap<ID, ID>();
+		Map<ID, ID> duplicatedMap = new LinkedHashMap<ID, ID>();
 		// for (Iterator resources =
 		// procedureFrame.getConnectedResources().iterator();
 		// resources.hasNext();)
@@ -555,7 +554,7 @@ public class GlobalConnector extends FilteredVisitor {
 		final boolean moduleBuilder = EngineThread.getGenericJob()
 				.getUnscopedBooleanOptionValue(OptionRegistry.MODULE_BUILDER);
 
-		final Map<String, Kicker> kickers = new HashMap<String, Kicker>();
+		final Map<String, Kicker> kickers = new LinkedHashMap<String, Kicker>();
 		for (Task task : design.getTasks()) {
 			final Call call = task.getCall();
 			final String domainSpec = (String) ((OptionString) EngineThread
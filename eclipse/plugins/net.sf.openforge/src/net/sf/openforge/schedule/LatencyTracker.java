@@ -23,7 +23,6 @@ package net.sf.openforge.schedule;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -44,6 +43,8 @@ import net.sf.openforge.lim.primitive.And;
 import net.sf.openforge.lim.primitive.Mux;
 import net.sf.openforge.lim.primitive.Or;
 import net.sf.openforge.lim.primitive.Reg;
+import net.sf.openforge.util.naming.IDMap;
+import net.sf.openforge.util.naming.IDSet;
 
 /**
  * LatencyTracker records control information for various points in a LIM graph.
@@ -62,19 +63,19 @@ public class LatencyTracker implements LatencyCache {
 	private OpCache cache = null;
 
 	/** Map of Exit to control Bus */
-	private Map<Exit, Bus> exitControlBusMap = new HashMap<Exit, Bus>();
+	private IDMap<Exit, Bus> exitControlBusMap = new IDMap<Exit, Bus>();
 
 	/** Map of Component to control Bus */
-	private Map<Component, Bus> entryControlBusMap = new HashMap<Component, Bus>();
+	private IDMap<Component, Bus> entryControlBusMap = new IDMap<Component, Bus>();
 
 	/** Map of control Bus to Latency */
-	private Map<Bus, Latency> latencyMap = new HashMap<Bus, Latency>();
+	private IDMap<Bus, Latency> latencyMap = new IDMap<Bus, Latency>();
 
 	/** Set of Latches created by this tracker. */
-	private Set<Latch> latches = new HashSet<Latch>();
+	private IDSet<Latch> latches = new IDSet<Latch>();
 
 	/** Set of Enable Regs created by this tracker. */
-	private Set<Reg> enableRegs = new HashSet<Reg>();
+	private IDSet<Reg> enableRegs = new IDSet<Reg>();
 
 	/**
 	 * Creates a new latency tracker with an empty OpCache.
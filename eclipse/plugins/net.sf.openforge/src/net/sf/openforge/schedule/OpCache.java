@@ -21,7 +21,10 @@
 
 package net.sf.openforge.schedule;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -38,12 +41,17 @@ import net.sf.openforge.lim.primitive.Mux;
 import net.sf.openforge.lim.primitive.Or;
 import net.sf.openforge.lim.primitive.Reg;
 import net.sf.openforge.optimize.constant.TwoPassPartialConstant;
+import net.sf.openforge.util.naming.IDMap;
 
 /**
  * OpCache is a simple and convenient way to keep track of structures that have
  * already been created in the LIM and reuse them when applicable. Any
  * scheduling artifacts (scoreboards, registers, etc) created during scheduling
  * should use the cache to avoid duplicate nodes.
+ * <p>
+ * The gates built on a set of buses (scoreboards, ors, ands and muxes) are
+ * found through a single interned {@link BusSet} per distinct set, so a lookup
+ * which hits allocates nothing.
  * 
  * 
  * Created: Tue May 14 10:23:00 2002
@@ -53,17 +61,40 @@ import net.sf.openforge.optimize.constant.TwoPassPartialConstant;
  */
 public class OpCache {
 
-	private Map<Bus, Reg> eregMap = new HashMap<Bus, Reg>();
-	private Map<Set<Bus>, Scoreboard> scoreMap = new HashMap<Set<Bus>, Scoreboard>();
-	private Map<Bus, Latch> latchMap = new HashMap<Bus, Latch>();
-	private Map<Bus, Reg> regMap = new HashMap<Bus, Reg>();
-	private Map<Set<Bus>, Or> orMap = new HashMap<Set<Bus>, Or>();
-	private Map<Set<Bus>, And> andMap = new HashMap<Set<Bus>, And>();
-	private Map<Set<Bus>, Mux> muxMap = new HashMap<Set<Bus>, Mux>();
+	private IDMap<Bus, Reg> eregMap = new IDMap<Bus, Reg>();
+	private IDMap<Bus, Latch> latchMap = new IDMap<Bus, Latch>();
+	private IDMap<Bus, Reg> regMap = new IDMap<Bus, Reg>();
+
+	/** The interned bus sets, each mapped to itself */
+	private Map<BusSet, BusSet> busSets = new HashMap<BusSet, BusSet>();
+
+	/** The reusable key used to look up the interned bus sets */
+	private final BusSet probe = new BusSet();
+
+	/** The number of requests for a gate on a set of buses */
+	private int lookupCount = 0;
+
+	/** The number of those requests answered by an existing gate */
+	private int hitCount = 0;
 
 	public OpCache() {
 	}
 
+	/**
+	 * Gets the number of requests for a scoreboard, or, and or mux.
+	 */
+	public int getLookupCount() {
+		return lookupCount;
+	}
+
+	/**
+	 * Gets the number of requests for a scoreboard, or, and or mux which
+	 * returned a previously built gate.
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
 	/**
 	 * Returns an enabled (but NOT reset) registered version of the specified
 	 * bus
@@ -101,14 +132,16 @@ public class OpCache {
 	}
 
 	Scoreboard getScoreboard(Collection<Bus> controlBuses) {
-		final Set<Bus> uniqueControlBuses = new LinkedHashSet<Bus>(controlBuses);
-		Scoreboard scoreboard = scoreMap.get(uniqueControlBuses);
-		if (scoreboard == null) {
-			scoreboard = new Scoreboard(uniqueControlBuses);
-			TwoPassPartialConstant.propagateQuiet(scoreboard);
-			scoreMap.put(uniqueControlBuses, scoreboard);
+		final BusSet busSet = intern(controlBuses, Collections.<Bus> emptyList());
+		if (busSet.scoreboard == null) {
+			final Set<Bus> uniqueControlBuses = new LinkedHashSet<Bus>(
+					controlBuses);
+			busSet.scoreboard = new Scoreboard(uniqueControlBuses);
+			TwoPassPartialConstant.propagateQuiet(busSet.scoreboard);
+		} else {
+			hitCount++;
 		}
-		return scoreboard;
+		return busSet.scoreboard;
 	}
 
 	/**
@@ -168,9 +201,10 @@ public class OpCache {
 	 *         created or connected
 	 */
 	public Or getOr(Collection<Bus> buses) {
-		final Set<Bus> uniqueBuses = new LinkedHashSet<Bus>(buses);
-		Or or = orMap.get(uniqueBuses);
+		final BusSet busSet = intern(buses, Collections.<Bus> emptyList());
+		Or or = busSet.or;
 		if (or == null) {
+			final Set<Bus> uniqueBuses = new LinkedHashSet<Bus>(buses);
 			or = new Or(uniqueBuses.size());
 			int i = 0;
 			for (Bus bus : uniqueBuses) {
@@ -179,7 +213,9 @@ public class OpCache {
 				i++;
 			}
 			or.propagateValuesForward();
-			orMap.put(uniqueBuses, or);
+			busSet.or = or;
+		} else {
+			hitCount++;
 		}
 		return or;
 	}
@@ -193,9 +229,10 @@ public class OpCache {
 	 * @return the And, with its Ports connected to the given Buses
 	 */
 	public And getAnd(Collection<Bus> buses) {
-		final Set<Bus> uniqueBuses = new LinkedHashSet<Bus>(buses);
-		And and = andMap.get(uniqueBuses);
+		final BusSet busSet = intern(buses, Collections.<Bus> emptyList());
+		And and = busSet.and;
 		if (and == null) {
+			final Set<Bus> uniqueBuses = new LinkedHashSet<Bus>(buses);
 
 			// and = new And(buses.size());
 			and = new And(uniqueBuses.size());
@@ -206,7 +243,9 @@ public class OpCache {
 				i++;
 			}
 			and.propagateValuesForward();
-			andMap.put(uniqueBuses, and);
+			busSet.and = and;
+		} else {
+			hitCount++;
 		}
 		return and;
 	}
@@ -229,9 +268,8 @@ public class OpCache {
 					"mismatched number of go and data buses");
 		}
 
-		final Set<Bus> uniqueBuses = new LinkedHashSet<Bus>(goBuses);
-		uniqueBuses.addAll(dataBuses);
-		Mux mux = muxMap.get(uniqueBuses);
+		final BusSet busSet = intern(goBuses, dataBuses);
+		Mux mux = busSet.mux;
 		if (mux == null) {
 			mux = new Mux(goBuses.size());
 			List<Port> goPorts = mux.getGoPorts();
@@ -246,9 +284,123 @@ public class OpCache {
 				dataPort.setBus(bus);
 			}
 			mux.propagateValuesForward();
-			muxMap.put(uniqueBuses, mux);
+			busSet.mux = mux;
+		} else {
+			hitCount++;
 		}
 		return mux;
 	}
 
+	/**
+	 * Gets the interned set of the union of two collections of buses, and
+	 * counts the lookup.
+	 */
+	private BusSet intern(Collection<Bus> first, Collection<Bus> second) {
+		lookupCount++;
+		probe.fill(first, second);
+		BusSet busSet = busSets.get(probe);
+		if (busSet == null) {
+			busSet = probe.copy();
+			busSets.put(busSet, busSet);
+		}
+		return busSet;
+	}
+
+	/**
+	 * A set of buses in canonical form: sorted by serial number without
+	 * duplicates, with its hash computed once. It also holds the gates which
+	 * have been built on the set.
+	 */
+	private static final class BusSet {
+		private static final Comparator<Bus> ORDER = new Comparator<Bus>() {
+			@Override
+			public int compare(Bus a, Bus b) {
+				final int ida = a.getIDNumber();
+				final int idb = b.getIDNumber();
+				if (ida != idb) {
+					return ida < idb ? -1 : 1;
+				}
+				final int ha = System.identityHashCode(a);
+				final int hb = System.identityHashCode(b);
+				return ha < hb ? -1 : (ha == hb ? 0 : 1);
+			}
+		};
+
+		private Bus[] buses;
+		private int size;
+		private int hash;
+
+		Scoreboard scoreboard = null;
+		Or or = null;
+		And and = null;
+		Mux mux = null;
+
+		BusSet() {
+			this(new Bus[8], 0, 0);
+		}
+
+		private BusSet(Bus[] buses, int size, int hash) {
+			this.buses = buses;
+			this.size = size;
+			this.hash = hash;
+		}
+
+		/**
+		 * Makes this set the union of two collections.
+		 */
+		void fill(Collection<Bus> first, Collection<Bus> second) {
+			final int count = first.size() + second.size();
+			if (buses.length < count) {
+				buses = new Bus[Math.max(count, buses.length * 2)];
+			}
+			int n = 0;
+			for (Bus bus : first) {
+				buses[n++] = bus;
+			}
+			for (Bus bus : second) {
+				buses[n++] = bus;
+			}
+			Arrays.sort(buses, 0, n, ORDER);
+
+			size = 0;
+			hash = 1;
+			for (int i = 0; i < n; i++) {
+				if (size == 0 || buses[size - 1] != buses[i]) {
+					buses[size++] = buses[i];
+					hash = 31 * hash + buses[i].getIDNumber();
+				}
+			}
+			Arrays.fill(buses, size, n, null);
+		}
+
+		/**
+		 * Returns a new set with the same buses and no gates.
+		 */
+		BusSet copy() {
+			return new BusSet(Arrays.copyOf(buses, size), size, hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BusSet)) {
+				return false;
+			}
+			final BusSet other = (BusSet) o;
+			if (other.size != size || other.hash != hash) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (other.buses[i] != buses[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 }
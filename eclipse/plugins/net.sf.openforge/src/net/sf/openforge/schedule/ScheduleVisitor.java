@@ -24,9 +24,9 @@ package net.sf.openforge.schedule;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -150,6 +150,13 @@ public class ScheduleVisitor extends DefaultVisitor {
 		return tracker;
 	}
 
+	/**
+	 * Gets the cache of the scheduling hardware built by this visitor.
+	 */
+	OpCache getOpCache() {
+		return tracker.getOpCache();
+	}
+
 	@Override
 	public void visit(Task task) {
 		taskCache.startTask(task);
@@ -343,7 +350,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 			// will NOT be the controlling input of the feedback entry
 			// and the loop will not work
 			if (nextComp == loop.getBody() && loop.getControlRegister() != null) {
-				final Map<ID, Latency> latencyMap = new HashMap<ID, Latency>();
+				final Map<ID, Latency> latencyMap = new LinkedHashMap<ID, Latency>();
 				for (Entry entry : loop.getBody().getEntries()) {
 					for (Port port : nextComp.getPorts()) {
 						for (Iterator<Dependency> depIter = entry
@@ -756,12 +763,12 @@ public class ScheduleVisitor extends DefaultVisitor {
 				.getTracker(module).getModuleStallProcs(module);
 		if (!moduleStallProcs.isEmpty()) {
 			// First, insert latches on every data port
-			Collection<Latch> latches = new HashSet<Latch>();
+			Collection<Latch> latches = new LinkedHashSet<Latch>();
 			for (Port port : module.getDataPorts()) {
 				Bus dataBus = port.getPeer();
 				Latch latch = tracker.getLatch(dataBus, module);
 				latches.add(latch);
-				for (Iterator<Port> connIter = (new HashSet<Port>(
+				for (Iterator<Port> connIter = (new LinkedHashSet<Port>(
 						dataBus.getPorts())).iterator(); connIter.hasNext();) {
 					Port connectionPort = connIter.next();
 					// The latch may have already been inserted into
@@ -775,7 +782,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 			// Now insert the stallboard between the GO and all logic,
 			// but be careful to NOT move the latches enable. They
 			// still need to be enabled by the GO.
-			final Collection<Port> goTargets = new HashSet<Port>(module
+			final Collection<Port> goTargets = new LinkedHashSet<Port>(module
 					.getGoPort().getPeer().getPorts());
 			// The module stallboard has only the GO as a non-stall input
 			final Stallboard stbd = tracker
@@ -783,7 +790,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 							Collections.singleton(module.getGoPort().getPeer()),
 							module);
 			for (ModuleStallSource stallSource : moduleStallProcs) {
-				final Set<Bus> stallSignals = new HashSet<Bus>();
+				final Set<Bus> stallSignals = new LinkedHashSet<Bus>();
 				for (Component stallComp : stallSource.getStallingComponents()) {
 					final Bus stallBus = BlockControlSignalIdentifier
 							.getControlSignal(stallComp, tracker);
@@ -821,7 +828,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 			if (process.isProcessContext(module)) {
 				for (ProcessStartPoint startPoint : process.getStartPoints()) {
 					final Stallboard stbd = startPoint.getStallPoint();
-					final Map<ID, Latency> stallBuses = new HashMap<ID, Latency>();
+					final Map<ID, Latency> stallBuses = new LinkedHashMap<ID, Latency>();
 					for (Component stallComp : startPoint.getStallSignals()) {
 						// Check to ensure that the stall signal is
 						// coming from a component in the same module.
@@ -955,7 +962,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 		 * Schedule each component internally. We will then know each
 		 * component's latency and other scheduling characteristics.
 		 */
-		Collection<Component> components = new HashSet<Component>(
+		Collection<Component> components = new LinkedHashSet<Component>(
 				module.getComponents());
 		for (Component component : components) {
 			component.accept(this);
@@ -990,7 +997,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 		 * Ignore InBuf and OutBufs, since they derive their attributes from the
 		 * Module.
 		 */
-		Collection<Component> components = new HashSet<Component>(
+		Collection<Component> components = new LinkedHashSet<Component>(
 				module.getComponents());
 		components.remove(module.getInBuf());
 
@@ -1096,7 +1103,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 			}
 		}
 
-		final Collection<Component> removedComponents = new HashSet<Component>();
+		final Collection<Component> removedComponents = new LinkedHashSet<Component>();
 		while (!unusedQueue.isEmpty()) {
 			final Component component = unusedQueue.removeFirst();
 			final Collection<Component> inputComponents = getInputComponents(component);
@@ -1114,7 +1121,7 @@ public class ScheduleVisitor extends DefaultVisitor {
 	}
 
 	private static Collection<Component> getInputComponents(Component component) {
-		final Collection<Component> inputComponents = new HashSet<Component>();
+		final Collection<Component> inputComponents = new LinkedHashSet<Component>();
 		for (Port port : component.getPorts()) {
 			if (port.isConnected()) {
 				inputComponents.add(port.getBus().getOwner().getOwner());
@@ -179,6 +179,15 @@ public class Scheduler {
 		if (_schedule.db)
 			_schedule.ln("\n----------------------------\nScheduling\n");
 		ScheduleVisitor schedVis = ScheduleVisitor.schedule(design);
+		final OpCache cache = schedVis.getOpCache();
+		if (cache.getLookupCount() > 0) {
+			gj.inc();
+			gj.info("shared " + cache.getHitCount() + " of "
+					+ cache.getLookupCount() + " control gate requests ("
+					+ (100L * cache.getHitCount() / cache.getLookupCount())
+					+ "%)");
+			gj.dec();
+		}
 
 		// Generate result XML if/as necessary. Should move to
 		// LIMCompiler and output with other output engines... tbd
@@ -24,8 +24,8 @@ package net.sf.openforge.schedule;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -109,7 +109,7 @@ public class SimplePinConnector extends DefaultVisitor {
 
 		// For every pin in the design, find all writers and arbitrate
 		// them appropriately into the pin
-		final Map<SimplePin, Set<Bus>> pinToWriters = new HashMap<SimplePin, Set<Bus>>();
+		final Map<SimplePin, Set<Bus>> pinToWriters = new LinkedHashMap<SimplePin, Set<Bus>>();
 		for (Frame frame : taskFrames) {
 			for (SimplePin pin : frame.getWritePins()) {
 				Set<Bus> writers = pinToWriters.get(pin);
@@ -558,8 +558,8 @@ public class SimplePinConnector extends DefaultVisitor {
 	}
 
 	class Frame {
-		private Map<SimplePin, List<Port>> readPorts = new HashMap<SimplePin, List<Port>>();
-		private Map<SimplePin, List<Bus>> writeBuses = new HashMap<SimplePin, List<Bus>>();
+		private Map<SimplePin, List<Port>> readPorts = new LinkedHashMap<SimplePin, List<Port>>();
+		private Map<SimplePin, List<Bus>> writeBuses = new LinkedHashMap<SimplePin, List<Bus>>();
 
 		public void addReadPort(Referenceable pin, Port port) {
 			List<Port> ports = readPorts.get(pin);
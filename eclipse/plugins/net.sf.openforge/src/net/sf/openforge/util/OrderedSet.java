@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.util;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An <code>OrderedSet</code> is a {@link java.util.Set} that iterates over its
+ * elements in the order in which they were added, whatever their hash codes.
+ * The elements are held in an array; removing an element leaves an empty slot
+ * behind, and the slots are compacted when the array fills up. Small sets are
+ * searched linearly, and an index from element to slot is only built once the
+ * set grows past a few elements, so the many small sets of the LIM (the ports
+ * of a bus, for instance) cost little more than their array.
+ * <p>
+ * Elements are compared with {@link Object#equals(Object)}, as in a
+ * {@link java.util.HashSet}. Null elements are not supported.
+ */
+public class OrderedSet<E> extends AbstractSet<E> {
+
+	/** The number of elements above which the index is maintained */
+	private static final int INDEX_THRESHOLD = 8;
+
+	/** The elements, in order of addition, with null for removed slots */
+	private Object[] elements;
+
+	/** The number of slots in use, including those of removed elements */
+	private int end = 0;
+
+	/** The number of elements */
+	private int size = 0;
+
+	/** The slot of each element, or null while the set is small */
+	private Map<Object, Integer> index = null;
+
+	/** Incremented on each modification, to detect concurrent modification */
+	private int modCount = 0;
+
+	/**
+	 * Constructs a new, empty set.
+	 */
+	public OrderedSet() {
+		this(4);
+	}
+
+	/**
+	 * Constructs a new, empty set with room for a given number of elements.
+	 * 
+	 * @param capacity
+	 *            the number of elements to make room for
+	 */
+	public OrderedSet(int capacity) {
+		elements = new Object[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Constructs a new set containing the elements of a given collection, in
+	 * its iteration order.
+	 * 
+	 * @param collection
+	 *            the elements to add
+	 */
+	public OrderedSet(Collection<? extends E> collection) {
+		this(collection.size());
+		addAll(collection);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return slotOf(object) >= 0;
+	}
+
+	@Override
+	public boolean add(E element) {
+		if (element == null) {
+			throw new NullPointerException("null element");
+		}
+		if (slotOf(element) >= 0) {
+			return false;
+		}
+
+		if (end == elements.length) {
+			if (size <= end / 2) {
+				compact();
+			} else {
+				final Object[] grown = new Object[2 * end];
+				System.arraycopy(elements, 0, grown, 0, end);
+				elements = grown;
+			}
+		}
+		elements[end] = element;
+		if (index != null) {
+			index.put(element, end);
+		}
+		end++;
+		size++;
+		modCount++;
+
+		if (index == null && size > INDEX_THRESHOLD) {
+			index = new HashMap<Object, Integer>(2 * size);
+			for (int i = 0; i < end; i++) {
+				if (elements[i] != null) {
+					index.put(elements[i], i);
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object object) {
+		final int slot = slotOf(object);
+		if (slot < 0) {
+			return false;
+		}
+		removeSlot(slot);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < end; i++) {
+			elements[i] = null;
+		}
+		end = 0;
+		size = 0;
+		index = null;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			/** The slot to look for the next element from */
+			private int cursor = 0;
+
+			/** The slot of the element last returned, or -1 */
+			private int last = -1;
+
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				while (cursor < end && elements[cursor] == null) {
+					cursor++;
+				}
+				return cursor < end;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = cursor++;
+				return (E) elements[last];
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				removeSlot(last);
+				last = -1;
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	/**
+	 * Finds the slot which holds an element.
+	 * 
+	 * @return the slot, or -1 if the element is not in this set
+	 */
+	private int slotOf(Object object) {
+		if (object == null) {
+			return -1;
+		}
+		if (index != null) {
+			final Integer slot = index.get(object);
+			return (slot == null) ? -1 : slot.intValue();
+		}
+		for (int i = 0; i < end; i++) {
+			if (object.equals(elements[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties a slot. Emptied slots at the end of the array are reused
+	 * directly, the others are reclaimed by {@link #compact()}.
+	 */
+	private void removeSlot(int slot) {
+		if (index != null) {
+			index.remove(elements[slot]);
+		}
+		elements[slot] = null;
+		size--;
+		modCount++;
+
+		while (end > 0 && elements[end - 1] == null) {
+			end--;
+		}
+	}
+
+	/**
+	 * Moves the elements down over the emptied slots, keeping their order.
+	 */
+	private void compact() {
+		int next = 0;
+		for (int i = 0; i < end; i++) {
+			final Object element = elements[i];
+			if (element != null) {
+				elements[i] = null;
+				elements[next] = element;
+				if (index != null) {
+					index.put(element, next);
+				}
+				next++;
+			}
+		}
+		end = next;
+	}
+}
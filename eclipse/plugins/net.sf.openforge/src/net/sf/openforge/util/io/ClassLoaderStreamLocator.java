@@ -15,4 +15,20 @@ public class ClassLoaderStreamLocator implements StreamLocator {
 
 	private ClassLoader loader;
 
+	/**
+	 * Two locators on the same class loader find the same resources, which
+	 * allows the compiled stylesheets to be shared (see
+	 * net.sf.openforge.util.xml.Util).
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof ClassLoaderStreamLocator)
+				&& ((ClassLoaderStreamLocator) obj).loader == loader;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(loader);
+	}
+
 }
@@ -24,6 +24,7 @@ package net.sf.openforge.util.naming;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.util.HF;
 
 /**
@@ -35,18 +36,18 @@ import net.sf.openforge.util.HF;
  */
 public class ID implements HasIDSourceInfo {
 
-	private static final IDDb db = new IDDb();
-
 	/**
-	 * 
-	 * This is experimentally turned on as of 8/20/2002. It is cleverer in that
-	 * it attempts to keep a rolling id tab per type. So the first created Bus
-	 * is bus0, the second is bus1, etc..
+	 * The type name, derived from the class on first use unless copied from
+	 * another ID.
 	 */
-	private static final boolean USE_SMALL_IDS = false;
-
 	private String idType = null;
-	private final long idNum;
+
+	/**
+	 * Dense serial number, allocated from the {@link IDDb} of the current
+	 * {@link CompilationContext}. The first ID created in a compilation gets
+	 * 0, the second 1, etc..
+	 */
+	private int idNum;
 	private String idLogical = null;
 	private IDSourceInfo isSourceInfo = null;
 	private ID original = null;
@@ -62,7 +63,8 @@ public class ID implements HasIDSourceInfo {
 	 * target ID. Useful when cloning IDs.
 	 */
 	public static void copy(ID source, ID target) {
-		target.idType = source.idType;
+		target.idType = (source.getClass() == target.getClass()) ? source.idType
+				: source.getIDGlobalType();
 		target.idLogical = source.idLogical;
 		target.original = source.originalID();
 		target.sourceName = source.sourceName;
@@ -80,12 +82,7 @@ public class ID implements HasIDSourceInfo {
 	 * 
 	 */
 	public ID() {
-		idType = getDefaultIDType(this.getClass());
-
-		if (USE_SMALL_IDS)
-			idNum = ID.getNextID(idType);
-		else
-			idNum = System.identityHashCode(this);
+		idNum = CompilationContext.current().getIDDb().getNextSerial(this);
 
 		if (_naming.db) {
 			_naming.ln("Allocated (1) object idType: " + ID.showGlobal(this));
@@ -108,9 +105,29 @@ public class ID implements HasIDSourceInfo {
 	 * @return type for this class
 	 */
 	public final String getIDGlobalType() {
+		if (idType == null)
+			idType = getDefaultIDType(this.getClass());
 		return idType;
 	}
 
+	/**
+	 * Returns the dense serial number of this object. The serial numbers of
+	 * one compilation are small consecutive integers, so they may be used to
+	 * index arrays of per object data.
+	 * 
+	 * @return the serial number, unique within the compilation
+	 */
+	public final int getIDNumber() {
+		return idNum;
+	}
+
+	/**
+	 * Gives this object a new serial number, see {@link IDDb#renumber}.
+	 */
+	final void setIDNumber(int idNum) {
+		this.idNum = idNum;
+	}
+
 	/**
 	 * Set the logical id for this object
 	 * 
@@ -179,12 +196,7 @@ public class ID implements HasIDSourceInfo {
 	 * @return a value of type 'String'
 	 */
 	public String showIDGlobal() {
-		String s;
-		if (USE_SMALL_IDS)
-			s = Long.toString(idNum);
-		else
-			s = HF.hex(System.identityHashCode(this), 8);
-		return getIDGlobalType() + "[" + s + "]";
+		return getIDGlobalType() + "[" + HF.hex(idNum, 8) + "]";
 	}
 
 	/**
@@ -372,12 +384,16 @@ public class ID implements HasIDSourceInfo {
 	// generic static methods
 	// ------------------------------------------------
 
+	/**
+	 * Returns the next id of the given type. The counters belong to the
+	 * {@link CompilationContext} of the current compilation.
+	 */
 	public static long getNextID(String idType) {
-		return db.getNextID(idType);
+		return CompilationContext.current().getIDDb().getNextID(idType);
 	}
 
 	private static String getDefaultIDType(Class<?> c) {
-		return db.getTypeName(c);
+		return IDDb.getTypeName(c);
 	}
 
 	/**
@@ -22,7 +22,10 @@
 package net.sf.openforge.util.naming;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * IDDb. Keeps small ids allocated.
@@ -33,14 +36,22 @@ import java.util.Map;
 public class IDDb {
 
 	private Map<String, Entry> idMap = new HashMap<String, Entry>();
-	private Map<Class<?>, String> typeMap = new HashMap<Class<?>, String>();
+
+	/** The serial numbers handed to each {@link ID} */
+	private final AtomicInteger nextSerial = new AtomicInteger();
+
+	/** Receives the IDs created by the current thread, if it is recording */
+	private final ThreadLocal<List<ID>> recording = new ThreadLocal<List<ID>>();
+
+	/** The type names only depend on the class, they are shared by all */
+	private static Map<Class<?>, String> typeMap = new ConcurrentHashMap<Class<?>, String>();
 
 	/**
 	 * Return the next id
 	 * 
 	 * @return allocated id
 	 */
-	public long getNextID(String type) {
+	public synchronized long getNextID(String type) {
 		Entry e = (Entry) idMap.get(type);
 		if (e == null) {
 			e = new Entry();
@@ -50,6 +61,67 @@ public class IDDb {
 		return e.getNextID();
 	}
 
+	/**
+	 * Return the next serial number. Unlike {@link #getNextID(String)} there
+	 * is a single counter for all types, so the numbers are dense.
+	 * 
+	 * @param id
+	 *            the ID the number is allocated for
+	 * @return allocated serial number
+	 */
+	public int getNextSerial(ID id) {
+		final List<ID> created = recording.get();
+		if (created != null) {
+			created.add(id);
+		}
+		return nextSerial.getAndIncrement();
+	}
+
+	/**
+	 * Starts recording the IDs created by the current thread. Several threads
+	 * which create IDs at the same time draw their serial numbers in an order
+	 * which depends on their timing; once they are done, the recorded IDs may
+	 * be given serial numbers in a reproducible order with {@link #renumber}.
+	 * 
+	 * @param created
+	 *            receives the IDs created until {@link #endRecording} is
+	 *            called, in creation order
+	 */
+	public void beginRecording(List<ID> created) {
+		recording.set(created);
+	}
+
+	/**
+	 * Stops recording the IDs created by the current thread.
+	 */
+	public void endRecording() {
+		recording.remove();
+	}
+
+	/**
+	 * Gives new serial numbers to the given IDs, in the order of the list. It
+	 * must only be called while no thread creates IDs, and before the serial
+	 * numbers of the IDs have been used as keys.
+	 * 
+	 * @param ids
+	 *            the IDs to renumber
+	 */
+	public void renumber(List<ID> ids) {
+		for (ID id : ids) {
+			id.setIDNumber(nextSerial.getAndIncrement());
+		}
+	}
+
+	/**
+	 * Return the number of serial numbers allocated so far, which is one more
+	 * than the largest allocated.
+	 * 
+	 * @return the serial number count
+	 */
+	public int getSerialCount() {
+		return nextSerial.get();
+	}
+
 	/**
 	 * Get the default idType for the object in question
 	 * 
@@ -65,8 +137,8 @@ public class IDDb {
 		return temp.toLowerCase();
 	}
 
-	public String getTypeName(Class<?> c) {
-		String s = (String) typeMap.get(c);
+	public static String getTypeName(Class<?> c) {
+		String s = typeMap.get(c);
 		if (s == null) {
 			s = discernDefaultIdType(c);
 			typeMap.put(c, s);
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.util.naming;
+
+import java.util.Arrays;
+
+/**
+ * IDMap is a map from {@link ID} objects to values, kept in a single open
+ * addressed table. The serial number of each key (see {@link ID#getIDNumber()})
+ * is used as its hash, so a lookup neither calls <code>hashCode</code> nor
+ * allocates an entry, which makes it suitable for the large side tables built
+ * by the scheduler. Keys are compared by identity. Null keys are not
+ * allowed.
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class IDMap<K extends ID, V> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	/** The keys, indexed by probe position; null marks an empty slot */
+	private ID[] keys;
+
+	/** The value of each key, at the same position */
+	private Object[] values;
+
+	/** The number of keys */
+	private int size = 0;
+
+	public IDMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty map which holds the given number of keys without
+	 * growing.
+	 * 
+	 * @param expectedSize
+	 *            the expected number of keys
+	 */
+	public IDMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		keys = new ID[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Gets the value of a key.
+	 * 
+	 * @param key
+	 *            the key, may be null
+	 * @return the value, or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(ID key) {
+		if (key == null) {
+			return null;
+		}
+		final int index = indexOf(key);
+		return (V) values[index];
+	}
+
+	/**
+	 * Tests whether a key is in the map.
+	 */
+	public boolean containsKey(ID key) {
+		return (key != null) && (keys[indexOf(key)] != null);
+	}
+
+	/**
+	 * Associates a value with a key.
+	 * 
+	 * @param key
+	 *            the key, non null
+	 * @param value
+	 *            the value
+	 * @return the previous value of the key, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException("null key in IDMap");
+		}
+		int index = indexOf(key);
+		final V previous = (V) values[index];
+		if (keys[index] == null) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+				index = indexOf(key);
+			}
+			keys[index] = key;
+			size++;
+		}
+		values[index] = value;
+		return previous;
+	}
+
+	/**
+	 * Gets the number of keys in the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Tests whether the map has no keys.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all keys from the map.
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Finds the slot of a key: either the slot which holds it, or the empty
+	 * slot where it would be inserted.
+	 */
+	private int indexOf(ID key) {
+		final int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		ID probe;
+		while ((probe = keys[index]) != null && probe != key) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	/**
+	 * Spreads the consecutive serial numbers over the table.
+	 */
+	private static int hash(ID key) {
+		final int h = key.getIDNumber() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void grow() {
+		final ID[] oldKeys = keys;
+		final Object[] oldValues = values;
+		keys = new ID[oldKeys.length << 1];
+		values = new Object[oldKeys.length << 1];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				final int index = indexOf(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+}
@@ -46,13 +46,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -167,23 +171,61 @@ public class Util {
 				resourceLocator);
 	}
 
+	/**
+	 * Returns a new Transformer for each of the given stylesheet resources. The
+	 * stylesheets are compiled once per process (see
+	 * {@link #getTemplatesAsResource}), only the Transformers are created by
+	 * each call. A Transformer is not thread safe, so the returned ones must
+	 * stay confined to the calling thread.
+	 */
 	public static Transformer[] getTransformersAsResources(String[] resNames,
 			XmlImplementation xmlImpl, StreamLocator resourceLocator) {
 		Transformer[] xforms = new Transformer[resNames.length];
 
 		for (int i = 0; i < resNames.length; i++) {
-			InputStream is = resourceLocator.getAsStream(resNames[i]);
+			try {
+				xforms[i] = getTemplatesAsResource(resNames[i], xmlImpl,
+						resourceLocator).newTransformer();
+			} catch (Throwable e) {
+				throw new RuntimeException(
+						"Cannot create transform from resource " + resNames[i],
+						e);
+			}
+		}
+		return xforms;
+	}
+
+	/**
+	 * Returns the compiled form of a stylesheet resource. The Templates are
+	 * cached for the life of the process, keyed by the implementation, the
+	 * locator and the resource name, and can be shared between threads.
+	 * 
+	 * @param resName
+	 *            the stylesheet resource
+	 * @param xmlImpl
+	 *            the XSLT implementation
+	 * @param resourceLocator
+	 *            the locator of the stylesheet and of the resources it
+	 *            references
+	 * @return the compiled stylesheet
+	 * @throws Exception
+	 *             if the stylesheet can not be found or compiled
+	 */
+	public static Templates getTemplatesAsResource(String resName,
+			XmlImplementation xmlImpl, StreamLocator resourceLocator)
+			throws Exception {
+		List<Object> key = Arrays.<Object> asList(xmlImpl, resourceLocator,
+				resName);
+		Templates templates = templatesCache.get(key);
+		if (templates == null) {
+			InputStream is = resourceLocator.getAsStream(resName);
 			try {
 				// IDM. The transformer should use the same resource Locator as
 				// the
 				// loaded resources on the assumption that the resources and the
 				// things
 				// they reference are co-located.
-				xforms[i] = createTransformer(is, xmlImpl, resourceLocator);
-			} catch (Throwable e) {
-				throw new RuntimeException(
-						"Cannot create transform from resource " + resNames[i],
-						e);
+				templates = createTemplates(is, xmlImpl, resourceLocator);
 			} finally {
 				try {
 					if (is != null)
@@ -191,10 +233,17 @@ public class Util {
 				} catch (IOException ioe) {
 				}
 			}
+			Templates cached = templatesCache.putIfAbsent(key, templates);
+			if (cached != null) {
+				templates = cached;
+			}
 		}
-		return xforms;
+		return templates;
 	}
 
+	/** The compiled stylesheets, see {@link #getTemplatesAsResource} */
+	private static final ConcurrentMap<List<Object>, Templates> templatesCache = new ConcurrentHashMap<List<Object>, Templates>();
+
 	public static Node applyTransforms(Node document, Transformer[] xfs)
 			throws Exception {
 		Node doc = document;
@@ -463,6 +512,18 @@ public class Util {
 		return xf;
 	}
 
+	private static Templates createTemplates(InputStream is,
+			XmlImplementation xmlImpl, StreamLocator resourceLocator)
+			throws Exception {
+		// The factory is shared and its URI resolver is set for each
+		// compilation
+		synchronized (xmlImpl) {
+			TransformerFactory xff = createTransformerFactory(xmlImpl,
+					resourceLocator);
+			return xff.newTemplates(new StreamSource(is));
+		}
+	}
+
 	public static Transformer createTransformer(InputStream is,
 			XmlImplementation xmlImpl, StreamLocator resourceLocator)
 			throws Exception {
@@ -67,7 +67,7 @@ public class PrimitiveMapper {
 	 * @exception BackingStoreException
 	 *                XXX: ???
 	 */
-	public static PrimitiveMapper getInstance() {
+	public static synchronized PrimitiveMapper getInstance() {
 		if (instance == null) {
 			instance = new PrimitiveMapper();
 		}
@@ -89,8 +89,8 @@ public class PrimitiveMapper {
 		new BootstrapMapper(mappingStore);
 	}
 
-	public final PrimitiveMappedModule getMappedModule(String primitiveName,
-			XilinxDevice xd) {
+	public final synchronized PrimitiveMappedModule getMappedModule(
+			String primitiveName, XilinxDevice xd) {
 		String id;
 		PrimitiveMappedModule pmm = null;
 		// if a xilinx part
@@ -140,7 +140,8 @@ public class PrimitiveMapper {
 		return null;
 	}
 
-	public final PrimitiveMappedModule getMappedModule(String primitiveName) {
+	public final synchronized PrimitiveMappedModule getMappedModule(
+			String primitiveName) {
 		PrimitiveMappedModule pmm;
 		if (mappingStore.containsKey(primitiveName)) {
 			return mappingStore.get(primitiveName);
@@ -170,7 +171,7 @@ public class PrimitiveMapper {
 		return null;
 	}
 
-	public boolean exists(String partString) {
+	public synchronized boolean exists(String partString) {
 		return mappingStore.containsKey(partString);
 	}
 
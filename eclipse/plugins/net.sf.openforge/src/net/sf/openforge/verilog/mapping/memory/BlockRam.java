@@ -21,6 +21,7 @@
 
 package net.sf.openforge.verilog.mapping.memory;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.verilog.model.BinaryNumber;
 import net.sf.openforge.verilog.model.Comment;
 import net.sf.openforge.verilog.model.Concatenation;
@@ -44,8 +45,6 @@ import net.sf.openforge.verilog.pattern.StatementBlock;
 
 public abstract class BlockRam extends Ram {
 
-	private static int instancecnt = 0;
-
 	@Override
 	public abstract String getName();
 
@@ -189,7 +188,8 @@ public abstract class BlockRam extends Ram {
 
 	@Override
 	public ModuleInstance instantiate() {
-		String instance_name = getName() + "_instance_" + instancecnt++;
+		String instance_name = getName() + "_instance_"
+				+ CompilationContext.current().nextRamInstance(BlockRam.class);
 
 		ModuleInstance moduleInstance = new ModuleInstance(getName(),
 				instance_name);
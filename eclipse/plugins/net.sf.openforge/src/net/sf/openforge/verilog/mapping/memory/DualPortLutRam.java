@@ -21,6 +21,7 @@
 
 package net.sf.openforge.verilog.mapping.memory;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.verilog.model.BinaryNumber;
 import net.sf.openforge.verilog.model.Comment;
 import net.sf.openforge.verilog.model.Expression;
@@ -43,8 +44,6 @@ import net.sf.openforge.verilog.pattern.StatementBlock;
 
 public abstract class DualPortLutRam extends DualPortRam {
 
-	private static int instancecnt = 0;
-
 	@Override
 	public abstract String getName();
 
@@ -119,7 +118,8 @@ public abstract class DualPortLutRam extends DualPortRam {
 
 	@Override
 	public ModuleInstance instantiate() {
-		String instance_name = getName() + "_instance_" + instancecnt++;
+		String instance_name = getName() + "_instance_"
+				+ CompilationContext.current().nextRamInstance(DualPortLutRam.class);
 
 		ModuleInstance moduleInstance = new ModuleInstance(getName(),
 				instance_name);
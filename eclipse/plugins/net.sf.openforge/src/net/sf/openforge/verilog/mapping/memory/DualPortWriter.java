@@ -25,6 +25,7 @@ import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.lim.memory.MemoryBank;
 import net.sf.openforge.lim.memory.MemoryBank.BankPort;
 import net.sf.openforge.verilog.model.Expression;
@@ -76,7 +77,8 @@ public abstract class DualPortWriter extends VerilogMemory {
 		// getDataWidth() + "_"+ memory_module_id++;
 		// this.moduleName = memBank.showIDLogical() + "_"+
 		// memory_instance_id++;
-		moduleName = memBank.showIDLogical() + "_" + memory_module_id++;
+		moduleName = memBank.showIDLogical() + "_"
+				+ CompilationContext.current().nextMemoryModuleId();
 	}
 
 	private MemoryBank.BankPort getPortA(MemoryBank bank) {
@@ -24,6 +24,7 @@ package net.sf.openforge.verilog.mapping.memory;
 import java.util.BitSet;
 import java.util.Collections;
 
+import net.sf.openforge.app.CompilationContext;
 import net.sf.openforge.app.EngineThread;
 import net.sf.openforge.lim.CodeLabel;
 import net.sf.openforge.lim.Latency;
@@ -86,7 +87,8 @@ public class SinglePortRamWriter extends VerilogMemory {
 		doutPort = new Output(dout, getDataWidth());
 		// this.moduleName = "forge_memory_" + getDepth() + "x" + getDataWidth()
 		// + "_"+ memory_module_id++;
-		moduleName = memory.showIDLogical() + "_" + memory_module_id++;
+		moduleName = memory.showIDLogical() + "_"
+				+ CompilationContext.current().nextMemoryModuleId();
 	}
 
 	@Override
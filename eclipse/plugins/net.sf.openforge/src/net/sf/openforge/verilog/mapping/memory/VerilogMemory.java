@@ -48,8 +48,6 @@ import net.sf.openforge.verilog.pattern.MemoryModule;
 
 public abstract class VerilogMemory {
 
-	protected static int memory_module_id = 0;
-
 	private MemoryBank memBank;
 	private int depth;
 	private int width;
@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -77,7 +77,7 @@ public abstract class Assign implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		// Hack to work around MemoryElements which are NetLValues but
 		// are not nets.... This is an awful hack, we should re-work
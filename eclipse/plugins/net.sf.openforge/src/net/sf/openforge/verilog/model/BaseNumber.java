@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * A BaseNumber expression presents a fully qualified representation of a
@@ -57,7 +57,7 @@ public class BaseNumber implements VerilogElement, Expression {
 
 	@Override
 	public Collection<Net> getNets() {
-		return new HashSet<Net>(1);
+		return new LinkedHashSet<Net>(1);
 	}
 
 	/**
@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -62,7 +62,7 @@ public class CaseBlock implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		HashSet<Net> nets = new HashSet<Net>();
+		LinkedHashSet<Net> nets = new LinkedHashSet<Net>();
 
 		for (CaseStatement caseStatement : body) {
 			nets.addAll(caseStatement.getNets());
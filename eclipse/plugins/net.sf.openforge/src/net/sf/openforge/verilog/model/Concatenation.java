@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
@@ -90,7 +90,7 @@ public class Concatenation implements Expression {
 
 	@Override
 	public Collection<Net> getNets() {
-		HashSet<Net> nets = new HashSet<Net>();
+		LinkedHashSet<Net> nets = new LinkedHashSet<Net>();
 
 		for (Expression expression : elements) {
 			nets.addAll(expression.getNets());
@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -68,7 +68,7 @@ public class ConditionalStatement implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		nets.addAll(condition.getNets());
 		nets.addAll(trueBranch.getNets());
@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * Constant is an unsigned decimal number of immutable size and value.
@@ -145,7 +145,7 @@ public class Constant extends Token implements Expression {
 	 */
 	@Override
 	public Collection<Net> getNets() {
-		return new HashSet<Net>(1);
+		return new LinkedHashSet<Net>(1);
 	}
 
 	/**
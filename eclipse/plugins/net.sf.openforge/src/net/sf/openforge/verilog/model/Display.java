@@ -22,7 +22,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -63,7 +63,7 @@ public class Display implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		if (expr != null)
 			nets.addAll(expr.getNets());
@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -66,7 +66,7 @@ public class EventExpression implements Expression {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		for (Expression expression : events) {
 			nets.addAll(expression.getNets());
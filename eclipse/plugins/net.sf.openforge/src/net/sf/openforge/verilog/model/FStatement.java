@@ -22,7 +22,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.verilog.pattern.CommaDelimitedStatement;
@@ -74,7 +74,7 @@ public abstract class FStatement implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		if (expr != null)
 			nets.addAll(expr.getNets());
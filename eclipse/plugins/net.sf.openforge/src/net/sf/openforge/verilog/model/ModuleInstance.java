@@ -22,7 +22,6 @@ package net.sf.openforge.verilog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -156,7 +155,7 @@ public class ModuleInstance implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 		for (Iterator<VerilogElement> it = port_connections.iterator(); it
 				.hasNext();) {
 			PortConnection portConnection = (PortConnection) it.next();
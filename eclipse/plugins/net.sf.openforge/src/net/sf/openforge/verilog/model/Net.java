@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * Net is an Expression represented by an Identifier which has a specific Type
@@ -99,7 +99,7 @@ public abstract class Net implements NetLValue, SimpleExpression {
 
 	@Override
 	public Collection<Net> getNets() {
-		Collection<Net> c = new HashSet<Net>(1);
+		Collection<Net> c = new LinkedHashSet<Net>(1);
 		c.add(this);
 		return c;
 	}
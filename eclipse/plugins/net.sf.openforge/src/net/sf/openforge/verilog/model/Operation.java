@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.model;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * Operation is an expression which joins two sub-expression with an operator.
@@ -158,7 +158,7 @@ public abstract class Operation implements Expression {
 
 	@Override
 	public Collection<Net> getNets() {
-		Collection<Net> c = new HashSet<Net>();
+		Collection<Net> c = new LinkedHashSet<Net>();
 
 		c.addAll(left.getNets());
 		c.addAll(right.getNets());
@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -41,7 +41,7 @@ import java.util.Set;
 public class PortList implements VerilogElement {
 
 	List<Identifier> ports = new ArrayList<Identifier>();
-	Set<Net> nets = new HashSet<Net>();
+	Set<Net> nets = new LinkedHashSet<Net>();
 
 	/**
 	 * Constructs an empty PortList.
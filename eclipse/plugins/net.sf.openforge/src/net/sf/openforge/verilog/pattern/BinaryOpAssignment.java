@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.Port;
@@ -83,7 +83,7 @@ public abstract class BinaryOpAssignment extends StatementBlock implements
 
 	@Override
 	public Collection<Net> getConsumedNets() {
-		Set<Net> consumed = new HashSet<Net>();
+		Set<Net> consumed = new LinkedHashSet<Net>();
 		consumed.addAll(left_operand.getNets());
 		consumed.addAll(right_operand.getNets());
 		return consumed;
@@ -23,8 +23,8 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -70,7 +70,7 @@ public class CommaDelimitedStatement implements Statement {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 		for (Iterator<VerilogElement> iter = elements.iterator(); iter
 				.hasNext();) {
 			VerilogElement ve = iter.next();
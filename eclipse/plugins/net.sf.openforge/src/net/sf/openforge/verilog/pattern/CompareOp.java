@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.Port;
@@ -62,7 +62,7 @@ public abstract class CompareOp extends StatementBlock implements ForgePattern {
 	Wire right_operand;
 	BinaryOp binaryOp;
 
-	Set<Net> produced_nets = new HashSet<Net>();
+	Set<Net> produced_nets = new LinkedHashSet<Net>();
 
 	public CompareOp(BinaryOp bo) {
 		binaryOp = bo;
@@ -322,7 +322,7 @@ public abstract class CompareOp extends StatementBlock implements ForgePattern {
 
 	@Override
 	public Collection<Net> getConsumedNets() {
-		Set<Net> consumed = new HashSet<Net>();
+		Set<Net> consumed = new LinkedHashSet<Net>();
 		consumed.add(left_operand);
 		consumed.add(right_operand);
 		return consumed;
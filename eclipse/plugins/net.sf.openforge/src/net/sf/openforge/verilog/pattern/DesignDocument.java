@@ -20,7 +20,8 @@
  */
 package net.sf.openforge.verilog.pattern;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.app.EngineThread;
@@ -46,7 +47,7 @@ import net.sf.openforge.verilog.model.VerilogDocument;
 public class DesignDocument extends VerilogDocument implements
 		MappedModuleSpecifier {
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	public DesignDocument(Design design) {
 		//
@@ -88,11 +89,19 @@ public class DesignDocument extends VerilogDocument implements
 		super.append(module);
 
 		if (module instanceof MappedModuleSpecifier) {
-			mappedModules.addAll(((MappedModuleSpecifier) module)
+			gatherMappedModules(((MappedModuleSpecifier) module)
 					.getMappedModules());
 		}
 	} // append()
 
+	/**
+	 * Gathers the include directives of a module which is written without
+	 * being appended to this document.
+	 */
+	public void gatherMappedModules(Collection<MappedModule> modules) {
+		mappedModules.addAll(modules);
+	}
+
 	/**
 	 * Provides the Set of MappedModules
 	 */
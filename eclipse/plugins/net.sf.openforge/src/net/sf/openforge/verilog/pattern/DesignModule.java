@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.app.OptionRegistry;
@@ -66,7 +66,7 @@ public class DesignModule extends net.sf.openforge.verilog.model.Module
 
 	private Design design;
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	/**
 	 * When set to true the Ports of this module will be reversed in their Range
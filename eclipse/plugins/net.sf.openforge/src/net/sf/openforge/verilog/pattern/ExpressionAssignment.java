@@ -23,8 +23,8 @@ package net.sf.openforge.verilog.pattern;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -93,7 +93,7 @@ public abstract class ExpressionAssignment extends StatementBlock implements
 
 	@Override
 	public Collection<Net> getConsumedNets() {
-		Set<Net> consumed = new HashSet<Net>();
+		Set<Net> consumed = new LinkedHashSet<Net>();
 		for (Iterator<Expression> it = operands.iterator(); it.hasNext();) {
 			consumed.addAll(it.next().getNets());
 		}
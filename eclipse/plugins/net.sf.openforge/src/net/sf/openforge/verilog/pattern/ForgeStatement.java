@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.verilog.model.Net;
@@ -44,7 +44,7 @@ public class ForgeStatement extends StatementBlock implements ForgePattern {
 
 	public ForgeStatement() {
 		super();
-		produced_nets = new HashSet<Net>();
+		produced_nets = new LinkedHashSet<Net>();
 	}
 
 	/**
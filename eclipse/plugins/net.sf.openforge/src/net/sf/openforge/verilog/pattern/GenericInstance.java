@@ -23,7 +23,7 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.verilog.model.Expression;
@@ -45,8 +45,8 @@ import net.sf.openforge.verilog.model.Output;
  */
 public class GenericInstance extends ModuleInstance implements ForgePattern {
 
-	private Set<Net> produced = new HashSet<Net>();
-	private Set<Net> consumed = new HashSet<Net>();
+	private Set<Net> produced = new LinkedHashSet<Net>();
+	private Set<Net> consumed = new LinkedHashSet<Net>();
 
 	public GenericInstance(Module module, String id) {
 		super(module, id);
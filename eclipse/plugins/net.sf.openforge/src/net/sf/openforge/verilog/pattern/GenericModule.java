@@ -22,7 +22,7 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -57,7 +57,7 @@ import net.sf.openforge.verilog.model.Statement;
 public class GenericModule extends net.sf.openforge.verilog.model.Module
 		implements MappedModuleSpecifier {
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	private Map<Object, Identifier> interfaceMap = new HashMap<Object, Identifier>();
 	private Module mod;
@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.verilog.model.ModuleInstance;
@@ -40,7 +40,7 @@ import net.sf.openforge.verilog.model.Net;
 
 public class MemoryInstance extends ModuleInstance implements ForgePattern {
 
-	private Set<Net> producedNets = new HashSet<Net>();
+	private Set<Net> producedNets = new LinkedHashSet<Net>();
 
 	/**
 	 * Composes a MemoryInstance based on the name of instantiated memory module
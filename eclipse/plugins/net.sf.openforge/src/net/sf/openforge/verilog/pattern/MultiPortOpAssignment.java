@@ -23,7 +23,7 @@ package net.sf.openforge.verilog.pattern;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -77,7 +77,7 @@ public abstract class MultiPortOpAssignment extends StatementBlock implements
 
 	@Override
 	public Collection<Net> getConsumedNets() {
-		Set<Net> consumed = new HashSet<Net>();
+		Set<Net> consumed = new LinkedHashSet<Net>();
 		for (Expression expresion : expressions) {
 			consumed.addAll(expresion.getNets());
 		}
@@ -20,7 +20,7 @@
  */
 package net.sf.openforge.verilog.pattern;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.Bus;
@@ -47,7 +47,7 @@ public class ProcedureModule extends net.sf.openforge.verilog.model.Module
 
 	private Procedure proc;
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	/**
 	 * Construct a ProcedureModule based on a {@link Procedure}. The output
@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.app.EngineThread;
@@ -52,7 +52,7 @@ import net.sf.openforge.verilog.model.Wire;
 public class RegVariant extends StatementBlock implements ForgePattern,
 		MappedModuleSpecifier {
 
-	private Set<Net> consumedNets = new HashSet<Net>();
+	private Set<Net> consumedNets = new LinkedHashSet<Net>();
 
 	private BusWire resultWire;
 
@@ -62,7 +62,7 @@ public class RegVariant extends StatementBlock implements ForgePattern,
 	private PortWire dataWire;
 	private PortWire clockWire;
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	public RegVariant(Reg reg) {
 		GenericJob gj = EngineThread.getGenericJob();
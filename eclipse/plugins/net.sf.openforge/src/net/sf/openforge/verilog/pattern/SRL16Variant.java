@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.app.EngineThread;
@@ -50,7 +50,7 @@ import net.sf.openforge.verilog.model.Wire;
 public class SRL16Variant extends StatementBlock implements ForgePattern,
 		MappedModuleSpecifier {
 
-	private Set<Net> consumed_nets = new HashSet<Net>();
+	private Set<Net> consumed_nets = new LinkedHashSet<Net>();
 
 	private Net result_wire;
 
@@ -58,7 +58,7 @@ public class SRL16Variant extends StatementBlock implements ForgePattern,
 	private PortWire data_wire;
 	private PortWire clock_wire;
 
-	private Set<MappedModule> mappedModules = new HashSet<MappedModule>();
+	private Set<MappedModule> mappedModules = new LinkedHashSet<MappedModule>();
 
 	public SRL16Variant(SRL16 srl_16) {
 		result_wire = NetFactory.makeNet(srl_16.getResultBus());
@@ -21,8 +21,8 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.Port;
@@ -57,8 +57,8 @@ import net.sf.openforge.verilog.model.Wire;
 
 public abstract class ShiftOp extends StatementBlock implements ForgePattern {
 
-	Set<Net> produced_nets = new HashSet<Net>();
-	Set<Net> consumed_nets = new HashSet<Net>();
+	Set<Net> produced_nets = new LinkedHashSet<Net>();
+	Set<Net> consumed_nets = new LinkedHashSet<Net>();
 
 	Wire left_operand;
 	Value l_value;
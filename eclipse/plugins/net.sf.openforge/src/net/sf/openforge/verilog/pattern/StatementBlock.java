@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -79,7 +79,7 @@ public class StatementBlock implements Statement, VerilogElement {
 	 */
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		for (Iterator<Statement> it = statements.iterator(); it.hasNext();) {
 			nets.addAll(it.next().getNets());
@@ -22,7 +22,6 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -158,7 +157,7 @@ public class SyncBlock implements ForgePattern {
 	 */
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		nets.addAll(control.getNets());
 		nets.addAll(reset_block.getNets());
@@ -21,7 +21,7 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.TriBuf;
@@ -39,8 +39,8 @@ import net.sf.openforge.verilog.model.NetFactory;
  */
 public class TriBufOp extends StatementBlock implements ForgePattern {
 
-	Set<Net> produced_nets = new HashSet<Net>();
-	Set<Net> consumed_nets = new HashSet<Net>();
+	Set<Net> produced_nets = new LinkedHashSet<Net>();
+	Set<Net> consumed_nets = new LinkedHashSet<Net>();
 
 	/**
 	 * Constructs a TriBuf based on either of two selection Nets, which specify
@@ -22,8 +22,8 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sf.openforge.lim.Bus;
@@ -113,7 +113,7 @@ public abstract class UnaryOpAssignment extends StatementBlock implements
 		Wire operand;
 		Net result_wire;
 
-		Set<Net> produced_nets = new HashSet<Net>();
+		Set<Net> produced_nets = new LinkedHashSet<Net>();
 
 		public SignExtend(UnaryOp cast) {
 			Iterator<Port> ports = cast.getDataPorts().iterator();
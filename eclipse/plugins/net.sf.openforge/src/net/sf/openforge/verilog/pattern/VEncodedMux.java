@@ -21,7 +21,6 @@
 package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -135,7 +134,7 @@ public class VEncodedMux implements ForgePattern {
 
 	@Override
 	public Collection<Net> getNets() {
-		Set<Net> nets = new HashSet<Net>();
+		Set<Net> nets = new LinkedHashSet<Net>();
 
 		nets.addAll(eventControl.getNets());
 		nets.addAll(caseBlock.getNets());
@@ -22,7 +22,7 @@ package net.sf.openforge.verilog.pattern;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -50,7 +50,7 @@ public class VMux extends StatementBlock implements ForgePattern {
 
 	Statement many2one_statement;
 
-	private Set consumed_nets = new HashSet();
+	private Set consumed_nets = new LinkedHashSet();
 	private Net result;
 
 	/**
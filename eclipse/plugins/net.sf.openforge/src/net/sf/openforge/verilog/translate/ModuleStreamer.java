@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.verilog.translate;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.openforge.verilog.mapping.MappedModule;
+import net.sf.openforge.verilog.model.Module;
+import net.sf.openforge.verilog.model.VerilogDocument;
+import net.sf.openforge.verilog.pattern.DesignDocument;
+import net.sf.openforge.verilog.pattern.MappedModuleSpecifier;
+
+/**
+ * ModuleStreamer writes the modules of a {@link DesignDocument} while they are
+ * translated, instead of once the whole document has been built. Each module
+ * is pretty printed as soon as it is complete and its model is released.
+ * <p>
+ * The text must be the same as printing the whole document, so each module
+ * reserves its place in the document order when the translator first records
+ * it. A completed module whose predecessors are not all written yet is kept
+ * as text until they are. The head of the document, which holds the top level
+ * module, is only complete at the end of the translation.
+ */
+class ModuleStreamer {
+
+	/** The destination of the text */
+	private final PrintWriter out;
+
+	/** The document which gathers the mapped modules of the written modules */
+	private final DesignDocument document;
+
+	/** The places reserved in the document, in document order */
+	private final List<Slot> slots = new ArrayList<Slot>();
+
+	/** The place reserved for each key */
+	private final Map<Object, Slot> slotMap = new HashMap<Object, Slot>();
+
+	/** The index of the first place which has not been written */
+	private int next = 0;
+
+	ModuleStreamer(Writer out, DesignDocument document) {
+		this.out = new PrintWriter(out);
+		this.document = document;
+	}
+
+	/**
+	 * Reserves the next place in the document order for the text of a key.
+	 */
+	void reserve(Object key) {
+		final Slot slot = new Slot();
+		slots.add(slot);
+		slotMap.put(key, slot);
+	}
+
+	/**
+	 * Supplies the module of a reserved key, and writes all the completed
+	 * places which are no longer waiting for a predecessor.
+	 */
+	void complete(Object key, Module module) {
+		complete(render(key, module));
+	}
+
+	/**
+	 * Supplies the text of a reserved key, and writes all the completed places
+	 * which are no longer waiting for a predecessor.
+	 */
+	void complete(Text text) {
+		final Slot slot = slotMap.remove(text.key);
+		slot.text = text.text;
+		slot.mappedModules = text.mappedModules;
+		flush();
+	}
+
+	/**
+	 * Supplies the head of the document, which is printed as a whole.
+	 */
+	void complete(Object key, VerilogDocument head) {
+		final StringWriter text = new StringWriter();
+		new PrettyPrinter(text).print(head);
+		final Slot slot = slotMap.remove(key);
+		slot.text = text.toString();
+		flush();
+	}
+
+	/**
+	 * Writes the completed places at the front of the document order.
+	 */
+	private void flush() {
+		while (next < slots.size() && slots.get(next).text != null) {
+			final Slot slot = slots.get(next);
+			document.gatherMappedModules(slot.mappedModules);
+			out.print(slot.text);
+			slots.set(next, null);
+			next++;
+		}
+		out.flush();
+	}
+
+	/**
+	 * Checks that every reserved place has been written.
+	 */
+	void finish() {
+		if (next != slots.size()) {
+			throw new IllegalStateException("Verilog module "
+					+ (next + 1) + " of " + slots.size()
+					+ " was never completed");
+		}
+	}
+
+	/**
+	 * Pretty prints a module. This may be done on any thread, since it only
+	 * reads the module.
+	 */
+	static Text render(Object key, Module module) {
+		final StringWriter text = new StringWriter();
+		new PrettyPrinter(text).pretty(module);
+		final List<MappedModule> mappedModules;
+		if (module instanceof MappedModuleSpecifier) {
+			mappedModules = new ArrayList<MappedModule>(
+					((MappedModuleSpecifier) module).getMappedModules());
+		} else {
+			mappedModules = Collections.emptyList();
+		}
+		return new Text(key, text.toString(), mappedModules);
+	}
+
+	/**
+	 * The printed text of a module, with the include directives it needs.
+	 */
+	static class Text {
+		private final Object key;
+		private final String text;
+		private final List<MappedModule> mappedModules;
+
+		private Text(Object key, String text, List<MappedModule> mappedModules) {
+			this.key = key;
+			this.text = text;
+			this.mappedModules = mappedModules;
+		}
+
+		Object getKey() {
+			return key;
+		}
+	}
+
+	private static class Slot {
+		private String text = null;
+		private List<MappedModule> mappedModules = Collections.emptyList();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.openforge.verilog.translate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.openforge.app.CompilationContext;
+import net.sf.openforge.app.CompileProfiler;
+import net.sf.openforge.app.EngineThread;
+import net.sf.openforge.lim.Procedure;
+
+/**
+ * ProcedureTranslationPool translates {@link Procedure Procedures} into the
+ * text of their Verilog modules on worker threads, while the
+ * {@link VerilogTranslator} which submitted them goes on with the rest of the
+ * design. The translator takes the text of each procedure when it reaches the
+ * procedure, so the modules keep the order of a sequential translation.
+ * <p>
+ * The worker threads run with the {@link EngineThread Engine} of the thread
+ * which submitted the procedures, and are released by {@link #shutdown}.
+ */
+class ProcedureTranslationPool {
+
+	private final ExecutorService executor;
+
+	/** The pending translation of each submitted procedure */
+	private final Map<Procedure, Future<List<ModuleStreamer.Text>>> results = new HashMap<Procedure, Future<List<ModuleStreamer.Text>>>();
+
+	/**
+	 * @param threads
+	 *            the number of worker threads
+	 */
+	ProcedureTranslationPool(int threads) {
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "forge-translate");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Starts the translation of a procedure, unless it has already been
+	 * submitted.
+	 */
+	void submit(final VerilogTranslator translator, final Procedure procedure) {
+		if (results.containsKey(procedure)) {
+			return;
+		}
+		final CompileProfiler profiler = CompilationContext.current()
+				.getProfiler();
+		results.put(procedure, executor.submit(EngineThread
+				.bind(new Callable<List<ModuleStreamer.Text>>() {
+					@Override
+					public List<ModuleStreamer.Text> call() {
+						CompileProfiler.Sample start = profiler.begin();
+						try {
+							return translator.translateDetached(procedure);
+						} finally {
+							profiler.endWorker(start);
+						}
+					}
+				})));
+	}
+
+	/**
+	 * Waits for the translation of a procedure.
+	 * 
+	 * @return the text of the modules of the procedure, in the order of a
+	 *         sequential translation, or null if the procedure was not
+	 *         submitted or could not be translated on its own
+	 */
+	List<ModuleStreamer.Text> take(Procedure procedure) {
+		final Future<List<ModuleStreamer.Text>> result = results
+				.remove(procedure);
+		if (result == null) {
+			return null;
+		}
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while translating procedures", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Releases the worker threads, abandoning the translations which were not
+	 * taken.
+	 */
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
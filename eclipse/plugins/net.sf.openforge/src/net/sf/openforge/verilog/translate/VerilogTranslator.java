@@ -214,6 +214,27 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 
 	private Design design;
 
+	/**
+	 * The output the modules are streamed to as they are translated, or null
+	 * if the whole document is built first.
+	 */
+	private Writer streamWriter = null;
+
+	/** The streamer of the current Design visit, if streaming */
+	private ModuleStreamer streamer = null;
+
+	/** Whether the procedures of the tasks are translated concurrently */
+	private boolean parallel = false;
+
+	/** The concurrent translations of the current Design visit, if parallel */
+	private ProcedureTranslationPool translationPool = null;
+
+	/**
+	 * True if this translator only translates one procedure for another
+	 * translator, see {@link #translateDetached(Procedure)}.
+	 */
+	private boolean detached = false;
+
 	/**
 	 * Creates a new <code>VerilogTranslator</code> instance. Which is to say
 	 * that it <b>constructs</b> a VerilogTranslator object which is capable of
@@ -263,6 +284,61 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 		this(design, false);
 	}
 
+	/**
+	 * Creates a new VerilogTranslator which translates a Design and writes
+	 * each module to the given output as soon as it is translated, instead of
+	 * keeping the whole VerilogDocument. The text is the same as that written
+	 * by {@link #writeDocument(Writer)}, which must not be called afterwards;
+	 * the user modules of IP cores may be appended with
+	 * {@link #writeIPCore(IndentWriter)}.
+	 * 
+	 * @param design
+	 *            the design to translate
+	 * @param suppress_application
+	 *            whether to generate a module for the Design
+	 * @param writer
+	 *            output destination for the verilog
+	 */
+	public VerilogTranslator(Design design, boolean suppress_application,
+			Writer writer) {
+		this(design, suppress_application, writer, false);
+	}
+
+	/**
+	 * Creates a new VerilogTranslator which translates a Design and writes
+	 * each module to the given output, as
+	 * {@link #VerilogTranslator(Design, boolean, Writer)}. If parallel is true
+	 * the procedures of the tasks are translated and printed concurrently; the
+	 * modules are still written in the same order.
+	 * 
+	 * @param design
+	 *            the design to translate
+	 * @param suppress_application
+	 *            whether to generate a module for the Design
+	 * @param writer
+	 *            output destination for the verilog
+	 * @param parallel
+	 *            whether to translate the tasks concurrently
+	 */
+	public VerilogTranslator(Design design, boolean suppress_application,
+			Writer writer, boolean parallel) {
+		this.suppress_application = suppress_application;
+		this.parallel = parallel;
+		streamWriter = writer;
+		design.accept(this);
+	}
+
+	/**
+	 * Creates a translator for one procedure of the design visited by the
+	 * given translator.
+	 */
+	private VerilogTranslator(VerilogTranslator parent) {
+		suppress_application = parent.suppress_application;
+		design = parent.design;
+		topLevelComponents = parent.topLevelComponents;
+		detached = true;
+	}
+
 	/**
 	 * A convenience method which visits a Design with a new VerilogTranslator,
 	 * and then outputs the verilog.
@@ -313,17 +389,50 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 		lim_module_map.clear();
 		memoryMap.clear();
 
-		if (!suppress_application) {
-			net.sf.openforge.verilog.model.Module design_module = defineDesignModule(design);
-			vDoc.append(design_module);
-		} else {
-			current_vmodule = new DesignModule(design);
+		if (streamWriter != null) {
+			streamer = new ModuleStreamer(streamWriter, (DesignDocument) vDoc);
+			// the header and the application module come first
+			streamer.reserve(design);
+
+			if (parallel) {
+				translationPool = new ProcedureTranslationPool(Runtime
+						.getRuntime().availableProcessors());
+				for (Task task : design.getTasks()) {
+					final Call call = task.getCall();
+					if (call != null
+							&& (topLevelComponents.contains(call) || !isEmptyModuleCall(call))) {
+						translationPool.submit(this, call.getProcedure());
+					}
+				}
+			}
+		}
 
-			for (Task task : design.getTasks()) {
-				task.accept(this);
+		try {
+			if (!suppress_application) {
+				net.sf.openforge.verilog.model.Module design_module = defineDesignModule(design);
+				vDoc.append(design_module);
+			} else {
+				current_vmodule = new DesignModule(design);
+
+				for (Task task : design.getTasks()) {
+					task.accept(this);
+				}
+			}
+		} finally {
+			if (translationPool != null) {
+				translationPool.shutdown();
+				translationPool = null;
 			}
 		}
 
+		if (streamer != null) {
+			// the other modules have been written as they were completed
+			streamer.complete(design, vDoc);
+			streamer.finish();
+			streamer = null;
+			return;
+		}
+
 		// the modules list should have been populated with Module definitions,
 		// so now add them to the document
 		for (Map.Entry<ID, Module> me : lim_module_map.entrySet()) {
@@ -332,6 +441,23 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 		}
 	}
 
+	/**
+	 * Records a completed module definition, writing it right away when
+	 * streaming.
+	 */
+	private void defineModule(ID key, Module module) {
+		if (streamer != null) {
+			if (!lim_module_map.containsKey(key)) {
+				streamer.reserve(key);
+			}
+			streamer.complete(key, module);
+			// only the key is needed from now on
+			lim_module_map.put(key, null);
+		} else {
+			lim_module_map.put(key, module);
+		}
+	}
+
 	/**
 	 * Constructs a new DesignModule based on a design, populating its contents
 	 * by visiting the physical components for all top-level resources.
@@ -397,8 +523,8 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 		for (Component component : module.getComponents()) {
 			((Visitable) component).accept(this);
 		}
-		lim_module_map.put(module, current_vmodule);
 		GenericModule generic = (GenericModule) current_vmodule;
+		defineModule(module, generic);
 		current_vmodule = module_stack.pop();
 		current_vmodule.state(generic.makeInstance());
 		return generic;
@@ -454,7 +580,7 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 
 		if (topLevelComponents.contains(call) || !isEmptyModuleCall(call)) {
 			call.getProcedure().accept(this);
-			assert (lim_module_map.get(call.getProcedure()) != null) : "Module not created for call's procedure";
+			assert (lim_module_map.containsKey(call.getProcedure())) : "Module not created for call's procedure";
 		}
 
 		if ((topLevelComponents.contains(call)) && suppress_application) {
@@ -489,11 +615,31 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 	@Override
 	public void visit(Procedure procedure) {
 		if (!lim_module_map.containsKey(procedure)) {
+			final List<ModuleStreamer.Text> translated = (translationPool == null) ? null
+					: translationPool.take(procedure);
+			if (translated != null) {
+				for (ModuleStreamer.Text text : translated) {
+					final ID key = (ID) text.getKey();
+					// a procedure shared with an earlier task is only
+					// written once
+					if (!lim_module_map.containsKey(key)) {
+						streamer.reserve(key);
+						streamer.complete(text);
+						lim_module_map.put(key, null);
+					}
+				}
+				return;
+			}
+
 			module_stack.push(current_vmodule);
 			current_vmodule = new ProcedureModule(procedure);
 			lim_module_map.put(procedure, current_vmodule);
+			if (streamer != null) {
+				streamer.reserve(procedure);
+			}
 			xlatOutBufs.add(procedure.getBody());
 			procedure.getBody().accept(this);
+			defineModule(procedure, current_vmodule);
 			current_vmodule = module_stack.pop();
 		}
 	} // visit(Procedure)
@@ -831,13 +977,17 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 
 	@Override
 	public void visit(MemoryBank memBank) {
+		if (detached) {
+			// memory modules are shared by the whole design
+			throw new SharedResourceException();
+		}
 		// Object sig = memBank.getSignature();
 		VerilogMemory vm = memoryMap.get(memBank.getSignature());
 		if (vm == null) {
 			vm = MemoryMapper.getMemoryType(memBank);
 			net.sf.openforge.verilog.model.Module memoryModule = vm
 					.defineModule();
-			lim_module_map.put(memBank, memoryModule);
+			defineModule(memBank, memoryModule);
 			memoryMap.put(memBank.getSignature(), vm);
 		}
 
@@ -1143,6 +1293,37 @@ public class VerilogTranslator extends DefaultVisitor implements Visitor {
 		}
 	}
 
+	/**
+	 * Translates a procedure with a new translator and prints its modules,
+	 * for a {@link ProcedureTranslationPool}.
+	 * 
+	 * @return the text of the modules in the order of a sequential
+	 *         translation, or null if the procedure uses a resource shared
+	 *         with the rest of the design and must be translated in sequence
+	 */
+	List<ModuleStreamer.Text> translateDetached(Procedure procedure) {
+		final VerilogTranslator worker = new VerilogTranslator(this);
+		try {
+			worker.visit(procedure);
+		} catch (SharedResourceException e) {
+			return null;
+		}
+		final List<ModuleStreamer.Text> texts = new ArrayList<ModuleStreamer.Text>(
+				worker.lim_module_map.size());
+		for (Map.Entry<ID, Module> me : worker.lim_module_map.entrySet()) {
+			texts.add(ModuleStreamer.render(me.getKey(), me.getValue()));
+		}
+		return texts;
+	}
+
+	/**
+	 * Thrown by a detached translator which reaches a component that must be
+	 * translated by the translator of the whole design.
+	 */
+	@SuppressWarnings("serial")
+	private static class SharedResourceException extends RuntimeException {
+	}
+
 	/**
 	 * Checks whether a call references a empty module or not.
 	 * 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.orc2hdl.analysis;
+
+import java.util.Arrays;
+
+/**
+ * The latency and firing rate statistics of an action, computed from the
+ * firings of its {@link TimeGoDone}. The times are in the unit of the
+ * simulation trace.
+ */
+public class ActionStatistics {
+
+	/** The duration of each firing, sorted */
+	private final long[] latencies;
+
+	private final long total;
+
+	/** The time between the first and the last sample of the trace */
+	private final long span;
+
+	public ActionStatistics(TimeGoDone timeGoDone) {
+		latencies = new long[timeGoDone.getFiringCount()];
+		long sum = 0;
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = timeGoDone.getFiringStop(i)
+					- timeGoDone.getFiringStart(i);
+			sum += latencies[i];
+		}
+		Arrays.sort(latencies);
+		total = sum;
+		span = timeGoDone.getLastTime() - timeGoDone.getFirstTime();
+	}
+
+	public int getFiringCount() {
+		return latencies.length;
+	}
+
+	public long getMinLatency() {
+		return latencies.length == 0 ? 0 : latencies[0];
+	}
+
+	public long getMaxLatency() {
+		return latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+	}
+
+	public double getAverageLatency() {
+		return latencies.length == 0 ? 0 : (double) total / latencies.length;
+	}
+
+	/**
+	 * Returns the nearest rank percentile of the latencies.
+	 * 
+	 * @param percent
+	 *            the percentile, between 0 and 100
+	 */
+	public long getLatencyPercentile(double percent) {
+		if (latencies.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percent / 100 * latencies.length);
+		return latencies[Math.min(Math.max(rank, 1), latencies.length) - 1];
+	}
+
+	/**
+	 * Returns the number of firings per unit of time over the whole trace.
+	 */
+	public double getFiringRate() {
+		return span == 0 ? 0 : (double) latencies.length / span;
+	}
+
+}
@@ -29,21 +29,33 @@
 
 package net.sf.orc2hdl.analysis;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Instance;
 import net.sf.orcc.df.Network;
 import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.util.OrccLogger;
 
 public class SimParser {
 
+	/** The largest part of a trace file mapped at once */
+	private static final long MAP_WINDOW = 1L << 26;
+
 	private Network network;
 	private String path;
 
@@ -55,46 +67,55 @@ public class SimParser {
 		this.execution = new HashMap<Instance, Map<Action, TimeGoDone>>();
 	}
 
+	/**
+	 * Parses the go/done trace of every action, the instances are parsed
+	 * concurrently.
+	 */
 	public void createMaps() {
-
+		Map<Instance, List<Action>> instances = new LinkedHashMap<Instance, List<Action>>();
 		for (Vertex vertex : network.getVertices()) {
 			if (vertex instanceof Instance) {
 				Instance instance = (Instance) vertex;
-				Map<Action, TimeGoDone> actionsGoDone = new HashMap<Action, TimeGoDone>();
-
-				for (Action action : instance.getActor().getActions()) {
-					TimeGoDone timeGoDone = new TimeGoDone();
-
-					File actionFile = new File(path + File.separator
-							+ instance.getSimpleName() + "_" + action.getName()
-							+ ".txt");
-					try {
-						FileInputStream iStream = new FileInputStream(
-								actionFile);
-						BufferedReader iBuffer = new BufferedReader(
-								new InputStreamReader(iStream));
-						String str;
-						while ((str = iBuffer.readLine()) != null) {
-							String Time;
-							String Go;
-							String Done;
-							int fIdx = str.indexOf(';', 0);
-							Time = str.substring(0, fIdx);
-							int sIdx = str.indexOf(';', fIdx + 1);
-							Go = str.substring(fIdx + 1, sIdx);
-							int tIdx = str.indexOf(';', sIdx + 1);
-							Done = str.substring(sIdx + 1, tIdx);
-							timeGoDone.put(Integer.decode(Time),
-									Integer.decode(Go), Integer.decode(Done));
-						}
-						iBuffer.close();
-						actionsGoDone.put(action, timeGoDone);
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
+				instances.put(instance, new ArrayList<Action>(instance
+						.getActor().getActions()));
+			}
+		}
+
+		int workers = Math.min(Runtime.getRuntime().availableProcessors(),
+				instances.size());
+		if (workers < 1) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			Map<Instance, Future<Map<Action, TimeGoDone>>> futures = new LinkedHashMap<Instance, Future<Map<Action, TimeGoDone>>>();
+			for (Map.Entry<Instance, List<Action>> entry : instances.entrySet()) {
+				final String name = entry.getKey().getSimpleName();
+				final List<Action> actions = entry.getValue();
+				futures.put(entry.getKey(),
+						executor.submit(new Callable<Map<Action, TimeGoDone>>() {
+							@Override
+							public Map<Action, TimeGoDone> call() {
+								return parseInstance(name, actions);
+							}
+						}));
+			}
+			for (Map.Entry<Instance, Future<Map<Action, TimeGoDone>>> entry : futures
+					.entrySet()) {
+				try {
+					execution.put(entry.getKey(), entry.getValue().get());
+				} catch (ExecutionException e) {
+					OrccLogger.severeln("Instance: "
+							+ entry.getKey().getSimpleName()
+							+ ", unable to parse the go/done traces: "
+							+ e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
 				}
-				execution.put(instance, actionsGoDone);
 			}
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
@@ -102,4 +123,133 @@ public class SimParser {
 		return this.execution;
 	}
 
+	private Map<Action, TimeGoDone> parseInstance(String name,
+			List<Action> actions) {
+		Map<Action, TimeGoDone> actionsGoDone = new HashMap<Action, TimeGoDone>();
+		for (Action action : actions) {
+			File actionFile = new File(path + File.separator + name + "_"
+					+ action.getName() + ".txt");
+			try {
+				TimeGoDone timeGoDone = parse(actionFile);
+				if (timeGoDone.getDroppedCount() > 0) {
+					OrccLogger.warnln(actionFile + ": "
+							+ timeGoDone.getDroppedCount()
+							+ " samples out of time order were ignored");
+				}
+				actionsGoDone.put(action, timeGoDone);
+			} catch (IOException e) {
+				OrccLogger.severeln("Instance: " + name + ", action: "
+						+ action.getName()
+						+ ", unable to parse the go/done trace: "
+						+ e.getMessage());
+			}
+		}
+		return actionsGoDone;
+	}
+
+	/**
+	 * Parses a trace file, each line of which starts with the
+	 * <code>time;go;done;</code> fields of a sample. The rest of a line is
+	 * ignored. The file is read through mapped windows of at most
+	 * {@link #MAP_WINDOW} bytes, a line may span two windows.
+	 */
+	private static TimeGoDone parse(File file) throws IOException {
+		TimeGoDone timeGoDone = new TimeGoDone();
+		FileInputStream iStream = new FileInputStream(file);
+		try {
+			FileChannel channel = iStream.getChannel();
+			long size = channel.size();
+
+			// the text of the current field, and the fields of the line
+			char[] field = new char[32];
+			int length = 0;
+			long[] values = new long[3];
+			int fieldIndex = 0;
+			boolean blank = true;
+			int line = 1;
+
+			for (long position = 0; position < size; position += MAP_WINDOW) {
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAP_WINDOW, size - position));
+				while (buffer.hasRemaining()) {
+					char c = (char) buffer.get();
+					if (c == '\n') {
+						if (fieldIndex < values.length && !blank) {
+							throw new IOException(file + ":" + line
+									+ ": expected time;go;done;");
+						}
+						fieldIndex = 0;
+						length = 0;
+						blank = true;
+						line++;
+					} else if (fieldIndex >= values.length || c == '\r') {
+						// the rest of the line
+					} else if (c == ';') {
+						values[fieldIndex++] = decode(field, length, file, line);
+						length = 0;
+						if (fieldIndex == values.length) {
+							timeGoDone.put(values[0], (int) values[1],
+									(int) values[2]);
+						}
+					} else {
+						if (length == field.length) {
+							throw new IOException(file + ":" + line
+									+ ": field too long");
+						}
+						field[length++] = c;
+						blank = false;
+					}
+				}
+			}
+			if (fieldIndex < values.length && !blank) {
+				throw new IOException(file + ":" + line
+						+ ": expected time;go;done;");
+			}
+		} finally {
+			iStream.close();
+		}
+		return timeGoDone;
+	}
+
+	/**
+	 * Decodes a number as {@link Long#decode(String)} does, without creating a
+	 * String.
+	 */
+	private static long decode(char[] field, int length, File file, int line)
+			throws IOException {
+		int index = 0;
+		boolean negative = false;
+		if (index < length && (field[index] == '-' || field[index] == '+')) {
+			negative = field[index] == '-';
+			index++;
+		}
+		int radix = 10;
+		if (index + 1 < length && field[index] == '0'
+				&& (field[index + 1] == 'x' || field[index + 1] == 'X')) {
+			radix = 16;
+			index += 2;
+		} else if (index < length && field[index] == '#') {
+			radix = 16;
+			index++;
+		} else if (index + 1 < length && field[index] == '0') {
+			radix = 8;
+			index++;
+		}
+		if (index == length) {
+			throw new IOException(file + ":" + line + ": bad number \""
+					+ new String(field, 0, length) + "\"");
+		}
+		long value = 0;
+		for (; index < length; index++) {
+			int digit = Character.digit(field[index], radix);
+			if (digit < 0) {
+				throw new IOException(file + ":" + line + ": bad number \""
+						+ new String(field, 0, length) + "\"");
+			}
+			value = value * radix + digit;
+		}
+		return negative ? -value : value;
+	}
+
 }
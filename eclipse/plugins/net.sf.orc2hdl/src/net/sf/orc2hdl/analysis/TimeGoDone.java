@@ -30,44 +30,303 @@
 package net.sf.orc2hdl.analysis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.TreeMap;
-import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * This class contains the Go and Done signal of a given action at a specific
  * time.
+ * <p>
+ * The samples are not kept, only the samples where the go/done pair changes
+ * are stored, in primitive columns. The firings of the action are computed
+ * while the samples are added. As with a map from time to sample, a sample at
+ * the same time as the previous one replaces it. A sample earlier than the
+ * previous one can not be merged in a single pass, it is dropped and counted
+ * (see {@link #getDroppedCount()}).
  * 
  * @author Endri Bezati
  * 
  */
-public class TimeGoDone implements Iterable<ArrayList<Integer>>{
+public class TimeGoDone implements Iterable<ArrayList<Integer>> {
 
-	private Map<Integer, ArrayList<Integer>> timeGoDoneMap;
+	/** Go and done low */
+	private static final int IDLE = 0;
 
-	public TimeGoDone() {
-		this.timeGoDoneMap = new TreeMap<Integer, ArrayList<Integer>>();
-	}
+	/** Done high only */
+	private static final int DONE = 1;
+
+	/** Go high only */
+	private static final int GO = 2;
+
+	/** Go and done high */
+	private static final int GO_DONE = 3;
+
+	/** The time of each change of the go/done pair */
+	private long[] eventTimes = new long[16];
+
+	/** The go/done state from each change on */
+	private byte[] eventStates = new byte[16];
+
+	private int eventCount = 0;
+
+	/** The start and stop time of each firing */
+	private long[] firingStarts = new long[16];
+
+	private long[] firingStops = new long[16];
+
+	private int firingCount = 0;
+
+	/** The number of samples added */
+	private int samples = 0;
+
+	/** The time of the last sample */
+	private long lastTime = 0;
+
+	/** The start time of the current firing */
+	private long start = 0;
+
+	/**
+	 * The last sample added, which is only processed once a later sample is
+	 * added or the samples are read, so that a sample at the same time may
+	 * still replace it
+	 */
+	private boolean hasPending = false;
 
+	private long pendingTime = 0;
+
+	private int pendingState = IDLE;
+
+	/** The number of samples dropped because they were out of order */
+	private int dropped = 0;
+
+	/**
+	 * Returns the go and done values of the sample in effect at the given
+	 * time, or null if the time is outside of the samples.
+	 */
 	public ArrayList<Integer> get(Integer Time) {
-		ArrayList<Integer> returnList = timeGoDoneMap.get(Time);
-		return returnList;
+		flush();
+		long time = Time;
+		if (samples == 0 || time < eventTimes[0] || time > lastTime) {
+			return null;
+		}
+		int index = Arrays.binarySearch(eventTimes, 0, eventCount, time);
+		if (index < 0) {
+			// the change before the insertion point
+			index = -index - 2;
+		}
+		return goDone(eventStates[index]);
+	}
+
+	/**
+	 * Adds the next sample of the go and done signals. A sample at the time of
+	 * the previous one replaces it; a sample earlier than the previous one, or
+	 * not later than the samples already read, is dropped.
+	 */
+	public void put(long time, int go, int done) {
+		final int state = goDoneState(go, done);
+		if (hasPending) {
+			if (time == pendingTime) {
+				pendingState = state;
+				return;
+			} else if (time < pendingTime) {
+				dropped++;
+				return;
+			}
+			flush();
+		} else if (samples > 0 && time <= lastTime) {
+			dropped++;
+			return;
+		}
+		hasPending = true;
+		pendingTime = time;
+		pendingState = state;
+	}
+
+	/**
+	 * Processes the pending sample: records a change of the go/done pair and
+	 * the end of a firing if needed.
+	 */
+	private void flush() {
+		if (!hasPending) {
+			return;
+		}
+		hasPending = false;
+		final long time = pendingTime;
+		final int state = pendingState;
+		// the first sample is compared with itself
+		final int previousState = (eventCount == 0) ? state
+				: eventStates[eventCount - 1];
+
+		if (eventCount == 0 || state != previousState) {
+			if (eventCount == eventTimes.length) {
+				eventTimes = Arrays.copyOf(eventTimes, eventCount * 2);
+				eventStates = Arrays.copyOf(eventStates, eventCount * 2);
+			}
+			eventTimes[eventCount] = time;
+			eventStates[eventCount] = (byte) state;
+			eventCount++;
+		}
+		samples++;
+		lastTime = time;
+
+		switch (previousState) {
+		case IDLE:
+			if (state == DONE) {
+				addFiring(time);
+			} else if (state == GO || state == GO_DONE) {
+				start = time;
+			}
+			break;
+		case DONE:
+			if (state == IDLE) {
+				addFiring(time);
+			}
+			break;
+		default:
+			// go was high
+			if (state == IDLE || (state == DONE && previousState == GO)) {
+				addFiring(time);
+			} else if (state == DONE || state == GO_DONE) {
+				// a firing ends with go high, the next one starts now
+				addFiring(time);
+				start = time;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Returns the number of samples added, which is more than the number of
+	 * changes kept.
+	 */
+	public int size() {
+		flush();
+		return samples;
+	}
+
+	/**
+	 * Returns the number of samples dropped because they were earlier than
+	 * the previous one.
+	 */
+	public int getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the time of the first sample, 0 if there are none.
+	 */
+	public long getFirstTime() {
+		flush();
+		return (samples == 0) ? 0 : eventTimes[0];
 	}
 
-	public void put(Integer Time, Integer Go, Integer Done) {
-		ArrayList<Integer> goDone = new ArrayList<Integer>();
-		goDone.add(0, Go);
-		goDone.add(1, Done);
-		timeGoDoneMap.put(Time, goDone);
+	/**
+	 * Returns the time of the last sample, 0 if there are none.
+	 */
+	public long getLastTime() {
+		flush();
+		return lastTime;
 	}
-	
-	public Integer size(){
-		return timeGoDoneMap.size();
-		
+
+	/**
+	 * Returns the number of changes of the go/done pair, counting the first
+	 * sample as a change.
+	 */
+	public int getEventCount() {
+		flush();
+		return eventCount;
 	}
 
+	public long getEventTime(int index) {
+		flush();
+		return eventTimes[index];
+	}
+
+	public boolean isGo(int index) {
+		flush();
+		return (eventStates[index] & GO) != 0;
+	}
+
+	public boolean isDone(int index) {
+		flush();
+		return (eventStates[index] & DONE) != 0;
+	}
+
+	/**
+	 * Returns the number of firings of the action found in the samples.
+	 */
+	public int getFiringCount() {
+		flush();
+		return firingCount;
+	}
+
+	public long getFiringStart(int index) {
+		flush();
+		return firingStarts[index];
+	}
+
+	public long getFiringStop(int index) {
+		flush();
+		return firingStops[index];
+	}
+
+	/**
+	 * Iterates over the go and done values of each change of the go/done pair.
+	 */
 	@Override
 	public Iterator<ArrayList<Integer>> iterator() {
-		return timeGoDoneMap.values().iterator();
+		flush();
+		return new Iterator<ArrayList<Integer>>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < eventCount;
+			}
+
+			@Override
+			public ArrayList<Integer> next() {
+				if (index >= eventCount) {
+					throw new NoSuchElementException();
+				}
+				return goDone(eventStates[index++]);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void addFiring(long stop) {
+		if (firingCount == firingStarts.length) {
+			firingStarts = Arrays.copyOf(firingStarts, firingCount * 2);
+			firingStops = Arrays.copyOf(firingStops, firingCount * 2);
+		}
+		firingStarts[firingCount] = start;
+		firingStops[firingCount] = stop;
+		firingCount++;
+	}
+
+	private static int goDoneState(int go, int done) {
+		if (go == 0 && done == 0) {
+			return IDLE;
+		} else if (go == 0 && done == 1) {
+			return DONE;
+		} else if (go == 1 && done == 0) {
+			return GO;
+		} else if (go == 1 && done == 1) {
+			return GO_DONE;
+		}
+		return IDLE;
+	}
+
+	private static ArrayList<Integer> goDone(int state) {
+		ArrayList<Integer> goDone = new ArrayList<Integer>(2);
+		goDone.add(0, (state & GO) != 0 ? 1 : 0);
+		goDone.add(1, (state & DONE) != 0 ? 1 : 0);
+		return goDone;
 	}
-}
\ No newline at end of file
+}
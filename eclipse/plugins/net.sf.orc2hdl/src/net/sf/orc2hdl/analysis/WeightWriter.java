@@ -3,13 +3,16 @@ package net.sf.orc2hdl.analysis;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Instance;
 import net.sf.orcc.df.Network;
 import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.util.OrccLogger;
 import ch.epfl.stimm.yaceb.protobuffer.weight.ProtoExecutionWeight.ActionWeight;
 
 public class WeightWriter {
@@ -25,6 +28,10 @@ public class WeightWriter {
 		this.filePath = filePath;
 	}
 
+	/**
+	 * Writes an {@link ActionWeight} for each firing of each action. Only the
+	 * firings found by the {@link SimParser} are visited, not the samples.
+	 */
 	public void writeProtobuf() {
 		File protoFile = new File(filePath);
 		try {
@@ -35,172 +42,97 @@ public class WeightWriter {
 					Instance instance = (Instance) vertex;
 					Map<Action, TimeGoDone> actionsGoDone = execution
 							.get(instance);
+					if (actionsGoDone == null) {
+						continue;
+					}
 					for (Action action : instance.getActor().getActions()) {
 						TimeGoDone timeGoDone = actionsGoDone.get(action);
-
-						ArrayList<Integer> previousGoDone = timeGoDone.get(0);
-						Integer start = 0;
-						Integer stop = 0;
-						for (int i = 0; i < timeGoDone.size(); i++) {
-							Integer timeBy100 = i * 100;
-							ArrayList<Integer> goDone = timeGoDone
-									.get(timeBy100);
-							ActionWeight.Builder actionWeight = ActionWeight
-									.newBuilder();
-
-							Integer state = actionState(previousGoDone, goDone);
-
-							switch (state) {
-							case 0:
-								break;
-							case 1:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								break;
-							case 2:
-								start = timeBy100;
-								break;
-							case 3:
-								start = timeBy100;
-								break;
-							case 4:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								break;
-							case 5:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								break;
-							case 6:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								break;
-							case 7:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								start = stop;
-								break;
-							case 8:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								break;
-							case 9:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								start = stop;
-								break;
-							case 10:
-								stop = timeBy100;
-								actionWeight
-										.setInstanceName(
-												instance.getSimpleName())
-										.setActionName(action.getName())
-										.setNumClock(stop - start);
-								actionWeight.build().writeDelimitedTo(out);
-								start = stop;
-								break;
-							default:
-								break;
-							}
-
-							previousGoDone = goDone;
-
+						if (timeGoDone == null) {
+							continue;
+						}
+						for (int i = 0; i < timeGoDone.getFiringCount(); i++) {
+							long numClock = timeGoDone.getFiringStop(i)
+									- timeGoDone.getFiringStart(i);
+							ActionWeight.newBuilder()
+									.setInstanceName(instance.getSimpleName())
+									.setActionName(action.getName())
+									.setNumClock((int) numClock).build()
+									.writeDelimitedTo(out);
 						}
-
 					}
 				}
 			}
 			// Close the file
 			out.close();
 		} catch (IOException e) {
-			e.printStackTrace();
+			OrccLogger.severeln("Unable to write the weights to " + filePath
+					+ ": " + e.getMessage());
 		}
 
 	}
 
-	private Integer goDoneState(ArrayList<Integer> goDone) {
-		Integer state = 0;
-
-		if (goDone.get(0).equals(0) && goDone.get(1).equals(0)) {
-			state = 0;
-		} else if (goDone.get(0).equals(0) && goDone.get(1).equals(1)) {
-			state = 1;
-		} else if (goDone.get(0).equals(1) && goDone.get(1).equals(0)) {
-			state = 2;
-		} else if (goDone.get(0).equals(1) && goDone.get(1).equals(1)) {
-			state = 3;
+	/**
+	 * Returns the latency and firing rate statistics of each action, by
+	 * instance.
+	 */
+	public Map<Instance, Map<Action, ActionStatistics>> getStatistics() {
+		Map<Instance, Map<Action, ActionStatistics>> statistics = new LinkedHashMap<Instance, Map<Action, ActionStatistics>>();
+		for (Vertex vertex : network.getVertices()) {
+			if (vertex instanceof Instance) {
+				Instance instance = (Instance) vertex;
+				Map<Action, TimeGoDone> actionsGoDone = execution
+						.get(instance);
+				if (actionsGoDone == null) {
+					continue;
+				}
+				Map<Action, ActionStatistics> actionStatistics = new LinkedHashMap<Action, ActionStatistics>();
+				for (Action action : instance.getActor().getActions()) {
+					TimeGoDone timeGoDone = actionsGoDone.get(action);
+					if (timeGoDone != null) {
+						actionStatistics.put(action, new ActionStatistics(
+								timeGoDone));
+					}
+				}
+				statistics.put(instance, actionStatistics);
+			}
 		}
-		return state;
+		return statistics;
 	}
 
-	private Integer actionState(ArrayList<Integer> previousGoDone,
-			ArrayList<Integer> goDone) {
-		Integer state = 0;
-
-		Integer previousState = goDoneState(previousGoDone);
-		Integer currentState = goDoneState(goDone);
-
-		if (previousState == 0 && currentState == 0) {
-			state = 0;
-		} else if (previousState == 0 && currentState == 1) {
-			state = 1;
-		} else if (previousState == 0 && currentState == 2) {
-			state = 2;
-		} else if (previousState == 0 && currentState == 3) {
-			state = 3;
-		} else if (previousState == 1 && currentState == 0) {
-			state = 4;
-		} else if (previousState == 2 && currentState == 0) {
-			state = 5;
-		} else if (previousState == 2 && currentState == 1) {
-			state = 6;
-		} else if (previousState == 2 && currentState == 3) {
-			state = 7;
-		} else if (previousState == 3 && currentState == 0) {
-			state = 8;
-		} else if (previousState == 3 && currentState == 1) {
-			state = 9;
-		} else if (previousState == 3 && currentState == 3) {
-			state = 10;
+	/**
+	 * Writes the statistics of each action as comma separated values, one
+	 * line per action.
+	 * 
+	 * @param statisticsPath
+	 *            the file to write
+	 */
+	public void writeStatistics(String statisticsPath) {
+		try {
+			PrintWriter out = new PrintWriter(new File(statisticsPath));
+			out.println("instance,action,firings,min,avg,max,p50,p90,p99,rate");
+			for (Map.Entry<Instance, Map<Action, ActionStatistics>> entry : getStatistics()
+					.entrySet()) {
+				for (Map.Entry<Action, ActionStatistics> actionEntry : entry
+						.getValue().entrySet()) {
+					ActionStatistics stats = actionEntry.getValue();
+					out.println(String.format(Locale.ROOT,
+							"%s,%s,%d,%d,%.2f,%d,%d,%d,%d,%g", entry
+									.getKey().getSimpleName(), actionEntry
+									.getKey().getName(), stats
+									.getFiringCount(),
+							stats.getMinLatency(), stats.getAverageLatency(),
+							stats.getMaxLatency(), stats
+									.getLatencyPercentile(50), stats
+									.getLatencyPercentile(90), stats
+									.getLatencyPercentile(99), stats
+									.getFiringRate()));
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			OrccLogger.severeln("Unable to write the statistics to "
+					+ statisticsPath + ": " + e.getMessage());
 		}
-
-		return state;
-
 	}
 
 }
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.orc2hdl.backend;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Argument;
+import net.sf.orcc.df.Instance;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.util.OrccLogger;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+/**
+ * A persistent cache of the files generated by Xronos for an instance. An
+ * entry is identified by a hash of the transformed actor IR, of the instance
+ * arguments and parameter values, and of the Xronos flags other than the
+ * output directory. Contrary to a
+ * timestamp check, a parameter change in the XDF, a modified unit or new
+ * compiler flags produce a new key, so an entry can safely be reused across
+ * runs and across checkouts.
+ */
+public class InstanceCache {
+
+	/** Change this value each time the generated files may change **/
+	private static final String CACHE_VERSION = "xronos-instance-cache-1";
+
+	/** The name of the file listing the files of an entry **/
+	private static final String MANIFEST = "files.txt";
+
+	/** The Xronos flag giving the output directory, left out of the keys **/
+	private static final String DESTINATION_FLAG = "-d";
+
+	/** The cache directory **/
+	private final File cacheDir;
+
+	public InstanceCache(String cachePath) {
+		cacheDir = new File(cachePath);
+		if (!cacheDir.exists()) {
+			cacheDir.mkdirs();
+		}
+	}
+
+	/**
+	 * Computes the key of an instance, or returns null if it can not be
+	 * computed, in which case the instance should simply be compiled.
+	 * 
+	 * @param instance
+	 *            the instance, with its actor already transformed
+	 * @param xronosArgs
+	 *            the Xronos flags used for its compilation; the output
+	 *            directory does not change the generated files, so it is not
+	 *            part of the key
+	 * @return the hexadecimal key or null
+	 */
+	public String computeKey(Instance instance, String[] xronosArgs) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			DigestOutputStream out = new DigestOutputStream(
+					new NullOutputStream(), digest);
+			PrintStream ps = new PrintStream(out, false, "UTF-8");
+
+			ps.println(CACHE_VERSION);
+			for (int i = 0; i < xronosArgs.length; i++) {
+				if (xronosArgs[i].equals(DESTINATION_FLAG)) {
+					i++;
+				} else {
+					ps.println(xronosArgs[i]);
+				}
+			}
+			ps.println(instance.getName());
+			ps.flush();
+			digestInstance(instance, out);
+
+			return toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			OrccLogger.warnln("Instance cache: " + e.getMessage());
+		} catch (IOException e) {
+			OrccLogger.warnln("Instance cache: unable to hash instance "
+					+ instance.getSimpleName() + ", " + e.getMessage());
+		} catch (RuntimeException e) {
+			OrccLogger.warnln("Instance cache: unable to hash instance "
+					+ instance.getSimpleName() + ", " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the signature of an instance: a hash of its actor IR and of its
+	 * parameter values, which does not depend on the name of the instance.
+	 * Two instances with the same signature generate the same hardware.
+	 * 
+	 * @param instance
+	 *            the instance, with its actor already transformed
+	 * @return the hexadecimal signature, or null if it can not be computed
+	 */
+	public static String computeSignature(Instance instance) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			DigestOutputStream out = new DigestOutputStream(
+					new NullOutputStream(), digest);
+			digestInstance(instance, out);
+
+			return toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			OrccLogger.warnln("Instance signature: " + e.getMessage());
+		} catch (IOException e) {
+			OrccLogger.warnln("Instance signature: unable to hash instance "
+					+ instance.getSimpleName() + ", " + e.getMessage());
+		} catch (RuntimeException e) {
+			OrccLogger.warnln("Instance signature: unable to hash instance "
+					+ instance.getSimpleName() + ", " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the parameter values and a serialization of the actor and of the
+	 * instance arguments to the given stream.
+	 */
+	private static void digestInstance(Instance instance, OutputStream out)
+			throws IOException {
+		PrintStream ps = new PrintStream(out, false, "UTF-8");
+		Actor actor = instance.getActor();
+		for (Var parameter : actor.getParameters()) {
+			ps.println(parameter.getName() + "="
+					+ valueToString(parameter.getValue()));
+		}
+		ps.flush();
+
+		// Serialize a copy of the actor and of the instance arguments, the
+		// references of the arguments to the actor are resolved in the copy
+		// so the hash does not depend on the file locations
+		Copier copier = new Copier();
+		EObject actorCopy = copier.copy(actor);
+		Collection<Argument> arguments = copier.copyAll(instance
+				.getArguments());
+		copier.copyReferences();
+
+		XMLResource resource = new XMIResourceImpl(URI.createURI(actor
+				.getName() + ".ir"));
+		resource.getContents().add(actorCopy);
+		resource.getContents().addAll(arguments);
+
+		Map<Object, Object> options = new HashMap<Object, Object>();
+		options.put(XMLResource.OPTION_PROCESS_DANGLING_HREF,
+				XMLResource.OPTION_PROCESS_DANGLING_HREF_RECORD);
+		resource.save(out, options);
+		out.flush();
+	}
+
+	/**
+	 * Copies the files of the given entry to the output directory.
+	 * 
+	 * @param key
+	 *            the key of the instance
+	 * @param outputPath
+	 *            the directory the files were originally generated in
+	 * @return true if the entry exists and has been restored
+	 */
+	public boolean restore(String key, String outputPath) {
+		File entryDir = new File(cacheDir, key);
+		File manifest = new File(entryDir, MANIFEST);
+		if (!manifest.isFile()) {
+			return false;
+		}
+		try {
+			List<String> files = readManifest(manifest);
+			for (String file : files) {
+				if (!new File(entryDir, file).isFile()) {
+					return false;
+				}
+			}
+			for (String file : files) {
+				File target = new File(outputPath, file);
+				target.getParentFile().mkdirs();
+				copyFile(new File(entryDir, file), target);
+			}
+			return true;
+		} catch (IOException e) {
+			OrccLogger.warnln("Instance cache: unable to restore " + key
+					+ ", " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Stores the generated files of an instance under the given key. Only the
+	 * regular files which are in the output directory are stored.
+	 * 
+	 * @param key
+	 *            the key of the instance
+	 * @param outputPath
+	 *            the directory the files have been generated in
+	 * @param generatedFiles
+	 *            the files generated by Xronos
+	 */
+	public void store(String key, String outputPath,
+			Collection<File> generatedFiles) {
+		File outputDir = new File(outputPath).getAbsoluteFile();
+		List<String> files = new ArrayList<String>();
+		for (File file : generatedFiles) {
+			String relative = getRelativePath(outputDir,
+					file.getAbsoluteFile());
+			if (file.isFile() && relative != null) {
+				files.add(relative);
+			}
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+
+		// Write the entry in a temporary directory which is renamed when
+		// complete, so a concurrent build never sees a partial entry. The
+		// directory is named after a temporary file created in the cache, so
+		// that its name is unique across threads and processes.
+		File entryDir = new File(cacheDir, key);
+		File tmpFile = null;
+		File tmpDir = null;
+		try {
+			tmpFile = File.createTempFile(key, ".tmp", cacheDir);
+			tmpDir = new File(tmpFile.getPath() + ".d");
+			if (!tmpDir.mkdir()) {
+				throw new IOException("can not create " + tmpDir);
+			}
+			for (String file : files) {
+				File target = new File(tmpDir, file);
+				target.getParentFile().mkdirs();
+				copyFile(new File(outputDir, file), target);
+			}
+			PrintStream ps = new PrintStream(new FileOutputStream(new File(
+					tmpDir, MANIFEST)), false, "UTF-8");
+			for (String file : files) {
+				ps.println(file);
+			}
+			ps.close();
+			if (!entryDir.exists() && !tmpDir.renameTo(entryDir)) {
+				OrccLogger.warnln("Instance cache: unable to create entry "
+						+ key);
+			}
+		} catch (IOException e) {
+			OrccLogger.warnln("Instance cache: unable to store " + key + ", "
+					+ e.getMessage());
+		} finally {
+			if (tmpDir != null) {
+				delete(tmpDir);
+			}
+			if (tmpFile != null) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	private void copyFile(File source, File target) throws IOException {
+		InputStream in = new FileInputStream(source);
+		try {
+			OutputStream out = new FileOutputStream(target);
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private String getRelativePath(File dir, File file) {
+		String dirPath = dir.getPath() + File.separator;
+		String filePath = file.getPath();
+		if (filePath.startsWith(dirPath)) {
+			return filePath.substring(dirPath.length()).replace(
+					File.separatorChar, '/');
+		}
+		return null;
+	}
+
+	private List<String> readManifest(File manifest) throws IOException {
+		List<String> files = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(manifest), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					files.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return files;
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Prints a parameter value, arrays are printed element by element
+	 */
+	private static String valueToString(Object value) {
+		if (value != null && value.getClass().isArray()) {
+			StringBuilder sb = new StringBuilder("[");
+			for (int i = 0; i < Array.getLength(value); i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(valueToString(Array.get(value, i)));
+			}
+			return sb.append("]").toString();
+		}
+		return String.valueOf(value);
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+
+		@Override
+		public void write(int b) {
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012, Ecole Polytechnique Fédérale de Lausanne
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the Ecole Polytechnique Fédérale de Lausanne nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+
+package net.sf.orc2hdl.backend;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.ir.util.IrUtil;
+import net.sf.orcc.util.OrccLogger;
+
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * This class dumps the IR of the actors during their transformation. The
+ * actor is copied by the caller, the copy is serialized by a background
+ * thread so the transformations do not wait for the disk.
+ * 
+ */
+public class IrDumper {
+
+	/**
+	 * The IR dump modes
+	 */
+	public enum Mode {
+		/** No IR is written **/
+		OFF,
+		/** The IR is written once all the transformations are applied **/
+		FINAL,
+		/** The IR is written after each transformation **/
+		EVERY_PASS
+	}
+
+	private final Mode mode;
+
+	private final String path;
+
+	private ExecutorService writer;
+
+	public IrDumper(Mode mode, String path) {
+		this.mode = mode;
+		this.path = path;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Dumps the actor after the given transformation if the mode requires it.
+	 * 
+	 * @param actor
+	 *            the actor
+	 * @param pass
+	 *            the index of the transformation
+	 * @param passName
+	 *            the name of the transformation
+	 * @param last
+	 *            true if it is the last transformation
+	 */
+	public void dump(Actor actor, int pass, String passName, boolean last) {
+		if (mode == Mode.EVERY_PASS) {
+			String folder = path + File.separator + "ir" + File.separator
+					+ String.format("%02d_%s", pass, passName);
+			write(actor, folder);
+		} else if (mode == Mode.FINAL && last) {
+			write(actor, path);
+		}
+	}
+
+	/**
+	 * Waits until all the pending IR files are written.
+	 */
+	public void close() {
+		ExecutorService executor;
+		synchronized (this) {
+			executor = writer;
+			writer = null;
+		}
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private synchronized ExecutorService getWriter() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Xronos IR writer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return writer;
+	}
+
+	private void write(Actor actor, final String folder) {
+		// The actor keeps being transformed, serialize a snapshot
+		final Actor copy = EcoreUtil.copy(actor);
+		new File(folder).mkdirs();
+		getWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				ResourceSet set = new ResourceSetImpl();
+				if (!IrUtil.serializeActor(set, folder, copy)) {
+					OrccLogger.warnln("Unable to write the IR of "
+							+ copy.getName() + " in " + folder);
+				}
+			}
+		});
+	}
+
+}
@@ -5,12 +5,26 @@ import static net.sf.orcc.OrccLaunchConstants.MAPPING;
 import static net.sf.orcc.OrccLaunchConstants.NO_LIBRARY_EXPORT;
 
 import java.io.File;
+import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.openforge.app.EngineThread;
+import net.sf.orc2hdl.analysis.SimParser;
+import net.sf.orc2hdl.analysis.WeightWriter;
 import net.sf.orc2hdl.backend.transform.DeadPhiRemover;
 import net.sf.orc2hdl.backend.transform.IndexFlattener;
 import net.sf.orc2hdl.backend.transform.RepeatPattern;
@@ -38,12 +52,10 @@ import net.sf.orcc.ir.Expression;
 import net.sf.orcc.ir.transform.ControlFlowAnalyzer;
 import net.sf.orcc.ir.transform.DeadCodeElimination;
 import net.sf.orcc.ir.transform.SSATransformation;
-import net.sf.orcc.ir.util.IrUtil;
 import net.sf.orcc.util.OrccLogger;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
 /**
  * The Xronos Orcc Front-End.
@@ -60,12 +72,43 @@ public class Xronos extends AbstractBackend {
 	/** Debug Mode, no caching, generating always **/
 	private boolean debugMode;
 
+	/** Dumps the IR of the actors during their transformation **/
+	private IrDumper irDumper;
+
+	/** The time spent in each transformation, for all the actors **/
+	private final Map<String, Long> passTimes = new LinkedHashMap<String, Long>();
+
+	/** The content-hash cache of the generated instances, or null **/
+	private InstanceCache instanceCache;
+
 	/** A list which contains the given xronosFlags **/
 	private List<String> xronosFlags;
 
 	/** The used Xilinx FPGA Name **/
 	private String fpgaName;
 
+	/** Compile the instances concurrently **/
+	private boolean parallelInstances;
+
+	/** The number of threads used for the parallel compilation **/
+	private int instanceWorkers;
+
+	/** Transform the actors concurrently **/
+	private boolean parallelTransform;
+
+	/** Compile only once the instances with the same actor and parameters **/
+	private boolean shareInstances;
+
+	/** The identical instances generated from each compiled instance **/
+	private Map<Instance, List<Instance>> instanceCopies = Collections
+			.emptyMap();
+
+	/** The instances which are not compiled but generated from another one **/
+	private Set<Instance> copiedInstances = Collections.emptySet();
+
+	/** The number of identical instances which could not be generated **/
+	private final AtomicInteger failedCopies = new AtomicInteger();
+
 	/** Generate Verilog files with Go And Done signal on Top Module **/
 	private boolean generateGoDone;
 
@@ -97,6 +140,38 @@ public class Xronos extends AbstractBackend {
 		generateWeights = getAttribute("net.sf.orc2hdl.generateWeights", false);
 		xilinxPrimitives = getAttribute("net.sf.orc2hdl.xilinxPrimitives",
 				false);
+		IrDumper.Mode irDumpMode = IrDumper.Mode.OFF;
+		if (getAttribute("net.sf.orc2hdl.dumpIr", false)) {
+			if (getAttribute("net.sf.orc2hdl.dumpIrEveryPass", false)) {
+				irDumpMode = IrDumper.Mode.EVERY_PASS;
+			} else {
+				irDumpMode = IrDumper.Mode.FINAL;
+			}
+		}
+		irDumper = new IrDumper(irDumpMode, path);
+		parallelInstances = getAttribute("net.sf.orc2hdl.parallelInstances",
+				false);
+		parallelTransform = getAttribute("net.sf.orc2hdl.parallelTransform",
+				false);
+		shareInstances = getAttribute("net.sf.orc2hdl.shareInstances", false);
+		if (getAttribute("net.sf.orc2hdl.instanceCache", false)) {
+			String cachePath = getAttribute("net.sf.orc2hdl.instanceCachePath",
+					"");
+			if (cachePath.trim().isEmpty()) {
+				cachePath = path + File.separator + "cache";
+			}
+			instanceCache = new InstanceCache(cachePath.trim());
+		}
+		instanceWorkers = Runtime.getRuntime().availableProcessors();
+		String workers = getAttribute("net.sf.orc2hdl.instanceWorkers", "");
+		if (!workers.trim().isEmpty()) {
+			try {
+				instanceWorkers = Math.max(1, Integer.parseInt(workers.trim()));
+			} catch (NumberFormatException e) {
+				OrccLogger.warnln("Invalid number of instance workers: "
+						+ workers + ", using " + instanceWorkers);
+			}
+		}
 
 		// Set Paths for RTL
 		rtlPath = path + File.separator + "rtl";
@@ -154,38 +229,128 @@ public class Xronos extends AbstractBackend {
 	@Override
 	protected void doTransformActor(Actor actor) {
 		if (!actor.isNative()) {
-			List<DfSwitch<?>> transformations = new ArrayList<DfSwitch<?>>();
-			// transformations.add(new DfVisitor<Void>(new
-			// LocalVarInitializer()));
-			transformations.add(new StoreOnceTransformation());
-			transformations.add(new DfVisitor<Void>(new LocalArrayRemoval()));
-			transformations.add(new UnitImporter());
-			transformations.add(new RepeatPattern(resourceCache));
-			transformations.add(new DfVisitor<Void>(new SSATransformation()));
-			transformations.add(new GlobalArrayInitializer(true));
-			transformations.add(new DfVisitor<Void>(new Inliner(true, true)));
-			transformations.add(new DfVisitor<Void>(new DeadCodeElimination()));
-			transformations.add(new ScalarPortIO(resourceCache));
-			transformations.add(new DfVisitor<Expression>(
-					new XronosLiteralIntegersAdder()));
-			transformations.add(new DfVisitor<Void>(new IndexFlattener()));
-			transformations.add(new DfVisitor<Expression>(new XronosTac()));
-			transformations.add(new DfVisitor<CfgNode>(
+			// The transformations by name, in the order of application
+			Map<String, DfSwitch<?>> transformations = new LinkedHashMap<String, DfSwitch<?>>();
+			// transformations.put("LocalVarInitializer",
+			// new DfVisitor<Void>(new LocalVarInitializer()));
+			transformations.put("StoreOnceTransformation",
+					new StoreOnceTransformation());
+			transformations.put("LocalArrayRemoval", new DfVisitor<Void>(
+					new LocalArrayRemoval()));
+			transformations.put("UnitImporter", new UnitImporter());
+			transformations.put("RepeatPattern",
+					new RepeatPattern(resourceCache));
+			transformations.put("SSATransformation", new DfVisitor<Void>(
+					new SSATransformation()));
+			transformations.put("GlobalArrayInitializer",
+					new GlobalArrayInitializer(true));
+			transformations.put("Inliner", new DfVisitor<Void>(new Inliner(
+					true, true)));
+			transformations.put("DeadCodeElimination", new DfVisitor<Void>(
+					new DeadCodeElimination()));
+			transformations.put("ScalarPortIO",
+					new ScalarPortIO(resourceCache));
+			transformations.put("XronosLiteralIntegersAdder",
+					new DfVisitor<Expression>(new XronosLiteralIntegersAdder()));
+			transformations.put("IndexFlattener", new DfVisitor<Void>(
+					new IndexFlattener()));
+			transformations.put("XronosTac", new DfVisitor<Expression>(
+					new XronosTac()));
+			transformations.put("ControlFlowAnalyzer", new DfVisitor<CfgNode>(
 					new ControlFlowAnalyzer()));
-			transformations.add(new DfVisitor<Expression>(
-					new XronosLiteralIntegersAdder()));
-			transformations.add(new DfVisitor<Expression>(new CastAdder(false,
-					false)));
-			transformations.add(new DfVisitor<Void>(new DeadPhiRemover()));
-
-			for (DfSwitch<?> transformation : transformations) {
-				transformation.doSwitch(actor);
-				ResourceSet set = new ResourceSetImpl();
-				if (debugMode && !IrUtil.serializeActor(set, path, actor)) {
-					System.out.println("oops " + transformation + " "
-							+ actor.getName());
+			transformations.put("XronosLiteralIntegersAdder_2",
+					new DfVisitor<Expression>(new XronosLiteralIntegersAdder()));
+			transformations.put("CastAdder", new DfVisitor<Expression>(
+					new CastAdder(false, false)));
+			transformations.put("DeadPhiRemover", new DfVisitor<Void>(
+					new DeadPhiRemover()));
+
+			int pass = 0;
+			for (Map.Entry<String, DfSwitch<?>> entry : transformations
+					.entrySet()) {
+				long t0 = System.nanoTime();
+				entry.getValue().doSwitch(actor);
+				addPassTime(entry.getKey(), System.nanoTime() - t0);
+
+				pass++;
+				irDumper.dump(actor, pass, entry.getKey(),
+						pass == transformations.size());
+			}
+		}
+	}
+
+	/**
+	 * Transforms the actors on a pool of {@link #instanceWorkers} threads. The
+	 * actors do not share any IR, the only state shared by the transformations
+	 * is the {@link ResourceCache}, whose actor level maps are concurrent. The
+	 * cross references of the actors (e.g. to the imported units) are resolved
+	 * before, so that no resource is loaded concurrently in the resource set.
+	 * As with the serial loop, the first actor which fails to transform aborts
+	 * the code generation: its exception is rethrown once the other actors
+	 * are cancelled.
+	 * 
+	 * @param actors
+	 *            the actors to transform
+	 */
+	private void transformActorsParallel(List<Actor> actors) {
+		OrccLogger.traceln("Transforming actors...");
+		long t0 = System.currentTimeMillis();
+		for (Actor actor : actors) {
+			EcoreUtil.resolveAll(actor);
+		}
+
+		int workers = Math.min(instanceWorkers, actors.size());
+		if (workers < 1) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			Map<Actor, Future<?>> futures = new LinkedHashMap<Actor, Future<?>>();
+			for (final Actor actor : actors) {
+				futures.put(actor, executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						doTransformActor(actor);
+					}
+				}));
+			}
+			for (Map.Entry<Actor, Future<?>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					OrccLogger.severeln("Actor: " + entry.getKey().getName()
+							+ ", failed to transform: " + cause);
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new RuntimeException(cause);
+				} catch (InterruptedException e) {
+					OrccLogger.severeln("Parallel transformation interrupted");
+					Thread.currentThread().interrupt();
+					break;
 				}
 			}
+		} finally {
+			executor.shutdownNow();
+		}
+		long t1 = System.currentTimeMillis();
+		OrccLogger.traceln("Done in " + ((float) (t1 - t0) / (float) 1000)
+				+ "s on " + workers + " threads");
+	}
+
+	private synchronized void addPassTime(String passName, long time) {
+		Long total = passTimes.get(passName);
+		passTimes.put(passName, total == null ? time : total + time);
+	}
+
+	private synchronized void printPassTimes() {
+		OrccLogger.traceln("Transformation times:");
+		for (Map.Entry<String, Long> entry : passTimes.entrySet()) {
+			OrccLogger.traceln("  " + entry.getKey() + ": "
+					+ ((float) entry.getValue() / 1000000000) + "s");
 		}
 	}
 
@@ -201,7 +366,12 @@ public class Xronos extends AbstractBackend {
 		new NetworkFlattener().doSwitch(network);
 
 		// Transform Actors
-		transformActors(network.getAllActors());
+		if (parallelTransform && instanceWorkers > 1) {
+			transformActorsParallel(network.getAllActors());
+		} else {
+			transformActors(network.getAllActors());
+		}
+		printPassTimes();
 
 		// Compute the Network Template
 		network.computeTemplateMaps();
@@ -214,6 +384,9 @@ public class Xronos extends AbstractBackend {
 
 		// Print Instances
 		generateInstances(network);
+
+		// Wait for the IR files still being written
+		irDumper.close();
 	}
 
 	@Override
@@ -244,21 +417,24 @@ public class Xronos extends AbstractBackend {
 		int numCached = 0;
 
 		long t0 = System.currentTimeMillis();
-		for (Vertex vertex : network.getChildren()) {
-			final Instance instance = vertex.getAdapter(Instance.class);
-			if (instance != null) {
-				if (!instance.getActor().isNative()) {
-					XronosPrinter printer = new XronosPrinter(!debugMode);
-					printer.getOptions().put("generateGoDone", generateGoDone);
-					printer.getOptions().put("fpgaType", fpgaName);
-					List<String> flags = new ArrayList<String>(xronosFlags);
-					flags.addAll(Arrays.asList("-d", rtlPath, "-o",
-							instance.getSimpleName()));
-					Boolean cached = printer.printInstance(
-							flags.toArray(new String[0]), rtlPath, instance,
-							resourceCache);
-					if (cached) {
-						numCached++;
+		failedCopies.set(0);
+		if (shareInstances) {
+			instanceCopies = findInstanceCopies(network);
+			copiedInstances = new HashSet<Instance>();
+			for (List<Instance> copies : instanceCopies.values()) {
+				copiedInstances.addAll(copies);
+			}
+		}
+		if (parallelInstances && instanceWorkers > 1) {
+			numCached = generateInstancesParallel(network);
+		} else {
+			for (Vertex vertex : network.getChildren()) {
+				final Instance instance = vertex.getAdapter(Instance.class);
+				if (instance != null && !isInstanceCopy(instance)) {
+					if (!instance.getActor().isNative()) {
+						if (printInstance(instance, resourceCache)) {
+							numCached++;
+						}
 					}
 				}
 			}
@@ -266,6 +442,10 @@ public class Xronos extends AbstractBackend {
 		long t1 = System.currentTimeMillis();
 		OrccLogger.traceln("Done in " + ((float) (t1 - t0) / (float) 1000)
 				+ "s");
+		if (failedCopies.get() > 0) {
+			OrccLogger.severeln(failedCopies.get()
+					+ " identical instances could not be generated");
+		}
 		if (numCached > 0) {
 			OrccLogger
 					.traceln("*******************************************************************************");
@@ -277,6 +457,174 @@ public class Xronos extends AbstractBackend {
 		}
 	}
 
+	/**
+	 * Compiles the instances of the network on a pool of
+	 * {@link #instanceWorkers} threads. The instances of the same actor share
+	 * the same Orcc IR, which is modified while building the Design, so they
+	 * are compiled one after another on the same worker, in network order.
+	 * Each Engine keeps its ID and naming counters in its own
+	 * CompilationContext, so the workers do not share any counter. Whether
+	 * the generated files are identical to those of the serial loop has not
+	 * been verified.
+	 * 
+	 * @param network
+	 *            the network
+	 * @return the number of instances that were not regenerated
+	 */
+	private int generateInstancesParallel(Network network) {
+		Map<Actor, List<Instance>> actorInstances = new LinkedHashMap<Actor, List<Instance>>();
+		for (Vertex vertex : network.getChildren()) {
+			final Instance instance = vertex.getAdapter(Instance.class);
+			if (instance != null && !isInstanceCopy(instance)) {
+				if (!instance.getActor().isNative()) {
+					List<Instance> instances = actorInstances.get(instance
+							.getActor());
+					if (instances == null) {
+						instances = new ArrayList<Instance>();
+						actorInstances.put(instance.getActor(), instances);
+					}
+					instances.add(instance);
+				}
+			}
+		}
+
+		int numCached = 0;
+		int workers = Math.min(instanceWorkers, actorInstances.size());
+		if (workers < 1) {
+			return numCached;
+		}
+		OrccLogger.traceln("Compiling " + actorInstances.size()
+				+ " actors on " + workers + " threads");
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			Map<Actor, Future<Integer>> futures = new LinkedHashMap<Actor, Future<Integer>>();
+			for (final List<Instance> instances : actorInstances.values()) {
+				futures.put(instances.get(0).getActor(),
+						executor.submit(new Callable<Integer>() {
+							@Override
+							public Integer call() {
+								int cached = 0;
+								try {
+									for (Instance instance : instances) {
+										ResourceCache instanceCache = new ResourceCache(
+												resourceCache);
+										if (printInstance(instance,
+												instanceCache)) {
+											cached++;
+										}
+									}
+								} finally {
+									// Do not keep the Engine (and its Design)
+									// alive through the worker thread
+									EngineThread.removeThread();
+								}
+								return cached;
+							}
+						}));
+			}
+			for (Map.Entry<Actor, Future<Integer>> entry : futures.entrySet()) {
+				try {
+					numCached += entry.getValue().get();
+				} catch (ExecutionException e) {
+					OrccLogger.severeln("Actor: " + entry.getKey().getName()
+							+ ", failed to compile: "
+							+ e.getCause().getMessage());
+				} catch (InterruptedException e) {
+					OrccLogger.severeln("Parallel compilation interrupted");
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return numCached;
+	}
+
+	/**
+	 * Groups the instances of the network which have the same actor and the
+	 * same parameter values. The signatures are computed before compiling any
+	 * instance, as the compilation modifies the actors.
+	 * 
+	 * @param network
+	 *            the network
+	 * @return for each instance to compile, the instances identical to it
+	 */
+	private Map<Instance, List<Instance>> findInstanceCopies(Network network) {
+		Map<String, Instance> compiled = new HashMap<String, Instance>();
+		Map<Instance, List<Instance>> copies = new HashMap<Instance, List<Instance>>();
+		int numCopies = 0;
+		for (Vertex vertex : network.getChildren()) {
+			Instance instance = vertex.getAdapter(Instance.class);
+			if (instance != null && !instance.getActor().isNative()) {
+				String signature = InstanceCache.computeSignature(instance);
+				if (signature == null) {
+					continue;
+				}
+				Instance original = compiled.get(signature);
+				if (original == null) {
+					compiled.put(signature, instance);
+				} else {
+					List<Instance> instances = copies.get(original);
+					if (instances == null) {
+						instances = new ArrayList<Instance>();
+						copies.put(original, instances);
+					}
+					instances.add(instance);
+					numCopies++;
+				}
+			}
+		}
+		if (numCopies > 0) {
+			OrccLogger.traceln(numCopies + " instances are identical to "
+					+ copies.size() + " other instances, they are not compiled");
+		}
+		return copies;
+	}
+
+	private boolean isInstanceCopy(Instance instance) {
+		return copiedInstances.contains(instance);
+	}
+
+	/**
+	 * Calls Xronos on a single instance, and generates the instances identical
+	 * to it from its Verilog file if it was compiled or found up to date
+	 * 
+	 * @param instance
+	 *            the instance
+	 * @param cache
+	 *            the resource cache used for the compilation
+	 * @return true if the instance was not regenerated
+	 */
+	private boolean printInstance(Instance instance, ResourceCache cache) {
+		XronosPrinter printer = new XronosPrinter(!debugMode);
+		printer.getOptions().put("generateGoDone", generateGoDone);
+		printer.getOptions().put("fpgaType", fpgaName);
+		if (instanceCache != null) {
+			printer.getOptions().put("instanceCache", instanceCache);
+		}
+		List<String> flags = new ArrayList<String>(xronosFlags);
+		flags.addAll(Arrays.asList("-d", rtlPath, "-o",
+				instance.getSimpleName()));
+		boolean cached = printer.printInstance(flags.toArray(new String[0]),
+				rtlPath, instance, cache);
+		List<Instance> copies = instanceCopies.get(instance);
+		if (copies != null) {
+			for (Instance copy : copies) {
+				if (printer.hasFailed()) {
+					// Do not copy the file left by a previous run
+					OrccLogger.severeln("Instance: " + copy.getSimpleName()
+							+ ", not copied since " + instance.getSimpleName()
+							+ " failed to compile");
+					failedCopies.incrementAndGet();
+				} else if (printer.printInstanceCopy(rtlPath, instance, copy)) {
+					failedCopies.incrementAndGet();
+				}
+			}
+		}
+		return cached;
+	}
+
 	private void printNetwork(Network network) {
 		OrccLogger.traceln("Generating Network...");
 
@@ -291,6 +639,37 @@ public class Xronos extends AbstractBackend {
 
 	}
 
+	private boolean hasTraces(File weightsPath) {
+		String[] traces = weightsPath.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".txt");
+			}
+		});
+		return traces != null && traces.length > 0;
+	}
+
+	/**
+	 * Parses the go/done traces of the actions written by the weight
+	 * simulation, and writes the weight of each firing and the latency
+	 * statistics of each action next to them.
+	 * 
+	 * @param network
+	 *            the network
+	 * @param weightsPath
+	 *            the folder of the traces
+	 */
+	private void writeWeights(Network network, String weightsPath) {
+		OrccLogger.traceln("Writing the action weights...");
+		SimParser simParser = new SimParser(network, weightsPath);
+		simParser.createMaps();
+		String prefix = weightsPath + File.separator + network.getSimpleName();
+		WeightWriter weightWriter = new WeightWriter(
+				simParser.getExecutionMap(), network, prefix + "_weights.pb");
+		weightWriter.writeProtobuf();
+		weightWriter.writeStatistics(prefix + "_statistics.csv");
+	}
+
 	private void printTestbenches(Network network) {
 		OrccLogger.traceln("Generating Testbenches...");
 
@@ -324,6 +703,11 @@ public class Xronos extends AbstractBackend {
 			}
 			xronosPrinter.printWeightTclScript(simPath, network);
 			xronosPrinter.printSimTclScript(simPath, true, network);
+
+			// Analyze the traces left by a previous simulation
+			if (generateWeights && hasTraces(weightsPath)) {
+				writeWeights(network, weightsPath.getPath());
+			}
 		}
 
 		// print the network VHDL Testbech sourcefile
@@ -29,13 +29,19 @@
 
 package net.sf.orc2hdl.backend;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import net.sf.openforge.app.Engine;
 import net.sf.openforge.app.Forge;
@@ -70,6 +76,9 @@ public class XronosPrinter {
 	/** The options given to the printer **/
 	protected Map<String, Object> options;
 
+	/** True if the last instance given to printInstance failed to compile **/
+	private boolean failed;
+
 	public XronosPrinter() {
 		options = new HashMap<String, Object>();
 	}
@@ -79,6 +88,17 @@ public class XronosPrinter {
 		this.keepUnchangedFiles = keepUnchangedFiles;
 	}
 
+	/**
+	 * Tells whether the last call to
+	 * {@link #printInstance(String[], String, Instance, ResourceCache)} failed
+	 * to compile its instance, as opposed to finding it up to date.
+	 * 
+	 * @return true if the instance failed to compile
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
 	/**
 	 * Returns the time of the most recently modified file in the hierarchy.
 	 * 
@@ -150,6 +170,7 @@ public class XronosPrinter {
 		Forge f = new Forge();
 		GenericJob xronosMainJob = new GenericJob();
 		boolean error = false;
+		failed = false;
 
 		String file = rtlPath + File.separator + instance.getSimpleName()
 				+ ".v";
@@ -163,6 +184,16 @@ public class XronosPrinter {
 					return true;
 				}
 			}
+			InstanceCache instanceCache = (InstanceCache) options
+					.get("instanceCache");
+			String cacheKey = null;
+			if (instanceCache != null) {
+				cacheKey = instanceCache.computeKey(instance, xronosArgs);
+				if (cacheKey != null && instanceCache.restore(cacheKey, rtlPath)) {
+					addGoDone(instance, rtlPath);
+					return true;
+				}
+			}
 			try {
 				xronosMainJob.setOptionValues(xronosArgs);
 				f.preprocess(xronosMainJob);
@@ -214,26 +245,128 @@ public class XronosPrinter {
 				OrccLogger.traceln("Compiling instance: "
 						+ instance.getSimpleName() + ": Compiled in: "
 						+ ((float) (t1 - t0) / 1000) + "s");
-			}
-			if (options.containsKey("generateGoDone")) {
-				Boolean generateGoDone = (Boolean) options
-						.get("generateGoDone");
-
-				if (generateGoDone) {
-					if (!error) {
-						String rtlGoDonePath = rtlPath + File.separator
-								+ "rtlGoDone";
-						VerilogAddGoDone verilogFile = new VerilogAddGoDone(
-								instance, rtlPath, rtlGoDonePath);
-						verilogFile.addGoDone();
-					}
+				if (cacheKey != null) {
+					instanceCache.store(cacheKey, rtlPath, xronosMainJob
+							.getFileHandler().getRegisteredFiles());
 				}
+				addGoDone(instance, rtlPath);
 			}
+			failed = error;
 			return error;
 		}
 		return false;
 	}
 
+	/**
+	 * Generates the Verilog file of an instance from the one of an identical
+	 * instance (same actor and same parameter values) instead of compiling it.
+	 * The top module takes the name of the copy, and the other modules
+	 * declared in the file (e.g. the memories) are suffixed with it, so that
+	 * both files can be part of the same design. Only the module declarations
+	 * and the module names of the instantiations are renamed, the rest of the
+	 * file (comments, strings, signal names) is copied as is.
+	 * 
+	 * @param rtlPath
+	 *            the RTL path
+	 * @param original
+	 *            the compiled instance
+	 * @param copy
+	 *            the instance to generate
+	 * @return true if the file of the copy could not be generated
+	 */
+	public boolean printInstanceCopy(String rtlPath, Instance original,
+			Instance copy) {
+		File source = new File(rtlPath, original.getSimpleName() + ".v");
+		File target = new File(rtlPath, copy.getSimpleName() + ".v");
+		if (!source.isFile()) {
+			OrccLogger.severeln("Instance: " + copy.getSimpleName()
+					+ ", can not be copied from " + original.getSimpleName()
+					+ ", no Verilog file");
+			return true;
+		}
+		try {
+			StringBuilder sb = new StringBuilder();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(source)));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					sb.append(line).append('\n');
+				}
+			} finally {
+				reader.close();
+			}
+			String verilog = sb.toString();
+
+			// The names of the modules declared in the file and their new name
+			Map<String, String> names = new HashMap<String, String>();
+			Matcher module = Pattern.compile(
+					"^\\s*module\\s+([A-Za-z_][A-Za-z0-9_$]*)",
+					Pattern.MULTILINE).matcher(verilog);
+			while (module.find()) {
+				String name = module.group(1);
+				if (name.equals(original.getSimpleName())) {
+					names.put(name, copy.getSimpleName());
+				} else if (name.equals(original.getName())) {
+					names.put(name, copy.getName());
+				} else {
+					names.put(name, name + "_" + copy.getSimpleName());
+				}
+			}
+
+			// A module declaration, or an instantiation, which starts its
+			// line with the name of the module followed by a parameter
+			// list or the name of the instance
+			StringBuffer renamed = new StringBuffer();
+			Matcher declaration = Pattern.compile(
+					"^(\\s*module\\s+|\\s*)([A-Za-z_][A-Za-z0-9_$]*)"
+							+ "(?=\\s*[(#;]|\\s+[A-Za-z_])",
+					Pattern.MULTILINE).matcher(verilog);
+			while (declaration.find()) {
+				String name = names.get(declaration.group(2));
+				declaration.appendReplacement(renamed, Matcher
+						.quoteReplacement(declaration.group(1)
+								+ (name != null ? name : declaration.group(2))));
+			}
+			declaration.appendTail(renamed);
+
+			PrintStream ps = new PrintStream(new FileOutputStream(target));
+			ps.print(renamed);
+			ps.close();
+		} catch (IOException e) {
+			OrccLogger.severeln("Instance: " + copy.getSimpleName()
+					+ ", can not be copied from " + original.getSimpleName()
+					+ ", " + e.getMessage());
+			return true;
+		}
+		OrccLogger.traceln("Compiling instance: " + copy.getSimpleName()
+				+ ": Copied from " + original.getSimpleName());
+		addGoDone(copy, rtlPath);
+		return false;
+	}
+
+	/**
+	 * Adds the Go and Done signals to the top module of the instance, if
+	 * requested by the options.
+	 * 
+	 * @param instance
+	 *            an Instance
+	 * @param rtlPath
+	 *            the RTL path
+	 */
+	private void addGoDone(Instance instance, String rtlPath) {
+		if (options.containsKey("generateGoDone")) {
+			Boolean generateGoDone = (Boolean) options.get("generateGoDone");
+
+			if (generateGoDone) {
+				String rtlGoDonePath = rtlPath + File.separator + "rtlGoDone";
+				VerilogAddGoDone verilogFile = new VerilogAddGoDone(instance,
+						rtlPath, rtlGoDonePath);
+				verilogFile.addGoDone();
+			}
+		}
+	}
+
 	/**
 	 * This method prints a VHDL representation of a network
 	 * 
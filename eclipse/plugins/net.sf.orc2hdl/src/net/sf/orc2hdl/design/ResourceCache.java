@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.openforge.frontend.slim.builder.ActionIOHandler;
 import net.sf.openforge.lim.Task;
@@ -58,11 +59,15 @@ public class ResourceCache {
 
 	private Map<Action, Task> actionToTask = new HashMap<Action, Task>();
 
-	private Map<Actor, Boolean> actorContainsRepeat = new HashMap<Actor, Boolean>();
+	/*
+	 * The actor level maps are populated by the actor transformations, which
+	 * may run concurrently on several actors
+	 */
+	private Map<Actor, Boolean> actorContainsRepeat = new ConcurrentHashMap<Actor, Boolean>();
 
-	private Map<Actor, Map<Port, CircularBuffer>> actorInputCircularBuffer = new HashMap<Actor, Map<Port, CircularBuffer>>();
+	private Map<Actor, Map<Port, CircularBuffer>> actorInputCircularBuffer = new ConcurrentHashMap<Actor, Map<Port, CircularBuffer>>();
 
-	private Map<Actor, Map<Port, CircularBuffer>> actorOutputCircularBuffer = new HashMap<Actor, Map<Port, CircularBuffer>>();
+	private Map<Actor, Map<Port, CircularBuffer>> actorOutputCircularBuffer = new ConcurrentHashMap<Actor, Map<Port, CircularBuffer>>();
 
 	/** Map of a Branch Else Block Input Variables **/
 	private Map<Block, List<Var>> elseInputs = new HashMap<Block, List<Var>>();
@@ -103,6 +108,21 @@ public class ResourceCache {
 	public ResourceCache() {
 	}
 
+	/**
+	 * Creates a ResourceCache for the compilation of a single instance. Only
+	 * the actor level information computed by the Orcc transformations (repeat
+	 * patterns and circular buffers) is copied from the given cache, all the
+	 * Design level resources are populated by the compilation itself.
+	 *
+	 * @param actorCache
+	 *            the cache filled during the actor transformations
+	 */
+	public ResourceCache(ResourceCache actorCache) {
+		actorContainsRepeat.putAll(actorCache.actorContainsRepeat);
+		actorInputCircularBuffer.putAll(actorCache.actorInputCircularBuffer);
+		actorOutputCircularBuffer.putAll(actorCache.actorOutputCircularBuffer);
+	}
+
 	public void addActorContainsRepeat(Actor actor, Boolean contains) {
 		actorContainsRepeat.put(actor, contains);
 	}
@@ -198,8 +218,9 @@ public class ResourceCache {
 	}
 
 	public Boolean getActorContainsRepeat(Actor actor) {
-		if (actorContainsRepeat.containsKey(actor)) {
-			return actorContainsRepeat.get(actor);
+		Boolean contains = actorContainsRepeat.get(actor);
+		if (contains != null) {
+			return contains;
 		} else {
 			return false;
 		}